@@ -5,6 +5,7 @@ import com.example.book.Model.LoginResponse;
 import com.example.book.Model.User;
 import com.example.book.Service.UserService;
 import com.example.book.Util.JwtTokenUtil;
+import com.example.book.Util.VerifiedToken;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
@@ -83,14 +84,17 @@ public class AuthController {
             return ResponseEntity.status(401).body("Invalid JWT token");
         }
 
-        String username = jwtTokenUtil.getUsernameFromToken(jwt);
-        UserDetails userDetails = userService.loadUserByUsername(username);
-        if (!jwtTokenUtil.validateToken(jwt, userDetails)) {
+        VerifiedToken verifiedToken;
+        try {
+            verifiedToken = jwtTokenUtil.verify(jwt);
+        } catch (JwtException | IllegalArgumentException e) {
             return ResponseEntity.status(401).body("Invalid JWT token");
         }
 
-        User user = userService.findByUsername(username);
-        if (user == null) {
+        User user;
+        try {
+            user = userService.findUserById(verifiedToken.getUserId());
+        } catch (RuntimeException e) {
             return ResponseEntity.status(404).body("User not found");
         }
 
@@ -8,7 +8,9 @@ import com.example.book.Model.CustomUserDetails;
 import com.example.book.Model.PasswordChangeDto;
 import com.example.book.Model.User;
 import com.example.book.Model.UserDto;
+import com.example.book.Model.UserSummary;
 import com.example.book.Service.UserService;
+import com.example.book.UserSummaryCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,7 +28,6 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -39,12 +40,25 @@ public class UserController {
 	private final String accountName;
 	private static final Logger log = LoggerFactory.getLogger(UserController.class);
 
+	// Cabecera que BookGateway interpreta para invalidar su caché de respuestas
+	private static final String GATEWAY_CACHE_INVALIDATE_HEADER = "X-Cache-Invalidate";
+
+	// Conjunto de amigos aceptados que mantiene FriendMembershipIndex en BookFriendship, con su centinela de carga
+	private static final String FRIEND_INDEX_PREFIX = "friends:";
+	private static final String FRIEND_INDEX_LOADED = "__loaded__";
+
 	private final RedisTemplate<String, Object> redisTemplate; // Asegúrate de que es de este tipo
+	private final UserSummaryCache userSummaryCache;
+
+	// Máximo de ids aceptados por /users/batch
+	@Value("${users.batch.max-size:200}")
+	private int batchMaxSize;
 
 
     @Autowired
     public UserController(DataLakeServiceClient dataLakeServiceClient,
                           RedisTemplate<String, Object> redisTemplate,
+                          UserSummaryCache userSummaryCache,
                           UserService userService,
                           @Value("${azure.storage.file-system-name}") String fileSystemName,
                           @Value("${azure.storage.account-name}") String accountName) {
@@ -53,6 +67,7 @@ public class UserController {
 	    this.fileSystemName = fileSystemName;
 	    this.accountName = accountName;
 	    this.redisTemplate = redisTemplate;
+	    this.userSummaryCache = userSummaryCache;
     }
 
 	public static class UserNotFoundException extends RuntimeException {
@@ -74,24 +89,21 @@ public class UserController {
 	public ResponseEntity<Map<String, String>> getUserById(@PathVariable String userId) {
 		log.info("Fetching user with ID {}", userId);
 
-		// Intenta obtener los detalles del usuario desde la caché de Redis
-		Map<String, String> userInfo = (Map<String, String>) redisTemplate.opsForValue().get("user:" + userId);
-		if (userInfo != null) {
-			log.info("Retrieved user with ID {} from cache", userId);
-			return ResponseEntity.ok(userInfo);
-		}
-
-		User userFound = userService.findUserById(userId);
-		if (userFound != null) {
-			userInfo = new HashMap<>();
-			userInfo.put("username", userFound.getUsername());
-			userInfo.put("PhotoUrl", userFound.getPhotoUrl());
-			userInfo.put("Email", userFound.getEmail());
-
-			// Almacena los detalles del usuario en la caché de Redis
-			redisTemplate.opsForValue().set("user:" + userId, userInfo, 1, TimeUnit.HOURS);
+		// Caché local, luego Redis; si no está, una sola petición entre todos los nodos lo carga de Mongo
+		Map<String, String> userInfo = userSummaryCache.get(userId, () -> {
+			User userFound = userService.findUserById(userId);
+			if (userFound == null) {
+				return null;
+			}
+			Map<String, String> loaded = new HashMap<>();
+			loaded.put("username", userFound.getUsername());
+			loaded.put("PhotoUrl", userFound.getPhotoUrl());
+			loaded.put("Email", userFound.getEmail());
 			log.info("User with ID {} cached", userId);
+			return loaded;
+		});
 
+		if (userInfo != null) {
 			return ResponseEntity.ok(userInfo);
 		} else {
 			log.warn("User with ID {} not found", userId);
@@ -100,6 +112,57 @@ public class UserController {
 	}
 
 
+	/**
+	 * Resuelve varios usuarios en una sola llamada para otros servicios. Lee las entradas {@code user:{id}} de la
+	 * caché local y las que falten con un MGET, consulta los que falten con una sola query que solo trae las columnas necesarias y los guarda en Redis
+	 * en un pipeline. Los ids que no existen se omiten.
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<List<UserDto>> getUsersByIds(@RequestBody List<String> userIds) {
+		Set<String> ids = new LinkedHashSet<>(userIds);
+		if (ids.size() > batchMaxSize) {
+			log.warn("Batch user lookup rejected: {} ids, max {}", ids.size(), batchMaxSize);
+			return ResponseEntity.badRequest().build();
+		}
+		if (ids.isEmpty()) {
+			return ResponseEntity.ok(Collections.emptyList());
+		}
+
+		List<String> orderedIds = new ArrayList<>(ids);
+		Map<String, Map<String, String>> cached = userSummaryCache.getAll(orderedIds);
+
+		Map<String, UserDto> found = new HashMap<>();
+		List<String> misses = new ArrayList<>();
+		for (String id : orderedIds) {
+			Map<String, String> userInfo = cached.get(id);
+			if (userInfo != null) {
+				found.put(id, new UserDto(id, userInfo.get("username"), userInfo.get("PhotoUrl")));
+			} else {
+				misses.add(id);
+			}
+		}
+
+		if (!misses.isEmpty()) {
+			Map<String, Map<String, String>> toCache = new HashMap<>();
+			for (UserSummary summary : userService.findUserSummaries(misses)) {
+				Map<String, String> userInfo = new HashMap<>();
+				userInfo.put("username", summary.getUsername());
+				userInfo.put("PhotoUrl", summary.getPhotoUrl());
+				userInfo.put("Email", summary.getEmail());
+				toCache.put(summary.getId(), userInfo);
+				found.put(summary.getId(), new UserDto(summary.getId(), summary.getUsername(), summary.getPhotoUrl()));
+			}
+			userSummaryCache.putAll(toCache);
+		}
+		log.info("Batch user lookup: {} ids, {} from cache, {} not found", orderedIds.size(),
+				orderedIds.size() - misses.size(), orderedIds.size() - found.size());
+
+		return ResponseEntity.ok(orderedIds.stream()
+				.map(found::get)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toList()));
+	}
+
 	@PutMapping("/updatePassword/{userId}")
 	public ResponseEntity<?> updatePassword(@PathVariable String userId, @RequestBody PasswordChangeDto passwordChangeDto) {
 		log.info("Updating password for user with ID {}", userId);
@@ -122,31 +185,28 @@ public class UserController {
 		try {
 			User updatedUser = userService.updateUser(userId, userDetails);
 
-			// Invalida la caché del usuario específico
-			redisTemplate.delete("user:" + userId);
+			// Invalida la caché del usuario específico, en Redis y en la caché local de todos los nodos
+			userSummaryCache.evict(userId);
 			log.info("Cache invalidated for user with ID {}", userId);
 
-			// Recupera todas las claves de caché relacionadas con los amigos de este usuario
-			String userCacheKeysSet = "friendsOf:" + userId;
-			Set<Object> friendCacheKeys = redisTemplate.opsForSet().members(userCacheKeysSet);
-			if (friendCacheKeys != null && !friendCacheKeys.isEmpty()) {
-				// Convertir el conjunto de Object a un conjunto de String
-				Set<String> keysToDelete = friendCacheKeys.stream()
-						.map(Object::toString)
-						.collect(Collectors.toSet());
-
-				// Eliminar cada clave de caché de amigos individualmente
-				keysToDelete.forEach(key -> {
-					redisTemplate.delete("friendsDto:" + key);
-					log.info("Cache invalidated for friend with ID {}", key);
-				});
+			// Etiquetas de la caché de respuestas del gateway que dependen de este usuario
+			List<String> gatewayCacheTags = new ArrayList<>();
+			gatewayCacheTags.add("user:" + userId);
+
+			// Las listas de amigos cacheadas ('friendsDto:') ya no se borran aquí: BookFriendship consume el evento
+			// de UserProfileEvents y las corrige en el sitio, sin dejar frías las cachés de todos los amigos.
+			// Las respuestas del gateway sí: los amigos salen del índice de BookFriendship ('friends:'); si no está
+			// cargado, esas respuestas caducan solas
+			Set<Object> friendIds = redisTemplate.opsForSet().members(FRIEND_INDEX_PREFIX + userId);
+			if (friendIds != null) {
+				friendIds.stream()
+						.filter(friendId -> !FRIEND_INDEX_LOADED.equals(friendId))
+						.forEach(friendId -> gatewayCacheTags.add("user:" + friendId));
 			}
 
-			// Opcionalmente, limpia el conjunto 'friendsOf' para este usuario
-			redisTemplate.delete(userCacheKeysSet);
-			log.info("Cleared 'friendsOf' set for user with ID {}", userId);
-
-			return ResponseEntity.ok(updatedUser);
+			return ResponseEntity.ok()
+					.header(GATEWAY_CACHE_INVALIDATE_HEADER, String.join(",", gatewayCacheTags))
+					.body(updatedUser);
 		} catch (UserNotFoundException e) {
 			log.error("User not found for ID {}: {}", userId, e.getMessage());
 			return ResponseEntity.notFound().build();
@@ -197,10 +257,13 @@ public class UserController {
 			String fileUrl = String.format("https://%s.blob.core.windows.net/%s/book/%s", accountName, fileSystemName, filename);
 			user.setPhotoUrl(fileUrl);
 			userService.updateUser(userId, user);
+			userSummaryCache.evict(userId);
 
 			Map<String, String> response = new HashMap<>();
 			response.put("photoUrl", fileUrl);
-			return ResponseEntity.ok(response);
+			return ResponseEntity.ok()
+					.header(GATEWAY_CACHE_INVALIDATE_HEADER, "user:" + userId)
+					.body(response);
 		} catch (IOException e) {
 			log.error("Error uploading photo for user ID {}: {}", userId, e.getMessage());
 			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -1,19 +1,29 @@
 package com.example.book;
 
+import com.example.book.Model.CustomUserDetails;
+import com.example.book.Util.GatewayIdentitySignature;
 import com.example.book.Util.JwtTokenUtil;
+import com.example.book.Util.VerifiedToken;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
@@ -24,8 +34,24 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    @Autowired
+    private UserAuthorityCache userAuthorityCache;
+
+    // Construye el usuario autenticado a partir de los claims firmados en lugar de consultar MySQL
+    @Value("${jwt.stateless-auth:true}")
+    private boolean statelessAuth;
+
+    // Secreto compartido con BookGateway; si está vacío no se confía en las cabeceras X-User-*
+    @Value("${gateway.identity.secret:}")
+    private String gatewayIdentitySecret;
+
+    // Antigüedad máxima de la firma de las cabeceras de identidad (desfase de reloj incluido)
+    @Value("${gateway.identity.max-skew:PT1M}")
+    private Duration gatewayIdentityMaxSkew;
+
     public JwtAuthenticationFilter(JwtUserDetailsService userDetailsService, JwtTokenUtil jwtTokenUtil) {
         this.userDetailsService = userDetailsService;
+        this.jwtTokenUtil = jwtTokenUtil;
     }
 
     @Override
@@ -33,15 +59,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String header = request.getHeader("Authorization");
         String jwtToken = null;
 
-        if (header != null && header.startsWith("Bearer ")) {
+        if (isFromGateway(request) && SecurityContextHolder.getContext().getAuthentication() == null) {
+            // El gateway ya verificó el token: no volvemos a comprobar la firma
+            CustomUserDetails userDetails = userDetailsFromGateway(request);
+            UsernamePasswordAuthenticationToken authentication =
+                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        } else if (header != null && header.startsWith("Bearer ")) {
             jwtToken = header.substring(7);
-            String userId = jwtTokenUtil.getUserIdFromToken(jwtToken);
+            VerifiedToken verifiedToken = verify(jwtToken);
 
-            if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                JwtUserDetailsService customUserDetailsService = (JwtUserDetailsService) this.userDetailsService;
-                UserDetails userDetails = customUserDetailsService.loadUserById(userId);
+            if (verifiedToken != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                request.setAttribute(VerifiedToken.REQUEST_ATTRIBUTE, verifiedToken);
+                CustomUserDetails userDetails = resolveUserDetails(verifiedToken);
 
-                if (jwtTokenUtil.validateToken(jwtToken, userDetails)) {
+                if (verifiedToken.getUserId().equals(userDetails.getUserId())) {
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -52,4 +85,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         chain.doFilter(request, response);
     }
+
+    private boolean isFromGateway(HttpServletRequest request) {
+        return GatewayIdentitySignature.verify(gatewayIdentitySecret, request.getHeader("X-Gateway-Auth"),
+                request.getHeader("X-User-Id"), request.getHeader("X-Username"), request.getHeader("X-User-Roles"),
+                Instant.now().getEpochSecond(), gatewayIdentityMaxSkew.toSeconds());
+    }
+
+    private CustomUserDetails userDetailsFromGateway(HttpServletRequest request) {
+        String userId = request.getHeader("X-User-Id");
+        String username = request.getHeader("X-Username");
+        String roles = request.getHeader("X-User-Roles");
+        if (statelessAuth && username != null && roles != null) {
+            List<GrantedAuthority> authorities = Arrays.stream(roles.split(","))
+                    .filter(role -> !role.isBlank())
+                    .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                    .toList();
+            return new CustomUserDetails(username, "", authorities, userId);
+        }
+        return userAuthorityCache.get(userId, id -> (CustomUserDetails) userDetailsService.loadUserById(id));
+    }
+
+    private CustomUserDetails resolveUserDetails(VerifiedToken verifiedToken) {
+        if (statelessAuth && verifiedToken.getRoles() != null && verifiedToken.getUsername() != null) {
+            List<GrantedAuthority> authorities = verifiedToken.getRoles().stream()
+                    .<GrantedAuthority>map(SimpleGrantedAuthority::new)
+                    .toList();
+            return new CustomUserDetails(verifiedToken.getUsername(), "", authorities, verifiedToken.getUserId());
+        }
+
+        // Tokens emitidos antes de incluir los roles en los claims
+        return userAuthorityCache.get(verifiedToken.getUserId(),
+                userId -> (CustomUserDetails) userDetailsService.loadUserById(userId));
+    }
+
+    private VerifiedToken verify(String jwtToken) {
+        try {
+            return jwtTokenUtil.verify(jwtToken);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Rejected JWT: " + e.getMessage());
+            return null;
+        }
+    }
 }
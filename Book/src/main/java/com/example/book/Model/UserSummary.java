@@ -0,0 +1,15 @@
+package com.example.book.Model;
+
+/**
+ * Proyección de solo las columnas públicas de un usuario, sin roles ni contraseña.
+ */
+public interface UserSummary {
+
+	String getId();
+
+	String getUsername();
+
+	String getPhotoUrl();
+
+	String getEmail();
+}
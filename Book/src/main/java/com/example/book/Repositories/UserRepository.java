@@ -1,8 +1,12 @@
 package com.example.book.Repositories;
 
 import com.example.book.Model.User;
+import com.example.book.Model.UserSummary;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -13,5 +17,9 @@ public interface UserRepository extends JpaRepository<User, String> {
     Optional<User> findByEmail(String email);
 
 	List<User> findByUsernameContaining(String username);
+
+	@Query("select u.id as id, u.username as username, u.photoUrl as photoUrl, u.email as email "
+			+ "from User u where u.id in :ids")
+	List<UserSummary> findSummariesByIdIn(@Param("ids") Collection<String> ids);
 }
 
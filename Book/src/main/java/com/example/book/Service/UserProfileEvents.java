@@ -0,0 +1,54 @@
+package com.example.book.Service;
+
+import com.example.book.Model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends the public profile fields of a user to the {@value #STREAM} Redis Stream whenever they change. Services
+ * that keep copies of them (BookFriendship stores usernames and photos on friendships and in cached friend lists)
+ * read the stream with a consumer group, so events survive consumer restarts and are delivered at least once.
+ */
+@Component
+public class UserProfileEvents {
+
+    public static final String STREAM = "user-profile-events";
+
+    private static final Logger log = LoggerFactory.getLogger(UserProfileEvents.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    // Recorte aproximado (MAXLEN ~): los consumidores van muy por delante de este tamaño
+    @Value("${users.profile-events.max-length:100000}")
+    private long maxLength;
+
+    public UserProfileEvents(StringRedisTemplate stringRedisTemplate) {
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    public void profileChanged(User user) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("id", user.getId());
+        fields.put("username", user.getUsername());
+        if (user.getPhotoUrl() != null) {
+            fields.put("photoUrl", user.getPhotoUrl());
+        }
+        MapRecord<String, String, String> event = StreamRecords.newRecord().in(STREAM).ofMap(fields);
+        try {
+            stringRedisTemplate.opsForStream().add(event);
+            stringRedisTemplate.opsForStream().trim(STREAM, maxLength, true);
+        } catch (RuntimeException e) {
+            // BookFriendship vuelve a copiar periódicamente los perfiles desactualizados (en Mongo y en sus listas
+            // cacheadas); perder un evento solo retrasa la actualización hasta ese barrido
+            log.warn("Could not publish profile change for user {}: {}", user.getId(), e.getMessage());
+        }
+    }
+}
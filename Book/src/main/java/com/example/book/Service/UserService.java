@@ -1,10 +1,12 @@
 package com.example.book.Service;
 
 import com.example.book.Controller.UserController;
+import com.example.book.UserAuthorityCache;
 import com.example.book.Model.CustomUserDetails;
 import com.example.book.Model.LoginResponse;
 import com.example.book.Model.Role;
 import com.example.book.Model.User;
+import com.example.book.Model.UserSummary;
 import com.example.book.Repositories.RoleRepository;
 import com.example.book.Repositories.UserRepository;
 import com.example.book.Util.JwtTokenUtil;
@@ -26,17 +28,21 @@ public class UserService implements UserDetailsService {
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtTokenUtil jwtTokenUtil;
+    private final UserAuthorityCache userAuthorityCache;
+    private final UserProfileEvents userProfileEvents;
 
     private static final Pattern EMAIL_PATTERN = Pattern.compile(
             "^[a-zA-Z0-9_+&*-]+(?:\\.[a-zA-Z0-9_+&*-]+)*@(?:[a-zA-Z0-9-]+\\.)+[a-zA-Z]{2,7}$"
     );
 
     @Autowired
-    public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder, JwtTokenUtil jwtTokenUtil) {
+    public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder passwordEncoder, JwtTokenUtil jwtTokenUtil, UserAuthorityCache userAuthorityCache, UserProfileEvents userProfileEvents) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenUtil = jwtTokenUtil;
+        this.userAuthorityCache = userAuthorityCache;
+        this.userProfileEvents = userProfileEvents;
     }
 
     public User register(User newUser) {
@@ -112,10 +118,17 @@ public class UserService implements UserDetailsService {
         user.setEmail(userDetails.getEmail());
 	    user.setPhotoUrl(userDetails.getPhotoUrl());
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userAuthorityCache.invalidate(saved.getId());
+        userProfileEvents.profileChanged(saved);
+        return saved;
     }
 
 
+	public List<UserSummary> findUserSummaries(Collection<String> userIds) {
+		return userRepository.findSummariesByIdIn(userIds);
+	}
+
 	public List<User> searchUsersByUsername(String username, String currentUser) {
 		List<User> users = userRepository.findByUsernameContaining(username);
 		if (users.isEmpty()) {
@@ -145,10 +158,12 @@ public class UserService implements UserDetailsService {
 
 		user.setPassword(passwordEncoder.encode(newPassword));
 		userRepository.save(user);
+		userAuthorityCache.invalidate(userId);
 	}
 
 
 	public void deleteUser(String userId) {
 		userRepository.deleteById(userId);
+		userAuthorityCache.invalidate(userId);
 	}
 }
@@ -0,0 +1,41 @@
+package com.example.book;
+
+import com.example.book.Model.CustomUserDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Small local cache of {@link CustomUserDetails} for tokens that cannot be authenticated from their claims alone.
+ * Entries are evicted whenever a user's credentials, roles or username change.
+ */
+@Component
+public class UserAuthorityCache {
+
+    private final Cache<String, CustomUserDetails> cache;
+
+    public UserAuthorityCache(@Value("${jwt.authority-cache.max-size:5000}") long maxSize,
+                              @Value("${jwt.authority-cache.ttl:PT10M}") Duration ttl,
+                              MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userAuthorities");
+    }
+
+    public CustomUserDetails get(String userId, Function<String, CustomUserDetails> loader) {
+        return cache.get(userId, loader);
+    }
+
+    public void invalidate(String userId) {
+        cache.invalidate(userId);
+    }
+}
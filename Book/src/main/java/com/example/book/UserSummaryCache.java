@@ -0,0 +1,180 @@
+package com.example.book;
+
+import com.example.book.Util.CacheAside;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Two-tier cache of the {@code user:{id}} summaries (username, PhotoUrl, Email): a small Caffeine cache in front of
+ * Redis. Caffeine's W-TinyLFU admission keeps the hot users in memory and the short local TTL bounds staleness if an
+ * invalidation is missed.
+ * <p>
+ * Whoever changes or deletes a summary publishes its id on {@value #INVALIDATION_CHANNEL}; every Book and
+ * BookFriendship node drops its local copy when the message arrives. Values read from Redis are only kept locally if
+ * no invalidation happened while they were being read, so a stale read cannot outlive the eviction it raced with.
+ */
+@Component
+public class UserSummaryCache implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "user-summary-invalidated";
+
+    private static final String KEY_PREFIX = "user:";
+    private static final TypeReference<Map<String, String>> SUMMARY = new TypeReference<>() {
+    };
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheAside cacheAside;
+    private final Cache<String, Map<String, String>> near;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public UserSummaryCache(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate,
+                            CacheAside cacheAside,
+                            @Value("${users.near-cache.max-size:10000}") long maxSize,
+                            @Value("${users.near-cache.ttl:PT30S}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.cacheAside = cacheAside;
+        this.near = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, near, "userSummaries");
+        // Mismo nombre y etiquetas que las métricas de Caffeine, para calcular la tasa de aciertos de cada nivel igual
+        this.redisHits = Counter.builder("cache.gets").tag("cache", "userSummaries.redis").tag("result", "hit")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("cache.gets").tag("cache", "userSummaries.redis").tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the summary from the local tier, or from Redis through {@link CacheAside} (jittered TTL, early refresh
+     * and a single loader per key across nodes). {@code loader} returns {@code null} for unknown users, which are not
+     * cached.
+     */
+    public Map<String, String> get(String userId, Supplier<Map<String, String>> loader) {
+        Map<String, String> userInfo = near.getIfPresent(userId);
+        if (userInfo != null) {
+            return userInfo;
+        }
+        long observed = generation.get();
+        AtomicBoolean loaded = new AtomicBoolean();
+        Thread caller = Thread.currentThread();
+        Map<String, String> summary = cacheAside.get(KEY_PREFIX + userId, SUMMARY, () -> {
+            // An early refresh runs the loader on another thread while this read is served from Redis
+            if (Thread.currentThread() == caller) {
+                loaded.set(true);
+            }
+            return loader.get();
+        }, Objects::nonNull);
+        (loaded.get() ? redisMisses : redisHits).increment();
+        if (summary != null) {
+            keepLocally(userId, summary, observed);
+        }
+        return summary;
+    }
+
+    /**
+     * Returns the summaries found in either tier; ids missing from both are absent from the map. Ids not held locally
+     * are read with a single MGET.
+     */
+    public Map<String, Map<String, String>> getAll(Collection<String> userIds) {
+        Map<String, Map<String, String>> found = new HashMap<>(near.getAllPresent(userIds));
+        List<String> remote = userIds.stream().filter(id -> !found.containsKey(id)).distinct().collect(Collectors.toList());
+        if (remote.isEmpty()) {
+            return found;
+        }
+
+        long observed = generation.get();
+        List<Object> cached = redisTemplate.opsForValue()
+                .multiGet(remote.stream().map(id -> KEY_PREFIX + id).collect(Collectors.toList()));
+        for (int i = 0; i < remote.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Map<String, String> userInfo = cached == null ? null : (Map<String, String>) cached.get(i);
+            if (userInfo == null) {
+                redisMisses.increment();
+                continue;
+            }
+            redisHits.increment();
+            found.put(remote.get(i), userInfo);
+            keepLocally(remote.get(i), userInfo, observed);
+        }
+        return found;
+    }
+
+    public void putAll(Map<String, Map<String, String>> userInfos) {
+        if (userInfos.isEmpty()) {
+            return;
+        }
+        long observed = generation.get();
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                ValueOperations<String, Object> values = ((RedisOperations<String, Object>) operations).opsForValue();
+                userInfos.forEach((id, userInfo) -> values.set(KEY_PREFIX + id, userInfo, cacheAside.ttl()));
+                return null;
+            }
+        });
+        userInfos.forEach((id, userInfo) -> keepLocally(id, userInfo, observed));
+    }
+
+    /**
+     * Deletes the summary from Redis and from the local tier of every node.
+     */
+    public void evict(String userId) {
+        evictLocally(userId);
+        cacheAside.invalidate(List.of(KEY_PREFIX + userId));
+        stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evictLocally(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void evictLocally(String userId) {
+        generation.incrementAndGet();
+        near.invalidate(userId);
+    }
+
+    private void keepLocally(String userId, Map<String, String> userInfo, long observed) {
+        if (generation.get() != observed) {
+            return;
+        }
+        near.put(userId, new HashMap<>(userInfo));
+        // Una invalidación que llegue entre la comprobación y el put no debe quedar sin efecto
+        if (generation.get() != observed) {
+            near.invalidate(userId);
+        }
+    }
+}
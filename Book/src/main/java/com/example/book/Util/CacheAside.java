@@ -0,0 +1,288 @@
+package com.example.book.Util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache-aside helper for Redis entries (same behaviour as BookFriendship's), protecting against stampedes:
+ * <ul>
+ *   <li>TTLs are jittered ({@code cache.ttl} ± {@code cache.ttl-jitter}) so entries written together do not expire
+ *   together.</li>
+ *   <li>Probabilistic early refresh (XFetch): the time it took to compute each value is stored next to it
+ *   ({@code recompute:<key>}) and reads recompute early with a probability that grows as expiry approaches and with
+ *   the cost of the computation. The refresh runs on {@code cacheRefreshExecutor}; the read that triggers it returns
+ *   the cached value without waiting.</li>
+ *   <li>One computation per key across instances: whoever recomputes first takes a short Redis lease
+ *   ({@code lease:<key>}, SET NX PX). Others keep serving the current value, or, on a miss, wait up to
+ *   {@code cache.lease-wait} for it to appear before computing it themselves.</li>
+ * </ul>
+ * Every key also has a generation ({@code gen:<key>}), raised by {@link #invalidate} and by anyone who changes the
+ * value some other way. A computation reads the generation before it starts and only writes if it is unchanged, so a
+ * value computed from data older than an invalidation never overwrites it.
+ * <p>
+ * This is a copy of BookFriendship's {@code org.example.bookfriendship.util.CacheAside}: the services are separate
+ * Maven builds with no shared module to depend on. They share Redis keys ({@code user:<id>} is filled here and patched
+ * in place by BookFriendship's {@code FriendProfileSync}, which raises {@code gen:user:<id>}), so the {@code lease:},
+ * {@code recompute:} and {@code gen:} prefixes and the scripts must change in both at once.
+ */
+@Component
+public class CacheAside {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheAside.class);
+    private static final String LEASE_PREFIX = "lease:";
+    private static final String RECOMPUTE_PREFIX = "recompute:";
+    private static final String GENERATION_PREFIX = "gen:";
+    private static final long POLL_MILLIS = 25;
+
+    // Only release the lease if it is still ours (it may have expired and been taken by another instance)
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    // KEYS: value, recompute:<key>, gen:<key>; ARGV: generation read, value, compute ms, TTL ms
+    private static final RedisScript<Long> SET_IF_GENERATION = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[1] then return 0 end\n"
+                    + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[4])\n"
+                    + "redis.call('SET', KEYS[2], ARGV[3], 'PX', ARGV[4])\n"
+                    + "return 1", Long.class);
+
+    // KEYS: n keys, their n recompute:<key> and their n gen:<key>; ARGV: generation TTL ms
+    private static final RedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "local n = #KEYS / 3\n"
+                    + "for i = 1, n do\n"
+                    + "  redis.call('DEL', KEYS[i], KEYS[n + i])\n"
+                    + "  redis.call('INCR', KEYS[2 * n + i])\n"
+                    + "  redis.call('PEXPIRE', KEYS[2 * n + i], ARGV[1])\n"
+                    + "end\n"
+                    + "return n", Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor refreshExecutor;
+    private final Counter recomputedOnMiss;
+    private final Counter refreshedEarly;
+    private final Counter refreshesRejected;
+    private final Counter waitsFilled;
+    private final Counter waitsTimedOut;
+
+    @Value("${cache.ttl:PT1H}")
+    private Duration ttl;
+
+    @Value("${cache.ttl-jitter:0.1}")
+    private double ttlJitter;
+
+    // XFetch beta: 1 is the usual value; larger values refresh earlier
+    @Value("${cache.xfetch-beta:1.0}")
+    private double xfetchBeta;
+
+    @Value("${cache.lease:PT5S}")
+    private Duration lease;
+
+    @Value("${cache.lease-wait:PT200MS}")
+    private Duration leaseWait;
+
+    public CacheAside(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate,
+                      ObjectMapper objectMapper, @Qualifier("cacheRefreshExecutor") TaskExecutor refreshExecutor,
+                      MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.refreshExecutor = refreshExecutor;
+        this.recomputedOnMiss = Counter.builder("cache.aside.recomputes").tag("trigger", "miss")
+                .register(meterRegistry);
+        this.refreshedEarly = Counter.builder("cache.aside.recomputes").tag("trigger", "early")
+                .register(meterRegistry);
+        this.refreshesRejected = Counter.builder("cache.aside.early_refreshes_rejected")
+                .description("Early refreshes dropped because the cacheRefreshExecutor queue was full")
+                .register(meterRegistry);
+        this.waitsFilled = Counter.builder("cache.aside.lease_waits").tag("result", "filled")
+                .register(meterRegistry);
+        this.waitsTimedOut = Counter.builder("cache.aside.lease_waits").tag("result", "timeout")
+                .register(meterRegistry);
+    }
+
+    public <T> T get(String key, TypeReference<T> type, Supplier<T> loader) {
+        return get(key, type, loader, value -> true);
+    }
+
+    /**
+     * Returns the value of {@code key} or computes it with {@code loader}; it is only stored if {@code cacheable}
+     * accepts it.
+     */
+    public <T> T get(String key, TypeReference<T> type, Supplier<T> loader, Predicate<T> cacheable) {
+        List<Object> read = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.opsForValue().get(key);
+                ops.getExpire(key, TimeUnit.MILLISECONDS);
+                ops.opsForValue().get(RECOMPUTE_PREFIX + key);
+                ops.opsForValue().get(GENERATION_PREFIX + key);
+                return null;
+            }
+        });
+        Object cached = read.get(0);
+        String generation = read.get(3) == null ? "0" : read.get(3).toString();
+
+        if (cached != null) {
+            if (read.get(1) instanceof Long remaining && read.get(2) instanceof Number recomputeMillis
+                    && shouldRefreshEarly(recomputeMillis.longValue(), remaining)) {
+                String token = tryLease(key);
+                if (token != null) {
+                    refreshInBackground(key, generation, token, loader, cacheable);
+                }
+            }
+            return objectMapper.convertValue(cached, type);
+        }
+
+        String token = tryLease(key);
+        if (token == null) {
+            Object filled = awaitValue(key);
+            if (filled != null) {
+                waitsFilled.increment();
+                return objectMapper.convertValue(filled, type);
+            }
+            waitsTimedOut.increment();
+        }
+        recomputedOnMiss.increment();
+        try {
+            return recompute(key, generation, loader, cacheable);
+        } finally {
+            if (token != null) {
+                releaseLease(key, token);
+            }
+        }
+    }
+
+    /**
+     * Deletes {@code keys} and their compute times and raises their generations, so a computation already running on
+     * the previous data does not write them back.
+     */
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> scriptKeys = new ArrayList<>(keys);
+        keys.forEach(key -> scriptKeys.add(RECOMPUTE_PREFIX + key));
+        keys.forEach(key -> scriptKeys.add(GENERATION_PREFIX + key));
+        stringRedisTemplate.execute(INVALIDATE, scriptKeys, String.valueOf(ttl.multipliedBy(2).toMillis()));
+    }
+
+    /**
+     * Jittered TTL for entries written outside this helper.
+     */
+    public Duration ttl() {
+        double factor = 1 + ttlJitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Duration.ofMillis(Math.max(1, (long) (ttl.toMillis() * factor)));
+    }
+
+    // With a full queue the refresh is skipped: a later read tries again, or the value is recomputed on expiry
+    private <T> void refreshInBackground(String key, String generation, String token, Supplier<T> loader,
+                                         Predicate<T> cacheable) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    recompute(key, generation, loader, cacheable);
+                } catch (RuntimeException e) {
+                    log.warn("Background refresh of {} failed: {}", key, e.getMessage());
+                } finally {
+                    releaseLease(key, token);
+                }
+            });
+            refreshedEarly.increment();
+        } catch (TaskRejectedException e) {
+            refreshesRejected.increment();
+            releaseLease(key, token);
+        }
+    }
+
+    // Only writes if the generation is still the one read before calling loader
+    private <T> T recompute(String key, String generation, Supplier<T> loader, Predicate<T> cacheable) {
+        long start = System.nanoTime();
+        T value = loader.get();
+        long recomputeMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (value == null || !cacheable.test(value)) {
+            return value;
+        }
+        // The generation is raised by invalidate() and by BookFriendship's in-place profile patch
+        stringRedisTemplate.execute(SET_IF_GENERATION,
+                List.of(key, RECOMPUTE_PREFIX + key, GENERATION_PREFIX + key),
+                generation, serialize(value), String.valueOf(recomputeMillis), String.valueOf(ttl().toMillis()));
+        return value;
+    }
+
+    // Same format as redisTemplate's values
+    @SuppressWarnings("unchecked")
+    private String serialize(Object value) {
+        byte[] bytes = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // XFetch: recompute if now - delta * beta * ln(rand) >= expiry
+    private boolean shouldRefreshEarly(long recomputeMillis, long remainingMillis) {
+        if (remainingMillis <= 0) {
+            return false;
+        }
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        return -recomputeMillis * xfetchBeta * Math.log(random) >= remainingMillis;
+    }
+
+    private String tryLease(String key) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(LEASE_PREFIX + key, token, lease);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    private void releaseLease(String key, String token) {
+        stringRedisTemplate.execute(RELEASE_LEASE, List.of(LEASE_PREFIX + key), token);
+    }
+
+    private Object awaitValue(String key) {
+        long deadline = System.nanoTime() + leaseWait.toNanos();
+        while (System.nanoTime() < deadline && pause()) {
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package com.example.book.Util;
 
 import com.example.book.Model.CustomUserDetails;
+import com.example.book.Model.Role;
 import com.example.book.Model.User;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
@@ -14,6 +18,7 @@ import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.List;
 
 @Component
 public class JwtTokenUtil {
@@ -23,12 +28,34 @@ public class JwtTokenUtil {
 
     private Key key;
 
+    private JwtParser parser;
+
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
     private long validityInMilliseconds = 3600000; // 1 hour in milliseconds
 
     @PostConstruct
     public void init() {
         byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
         this.key = new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+    }
+
+    /**
+     * Verifies signature and expiration of {@code token} and returns its claims. Tokens seen before are
+     * answered from {@link VerifiedTokenCache} without parsing them again.
+     *
+     * @throws JwtException if the token is malformed, tampered with or expired
+     */
+    public VerifiedToken verify(String token) throws JwtException {
+        return verifiedTokenCache.get(token, this::parse);
+    }
+
+    private VerifiedToken parse(String token) {
+        return VerifiedToken.fromClaims(parser.parseClaimsJws(token).getBody());
     }
 
     public String createToken(User user) {
@@ -38,6 +65,7 @@ public class JwtTokenUtil {
         claims.put("email", user.getEmail());
         claims.put("createdAt", user.getCreatedAt());
         claims.put("photoUrl", user.getPhotoUrl());
+        claims.put("roles", roleNames(user));
 
         Date now = new Date();
         Date validity = new Date(now.getTime() + validityInMilliseconds);
@@ -50,32 +78,26 @@ public class JwtTokenUtil {
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    private static List<String> roleNames(User user) {
+        if (user.getRoles() == null) {
+            return List.of();
+        }
+        return user.getRoles().stream()
+                .map(Role::getName)
+                .toList();
+    }
 
-        return claims.get("username", String.class);
+    public String getUsernameFromToken(String token) {
+        return verify(token).getUsername();
     }
 
     public Date getCreationDateFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.get("createdAt", Date.class); // Asume que el claim se llama "createdAt"
+        return verify(token).getCreatedAt();
     }
 
     public boolean validateToken(String token, UserDetails userDetails) {
         try {
-            final String userIdFromToken = getUserIdFromToken(token);
-            String userIdFromUserDetails = ((CustomUserDetails) userDetails).getUserId();
-
-            return (userIdFromToken.equals(userIdFromUserDetails) && !isTokenExpired(token));
+            return verify(token).getUserId().equals(((CustomUserDetails) userDetails).getUserId());
         } catch (Exception e) {
             return false;
         }
@@ -83,37 +105,16 @@ public class JwtTokenUtil {
 
     public boolean validateRefreshToken(String token, UserDetails userDetails) {
         try {
-            final String userIdFromToken = getUserIdFromToken(token);
-            String userIdFromUserDetails = ((CustomUserDetails) userDetails).getUserId();
-
-            // Comprueba si el ID del usuario del token coincide con el ID del usuario de UserDetails y si el token no ha expirado
-            return (userIdFromToken.equals(userIdFromUserDetails) && !isTokenExpired(token));
+            // Comprueba si el ID del usuario del token coincide con el ID del usuario de UserDetails; la expiración ya la valida verify()
+            return verify(token).getUserId().equals(((CustomUserDetails) userDetails).getUserId());
         } catch (Exception e) {
             System.out.println("Error al validar refresh token: " + e.getMessage());
             return false;
         }
     }
 
-
-
-
-    private boolean isTokenExpired(String token) {
-        final Date expiration = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
-        return expiration.before(new Date());
-    }
-
     public String getUserIdFromToken(String jwtToken) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(jwtToken)
-                .getBody()
-                .getSubject();
+        return verify(jwtToken).getUserId();
     }
 
     public String createRefreshToken(User user) {
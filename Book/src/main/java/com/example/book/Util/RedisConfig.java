@@ -1,14 +1,21 @@
 package com.example.book.Util;
 
+import com.example.book.UserSummaryCache;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class RedisConfig {
@@ -22,6 +29,12 @@ public class RedisConfig {
 	@Value("${spring.data.redis.password}")
 	private String redisPassword;
 
+	@Value("${cache.refresh.threads:2}")
+	private int cacheRefreshThreads;
+
+	@Value("${cache.refresh.queue-capacity:100}")
+	private int cacheRefreshQueueCapacity;
+
 	@Bean
 	public LettuceConnectionFactory redisConnectionFactory() {
 		RedisStandaloneConfiguration redisConfig = new RedisStandaloneConfiguration();
@@ -44,4 +57,43 @@ public class RedisConfig {
 		return template;
 	}
 
+	// Invalida la caché local de resúmenes de usuario cuando otro nodo (de Book o BookFriendship) los cambia
+	@Bean
+	public RedisMessageListenerContainer userSummaryInvalidationContainer(LettuceConnectionFactory redisConnectionFactory,
+			UserSummaryCache userSummaryCache) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener(userSummaryCache, new ChannelTopic(UserSummaryCache.INVALIDATION_CHANNEL));
+		return container;
+	}
+
+	// Refrescos anticipados de CacheAside, fuera del hilo de la petición que los dispara
+	@Bean
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+		ThreadPoolTaskExecutor executor = cacheRefreshPool();
+		executor.setThreadNamePrefix("cache-refresh-");
+		executor.initialize();
+		return executor;
+	}
+
+	// Con spring.threads.virtual.enabled, el mismo pool con hilos virtuales: se conservan el límite y la cola, y los
+	// refrescos que no caben se siguen descartando en lugar de esperar
+	@Bean(name = "cacheRefreshExecutor")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public ThreadPoolTaskExecutor virtualCacheRefreshExecutor() {
+		ThreadPoolTaskExecutor executor = cacheRefreshPool();
+		executor.setThreadFactory(new VirtualThreadTaskExecutor("cache-refresh-").getVirtualThreadFactory());
+		executor.initialize();
+		return executor;
+	}
+
+	private ThreadPoolTaskExecutor cacheRefreshPool() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(cacheRefreshThreads);
+		executor.setMaxPoolSize(cacheRefreshThreads);
+		executor.setQueueCapacity(cacheRefreshQueueCapacity);
+		return executor;
+	}
+
 }
\ No newline at end of file
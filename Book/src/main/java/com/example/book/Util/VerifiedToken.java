@@ -0,0 +1,95 @@
+package com.example.book.Util;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Immutable view of a JWT whose signature and expiration have already been checked.
+ * Built once per distinct token and shared between requests through {@link VerifiedTokenCache}.
+ */
+public final class VerifiedToken {
+
+    public static final String REQUEST_ATTRIBUTE = VerifiedToken.class.getName();
+
+    private final String userId;
+    private final String username;
+    private final String email;
+    private final String photoUrl;
+    private final Date createdAt;
+    private final Date issuedAt;
+    private final Date expiration;
+    private final List<String> roles;
+
+    private VerifiedToken(String userId, String username, String email, String photoUrl,
+                          Date createdAt, Date issuedAt, Date expiration, List<String> roles) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.photoUrl = photoUrl;
+        this.createdAt = createdAt;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+        this.roles = roles;
+    }
+
+    static VerifiedToken fromClaims(Claims claims) {
+        return new VerifiedToken(
+                claims.getSubject(),
+                claims.get("username", String.class),
+                claims.get("email", String.class),
+                claims.get("photoUrl", String.class),
+                claims.get("createdAt", Date.class),
+                claims.getIssuedAt(),
+                claims.getExpiration(),
+                roles(claims.get("roles")));
+    }
+
+    private static List<String> roles(Object claim) {
+        if (!(claim instanceof Collection<?> values)) {
+            return null;
+        }
+        return values.stream().map(String::valueOf).toList();
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt == null ? null : new Date(createdAt.getTime());
+    }
+
+    public Date getIssuedAt() {
+        return issuedAt == null ? null : new Date(issuedAt.getTime());
+    }
+
+    /**
+     * Role names embedded at issue time, or {@code null} for tokens issued before roles were added to the claims.
+     */
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public long getExpirationMillis() {
+        return expiration == null ? Long.MAX_VALUE : expiration.getTime();
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return getExpirationMillis() <= nowMillis;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.book.Util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GatewayIdentitySignatureTest {
+
+    private static final String SECRET = "shared-secret";
+    private static final long NOW = 1_700_000_000L;
+
+    // Mismo formato que IdentitySignature.sign en BookGateway
+    private static String sign(String userId, String username, String roles, long epochSeconds) {
+        return "v1." + epochSeconds + "." + GatewayIdentitySignature.mac(SECRET,
+                String.join("\n", userId, username, roles, Long.toString(epochSeconds)));
+    }
+
+    @Test
+    void acceptsSignatureForSameIdentity() {
+        String signature = sign("u1", "ana", "ROLE_USER", NOW);
+        assertTrue(GatewayIdentitySignature.verify(SECRET, signature, "u1", "ana", "ROLE_USER", NOW + 5, 60));
+    }
+
+    @Test
+    void rejectsTamperedHeaders() {
+        String signature = sign("u1", "ana", "ROLE_USER", NOW);
+        assertFalse(GatewayIdentitySignature.verify(SECRET, signature, "u2", "ana", "ROLE_USER", NOW, 60));
+        assertFalse(GatewayIdentitySignature.verify(SECRET, signature, "u1", "ana", "ROLE_ADMIN", NOW, 60));
+    }
+
+    @Test
+    void rejectsExpiredOrMalformedSignatures() {
+        String signature = sign("u1", "ana", "ROLE_USER", NOW);
+        assertFalse(GatewayIdentitySignature.verify(SECRET, signature, "u1", "ana", "ROLE_USER", NOW + 61, 60));
+        assertFalse(GatewayIdentitySignature.verify(SECRET, SECRET, "u1", "ana", "ROLE_USER", NOW, 60));
+        assertFalse(GatewayIdentitySignature.verify("", signature, "u1", "ana", "ROLE_USER", NOW, 60));
+    }
+}
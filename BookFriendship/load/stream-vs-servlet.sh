@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Compara GET /api/friendships/friends (servlet, lista entera en memoria) con GET /api/friendships/stream/friends
+# (NDJSON por bloques) a concurrencias crecientes: latencias y errores según hey, y hilos y RSS del proceso de
+# BookFriendship justo después de cada ronda.
+#
+# Requisitos: hey (https://github.com/rakyll/hey), una instancia de BookFriendship en marcha con Mongo, Redis y Book
+# accesibles, y un usuario con una lista de amigos grande (cuanto más grande, más se nota la diferencia de memoria).
+#
+# Uso:
+#   JWT=<token> PID=<pid de BookFriendship> ./load/stream-vs-servlet.sh
+#
+# Variables opcionales: BASE_URL (http://localhost:8082), LEVELS ("10 50 200 500"), DURATION (30s).
+set -euo pipefail
+
+: "${JWT:?JWT de un usuario con amigos}"
+: "${PID:?pid del proceso de BookFriendship}"
+BASE_URL="${BASE_URL:-http://localhost:8082}"
+LEVELS="${LEVELS:-10 50 200 500}"
+DURATION="${DURATION:-30s}"
+
+command -v hey >/dev/null || { echo "hey no está instalado" >&2; exit 1; }
+
+process_stats() {
+  # nlwp = hilos del proceso; rss en KiB
+  ps -o nlwp=,rss= -p "$PID" | awk '{ printf "threads=%s rss_mb=%d", $1, $2 / 1024 }'
+}
+
+run() {
+  local name="$1" path="$2" accept="$3" concurrency="$4"
+  local report
+  report=$(hey -z "$DURATION" -c "$concurrency" \
+    -H "Authorization: Bearer $JWT" -H "Accept: $accept" \
+    "$BASE_URL$path")
+  printf '%-8s c=%-4s %s | %s | %s | %s\n' "$name" "$concurrency" \
+    "$(grep 'Requests/sec' <<<"$report" | awk '{ printf "rps=%s", $2 }')" \
+    "$(grep -E '^ +(50|99)% in' <<<"$report" | awk '{ printf "p%s=%ss ", $1, $3 }')" \
+    "$(grep -E '^ +\[[0-9]+\]' <<<"$report" | awk '{ printf "%s%s ", $1, $2 }')" \
+    "$(process_stats)"
+}
+
+echo "antes: $(process_stats)"
+for concurrency in $LEVELS; do
+  run servlet /api/friendships/friends application/json "$concurrency"
+  run stream /api/friendships/stream/friends application/x-ndjson "$concurrency"
+done
@@ -0,0 +1,122 @@
+package org.example.bookfriendship;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Atiende {@code requests} peticiones simultáneas que pasan {@code ioMillis} bloqueadas (como una consulta a Mongo o
+ * una llamada a Book) con el modelo actual, un pool de 200 hilos de plataforma (el máximo por defecto de Tomcat), o
+ * con un hilo virtual por petición, como {@code spring.threads.virtual.enabled=true}. Además del tiempo por lote
+ * informa del pico de hilos del proceso ({@code peakThreads}), que es lo que cuesta memoria de pila en el modelo
+ * actual; con {@code -prof gc} se ve también lo asignado en el heap.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="ExecutionModelBenchmark -prof gc"
+ * </pre>
+ * El modo {@code virtual} necesita Java 21; con una JVM anterior esas combinaciones fallan y el resto se ejecuta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExecutionModelBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    @Param({"platform", "virtual"})
+    private String threading;
+
+    @Param({"200", "2000", "10000"})
+    private int requests;
+
+    @Param({"20"})
+    private int ioMillis;
+
+    private AsyncTaskExecutor executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("virtual".equals(threading)) {
+            SimpleAsyncTaskExecutor virtual = new SimpleAsyncTaskExecutor("request-");
+            try {
+                virtual.setVirtualThreads(true);
+            } catch (UnsupportedOperationException e) {
+                throw new IllegalStateException("Los hilos virtuales necesitan Java 21: " + e.getMessage(), e);
+            }
+            executor = virtual;
+        } else {
+            ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+            pool.setCorePoolSize(TOMCAT_MAX_THREADS);
+            pool.setMaxPoolSize(TOMCAT_MAX_THREADS);
+            pool.setThreadNamePrefix("request-");
+            pool.initialize();
+            executor = pool;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (executor instanceof ThreadPoolTaskExecutor pool) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public void serve(Threads threads) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(requests);
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                try {
+                    Thread.sleep(ioMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        threads.record();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Threads {
+
+        private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        // Solo cuenta hilos de plataforma: los virtuales no aparecen en ThreadMXBean
+        public long peakThreads;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            threadMXBean.resetPeakThreadCount();
+            peakThreads = 0;
+        }
+
+        void record() {
+            peakThreads = Math.max(peakThreads, threadMXBean.getPeakThreadCount());
+        }
+    }
+}
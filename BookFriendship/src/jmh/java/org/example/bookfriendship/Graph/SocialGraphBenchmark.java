@@ -0,0 +1,100 @@
+package org.example.bookfriendship.Graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consultas y escrituras de {@link SocialGraph} sobre grafos sintéticos de hasta millones de aristas. Los grados siguen
+ * una distribución sesgada (unos pocos usuarios con muchos amigos), que es lo que encarece las sugerencias a dos saltos.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="SocialGraphBenchmark -jvmArgs -Xmx4g"
+ * </pre>
+ * La carga completa se mide aparte con {@code SocialGraphBenchmark.load} en modo single-shot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SocialGraphBenchmark {
+
+    @Param({"1000000", "5000000"})
+    private int edges;
+
+    @Param({"100000"})
+    private int users;
+
+    private SocialGraph graph;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        graph = new SocialGraph();
+        graph.load(this::generate);
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public List<String> mutualFriends() {
+        return graph.mutualFriends(randomUser(), randomUser());
+    }
+
+    @Benchmark
+    public List<SocialGraph.Suggestion> suggestions() {
+        return graph.suggestions(randomUser(), 10);
+    }
+
+    @Benchmark
+    public int degree() {
+        return graph.degree(randomUser());
+    }
+
+    @Benchmark
+    public void addAndRemoveFriendship() {
+        String a = randomUser();
+        String b = randomUser();
+        graph.addFriendship(a, b);
+        graph.removeFriendship(a, b);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public SocialGraph load() {
+        SocialGraph fresh = new SocialGraph();
+        fresh.load(this::generate);
+        return fresh;
+    }
+
+    // Aristas con un extremo elegido con sesgo cuadrático hacia los primeros usuarios y el otro uniforme
+    private void generate(SocialGraph.EdgeConsumer consumer) {
+        SplittableRandom edgeRandom = new SplittableRandom(7);
+        for (int e = 0; e < edges; e++) {
+            double skewed = edgeRandom.nextDouble();
+            int a = (int) (skewed * skewed * users);
+            int b = edgeRandom.nextInt(users);
+            consumer.accept("user" + a, "user" + b);
+        }
+    }
+
+    private String randomUser() {
+        return "user" + random.nextInt(users);
+    }
+}
@@ -0,0 +1,157 @@
+package org.example.bookfriendship;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.example.bookfriendship.util.JwtTokenInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coste por llamada de un GET a Book con el {@link RestTemplate} de {@link RestTemplateConfig} (HttpClient 5 con pool
+ * y keep-alive) frente al anterior, sobre {@code SimpleClientHttpRequestFactory}. Book se sustituye por un servidor
+ * HTTP/1.1 mínimo en un puerto local que responde siempre el mismo resumen de usuario, así que lo que se mide es el
+ * cliente y sus conexiones, no Book. Al terminar cada prueba se imprime cuántas conexiones abrió el cliente.
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="OutboundClientBenchmark"
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="OutboundClientBenchmark -t 16"
+ * </pre>
+ * En local el coste de abrir una conexión es pequeño; contra Book con TLS y en otra máquina la diferencia crece.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutboundClientBenchmark {
+
+    private static final String SUMMARY = "{\"id\":\"42\",\"username\":\"user42\",\"photoUrl\":\"https://example.com/42.png\"}";
+    private static final byte[] RESPONSE = ("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: "
+            + SUMMARY.length() + "\r\n\r\n" + SUMMARY).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END_OF_HEADERS = "\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Param({"simple", "pooled"})
+    private String client;
+
+    private ServerSocket server;
+    private ExecutorService serverThreads;
+    private final AtomicInteger connections = new AtomicInteger();
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+    private String url;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        serverThreads = Executors.newCachedThreadPool();
+        serverThreads.execute(this::accept);
+        url = "http://127.0.0.1:" + server.getLocalPort() + "/users/42";
+
+        if ("pooled".equals(client)) {
+            // Los mismos valores por defecto que las propiedades outbound.http.*
+            RestTemplateConfig config = new RestTemplateConfig();
+            ReflectionTestUtils.setField(config, "jwtTokenInterceptor", new JwtTokenInterceptor());
+            ReflectionTestUtils.setField(config, "maxTotal", 100);
+            ReflectionTestUtils.setField(config, "maxPerRoute", 50);
+            ReflectionTestUtils.setField(config, "connectTimeout", Duration.ofSeconds(1));
+            ReflectionTestUtils.setField(config, "readTimeout", Duration.ofSeconds(3));
+            ReflectionTestUtils.setField(config, "leaseTimeout", Duration.ofSeconds(1));
+            ReflectionTestUtils.setField(config, "idleEviction", Duration.ofSeconds(30));
+            ReflectionTestUtils.setField(config, "timeToLive", Duration.ofMinutes(5));
+            connectionManager = config.outboundConnectionManager(new SimpleMeterRegistry());
+            httpClient = config.outboundHttpClient(connectionManager);
+            restTemplate = config.restTemplate(httpClient);
+        } else {
+            // Lo que construía RestTemplateConfig antes
+            restTemplate = new RestTemplate(new SimpleClientHttpRequestFactory());
+            restTemplate.getInterceptors().add(new JwtTokenInterceptor());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println("Conexiones abiertas por el cliente " + client + ": " + connections.get());
+        if (httpClient != null) {
+            httpClient.close();
+            connectionManager.close();
+        }
+        server.close();
+        serverThreads.shutdownNow();
+    }
+
+    @Benchmark
+    @SuppressWarnings("rawtypes")
+    public Map getUser() {
+        return restTemplate.getForObject(url, Map.class);
+    }
+
+    private void accept() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                connections.incrementAndGet();
+                serverThreads.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    // HTTP/1.1 con keep-alive: una respuesta fija por cada petición (GET sin cuerpo) hasta que el cliente cierra
+    private static void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            while (skipRequest(in)) {
+                out.write(RESPONSE);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // El cliente cerró la conexión
+        }
+    }
+
+    private static boolean skipRequest(InputStream in) throws IOException {
+        int matched = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            matched = b == END_OF_HEADERS[matched] ? matched + 1 : (b == '\r' ? 1 : 0);
+            if (matched == END_OF_HEADERS.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,95 @@
+package org.example.bookfriendship.Service;
+
+import org.example.bookfriendship.util.RedisConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de resolver los resúmenes {@code user:{id}} de N amigos contra un Redis real: un GET por amigo (como hacía
+ * {@code fetchUsernames}) frente a un solo MGET (lo que hace {@link UserSummaryCache#getAll}). Usa la misma
+ * serialización que {@link RedisConfig} y claves propias ({@code bench:user:*}), que se borran al terminar.
+ * <p>
+ * Necesita un Redis accesible; por defecto {@code localhost:6379}, o {@code -Dredis.host} y {@code -Dredis.port}:
+ * <pre>
+ * docker run --rm -p 6379:6379 redis:7
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.args="UserSummaryLookupBenchmark"
+ * </pre>
+ * La latencia de red domina: contra un Redis remoto la diferencia entre las dos curvas crece con el RTT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSummaryLookupBenchmark {
+
+    private static final String KEY_PREFIX = "bench:user:";
+
+    @Param({"1", "10", "100", "500"})
+    private int friends;
+
+    private LettuceConnectionFactory connectionFactory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private List<String> keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"), Integer.getInteger("redis.port", 6379));
+        connectionFactory = new LettuceConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        redisTemplate = new RedisConfig().redisTemplate(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+
+        keys = new ArrayList<>(friends);
+        Map<String, Object> summaries = new HashMap<>();
+        for (int i = 0; i < friends; i++) {
+            String key = KEY_PREFIX + i;
+            keys.add(key);
+            summaries.put(key, Map.of("username", "user" + i, "PhotoUrl", "https://example.com/" + i + ".png",
+                    "Email", "user" + i + "@example.com"));
+        }
+        redisTemplate.opsForValue().multiSet(summaries);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        redisTemplate.delete(keys);
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public List<Object> getPerFriend() {
+        List<Object> found = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            found.add(redisTemplate.opsForValue().get(key));
+        }
+        return found;
+    }
+
+    @Benchmark
+    public List<Object> multiGet() {
+        return redisTemplate.opsForValue().multiGet(keys);
+    }
+}
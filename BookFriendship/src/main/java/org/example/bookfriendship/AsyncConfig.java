@@ -0,0 +1,84 @@
+package org.example.bookfriendship;
+
+import org.example.bookfriendship.util.JwtPropagatingTaskDecorator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+	// Limita cuántas consultas a Mongo y llamadas a Book hay en paralelo en todo el servicio
+	@Value("${friendships.executor.max-concurrency:16}")
+	private int maxConcurrency;
+
+	@Value("${friendships.executor.queue-capacity:500}")
+	private int queueCapacity;
+
+	@Value("${cache.refresh.threads:2}")
+	private int cacheRefreshThreads;
+
+	@Value("${cache.refresh.queue-capacity:100}")
+	private int cacheRefreshQueueCapacity;
+
+	@Bean
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ThreadPoolTaskExecutor friendshipExecutor() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(maxConcurrency);
+		executor.setMaxPoolSize(maxConcurrency);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("friendship-");
+		executor.setTaskDecorator(new JwtPropagatingTaskDecorator());
+		executor.initialize();
+		return executor;
+	}
+
+	// Con spring.threads.virtual.enabled no hace falta un pool: un hilo virtual por tarea, con el mismo límite de
+	// concurrencia (las tareas que lo superan esperan en lugar de rechazarse)
+	@Bean(name = "friendshipExecutor")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public SimpleAsyncTaskExecutor virtualFriendshipExecutor() {
+		SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("friendship-");
+		executor.setVirtualThreads(true);
+		executor.setConcurrencyLimit(maxConcurrency);
+		executor.setTaskDecorator(new JwtPropagatingTaskDecorator());
+		return executor;
+	}
+
+	// Refrescos anticipados de CacheAside, fuera del hilo de la petición que los dispara. Va aparte de
+	// friendshipExecutor porque los cálculos de las listas reparten su trabajo en él y esperan el resultado
+	@Bean
+	@ConditionalOnThreading(Threading.PLATFORM)
+	public ThreadPoolTaskExecutor cacheRefreshExecutor() {
+		ThreadPoolTaskExecutor executor = cacheRefreshPool();
+		executor.setThreadNamePrefix("cache-refresh-");
+		executor.initialize();
+		return executor;
+	}
+
+	// Con spring.threads.virtual.enabled, el mismo pool con hilos virtuales: se conservan el límite y la cola, y los
+	// refrescos que no caben se siguen descartando en lugar de esperar
+	@Bean(name = "cacheRefreshExecutor")
+	@ConditionalOnThreading(Threading.VIRTUAL)
+	public ThreadPoolTaskExecutor virtualCacheRefreshExecutor() {
+		ThreadPoolTaskExecutor executor = cacheRefreshPool();
+		executor.setThreadFactory(new VirtualThreadTaskExecutor("cache-refresh-").getVirtualThreadFactory());
+		executor.initialize();
+		return executor;
+	}
+
+	private ThreadPoolTaskExecutor cacheRefreshPool() {
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(cacheRefreshThreads);
+		executor.setMaxPoolSize(cacheRefreshThreads);
+		executor.setQueueCapacity(cacheRefreshQueueCapacity);
+		executor.setTaskDecorator(new JwtPropagatingTaskDecorator());
+		return executor;
+	}
+}
@@ -1,38 +1,34 @@
 package org.example.bookfriendship.Controller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.type.TypeReference;
 import io.jsonwebtoken.JwtException;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.servlet.http.HttpServletRequest;
 import org.example.bookfriendship.Model.Friendship;
 import org.example.bookfriendship.Model.FriendshipDto;
+import org.example.bookfriendship.Model.FriendshipPageDto;
 import org.example.bookfriendship.Repository.FriendshipRepository;
 import org.example.bookfriendship.Service.FriendshipService;
-import org.example.bookfriendship.util.JwtTokenUtil;
+import org.example.bookfriendship.util.CacheAside;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.Duration;
-import java.util.LinkedHashMap;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/friendships")
 public class FriendshipController {
 
-  @Autowired
-  private JwtTokenUtil jwtTokenUtil;
-
   @Autowired
   private FriendshipRepository friendshipRepository;
 
@@ -45,54 +41,57 @@ public class FriendshipController {
   @Autowired
   private FriendshipService friendshipService;
 
-  @Autowired
-  private final RedisTemplate<String, Object> redisTemplate; // Asegúrate de que es de este tipo
-
   private static final Logger log = LoggerFactory.getLogger(FriendshipController.class);
 
+  // Cabecera que BookGateway interpreta para invalidar su caché de respuestas
+  private static final String GATEWAY_CACHE_INVALIDATE_HEADER = "X-Cache-Invalidate";
+
+  // GET /{userId} guarda entidades Friendship y /friends guarda FriendshipDto: cada forma con su prefijo
+  private static final String FRIENDSHIPS_PREFIX = "friendships:";
+  private static final String FRIENDS_PREFIX = "friendsDto:";
+  private static final String PENDING_PREFIX = "pendingFriendships:";
+  private static final String FRIENDS_PAGES_PREFIX = "friendsDtoPages:";
+  private static final String PENDING_PAGES_PREFIX = "pendingFriendshipsPages:";
+
+  private static final TypeReference<List<Friendship>> FRIENDSHIP_LIST = new TypeReference<>() {
+  };
+  private static final TypeReference<List<FriendshipDto>> FRIENDSHIP_DTO_LIST = new TypeReference<>() {
+  };
+  private static final TypeReference<FriendshipPageDto> FRIENDSHIP_PAGE = new TypeReference<>() {
+  };
+
   @Autowired
-  private ObjectMapper objectMapper;
+  private CacheAside cacheAside;
 
-  public FriendshipController(RedisTemplate<String, Object> redisTemplate) {
-    this.redisTemplate = redisTemplate;
-  }
+  @Value("${friends.membership.batch-max-size:500}")
+  private int membershipBatchMaxSize;
 
-  @GetMapping("/{userId}")
-  public ResponseEntity<List<Friendship>> getFriendships(@PathVariable String userId) {
-    List<Friendship> friends = (List<Friendship>) redisTemplate.opsForValue().get("friendsDto:" + userId);
+  @Value("${friends.graph.max-suggestions:50}")
+  private int maxSuggestions;
 
-    if (friends != null && !friends.isEmpty()) {
-      log.info("Retrieved friendships for user with ID {} from cache", userId);
-      return ResponseEntity.ok(friends);
-    } else {
-      List<Friendship> friendships = friendshipRepository.findByRequesterId(userId);
+  @Value("${friends.page.default-size:20}")
+  private int defaultPageSize;
 
-      if (friendships != null && !friendships.isEmpty()) {
-        redisTemplate.opsForValue().set("friendsDto:" + userId, friendships, 1, TimeUnit.HOURS);
-      }
+  @Value("${friends.page.max-size:100}")
+  private int maxPageSize;
 
-      return ResponseEntity.ok(friendships);
-    }
+  @GetMapping("/{userId}")
+  public ResponseEntity<List<Friendship>> getFriendships(@PathVariable String userId) {
+    List<Friendship> friendships = cacheAside.get(FRIENDSHIPS_PREFIX + userId, FRIENDSHIP_LIST,
+        () -> friendshipRepository.findByRequesterId(userId), list -> !list.isEmpty());
+    return ResponseEntity.ok(friendships);
   }
 
   @PutMapping("/accept")
   public ResponseEntity<?> acceptFriendship(@RequestParam String friendshipId) {
-    System.out.println(friendshipId);
     try {
       List<String> affectedUserIds = friendshipService.acceptFriendship(friendshipId);
 
-      for (String userId : affectedUserIds) {
-        String cacheKey = "friendsDto:" + userId;
-        redisTemplate.delete(cacheKey);
-        log.info("Cache invalidated for user with ID {}", userId);
-      }
-
-      for (String userId : affectedUserIds) {
-        String cacheKey = "pendingFriendships:" + userId;
-        redisTemplate.delete(cacheKey);
-        log.info("Cache invalidated for user with ID {}", userId);
-      }
-      return ResponseEntity.ok(200);
+      evictListCaches(affectedUserIds);
+      log.info("Cache invalidated for users with IDs {}", affectedUserIds);
+      return ResponseEntity.ok()
+          .header(GATEWAY_CACHE_INVALIDATE_HEADER, gatewayCacheTags(affectedUserIds))
+          .body(200);
     } catch (EntityNotFoundException e) {
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
     } catch (Exception e) {
@@ -118,12 +117,12 @@ public class FriendshipController {
     try {
       Friendship friendship = friendshipService.createFriendship(newFriendship.getRequesterId(),
           newFriendship.getFriendId());
-      redisTemplate.delete("friendsDto:" + friendship.getRequesterId());
-      redisTemplate.delete("friendsDto:" + friendship.getFriendId());
-      redisTemplate.delete("pendingFriendships:" + friendship.getFriendId());
-      redisTemplate.delete("pendingFriendships:" + friendship.getRequesterId());
+      evictListCaches(List.of(friendship.getRequesterId(), friendship.getFriendId()));
       log.info("Cache invalidated for user with ID {}", friendship.getId());
-      return ResponseEntity.status(HttpStatus.CREATED).body(friendship);
+      return ResponseEntity.status(HttpStatus.CREATED)
+          .header(GATEWAY_CACHE_INVALIDATE_HEADER,
+              gatewayCacheTags(List.of(friendship.getRequesterId(), friendship.getFriendId())))
+          .body(friendship);
     } catch (IllegalStateException e) {
       return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
     }
@@ -136,19 +135,12 @@ public class FriendshipController {
       List<String> affectedUserIds = friendshipService.deleteFriendship(friendshipId);
 
       // Invalidar caché para ambos usuarios
-      for (String userId : affectedUserIds) {
-        String cacheKey = "friendsDto:" + userId;
-        redisTemplate.delete(cacheKey);
-        log.info("Cache invalidated for user with ID {}", userId);
-      }
+      evictListCaches(affectedUserIds);
+      log.info("Cache invalidated for users with IDs {}", affectedUserIds);
 
-      for (String userId : affectedUserIds) {
-        String cacheKey = "pendingFriendships:" + userId;
-        redisTemplate.delete(cacheKey);
-        log.info("Cache invalidated for user with ID {}", userId);
-      }
-
-      return ResponseEntity.ok("Amistad eliminada");
+      return ResponseEntity.ok()
+          .header(GATEWAY_CACHE_INVALIDATE_HEADER, gatewayCacheTags(affectedUserIds))
+          .body("Amistad eliminada");
     } catch (EntityNotFoundException e) {
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
     } catch (Exception e) {
@@ -168,27 +160,80 @@ public class FriendshipController {
     }
   }
 
-  @GetMapping("/pending")
-  public ResponseEntity<?> getPending(HttpServletRequest request) {
+  /**
+   * Cuáles de los ids recibidos son amigos de {@code userId}, en una sola llamada (p. ej. para filtrar un feed).
+   */
+  @PostMapping("/areFriends/{userId}")
+  public ResponseEntity<?> friendsAmong(@PathVariable String userId, @RequestBody List<String> candidateIds) {
+    if (candidateIds.size() > membershipBatchMaxSize) {
+      return ResponseEntity.badRequest()
+          .body("Se admiten como máximo " + membershipBatchMaxSize + " ids por consulta");
+    }
     try {
-      String userId = jwtTokenUtil.getUserIdFromToken(jwtTokenUtil.obtenerJwtDeLaSolicitud(request));
+      return ResponseEntity.ok(friendshipService.friendsAmong(userId, candidateIds));
+    } catch (Exception e) {
+      log.error("Error checking friendships for user with ID {}: {}", userId, e.getMessage());
+      return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+          .body("Error al comprobar amistades: " + e.getMessage());
+    }
+  }
 
-      String cacheKey = "pendingFriendships:" + userId;
+  /**
+   * Amigos en común entre el usuario autenticado y {@code userId}. Sale del grafo en memoria de esta instancia, así
+   * que los cambios hechos a través de otras instancias tardan hasta la siguiente recarga en aparecer.
+   */
+  @GetMapping("/mutual/{userId}")
+  public ResponseEntity<?> mutualFriends(Authentication authentication, @PathVariable String userId) {
+    try {
+      return ResponseEntity.ok(friendshipService.mutualFriends(authentication.getName(), userId));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+  }
 
-      List<FriendshipDto> cachedFriendships = (List<FriendshipDto>) redisTemplate.opsForValue().get(cacheKey);
+  @GetMapping("/suggestions")
+  public ResponseEntity<?> getSuggestions(Authentication authentication,
+      @RequestParam(defaultValue = "10") int limit) {
+    try {
+      return ResponseEntity.ok(friendshipService.friendSuggestions(authentication.getName(),
+          Math.min(limit, maxSuggestions)));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+  }
 
-      if (cachedFriendships != null) {
-        return ResponseEntity.ok(cachedFriendships);
-      } else {
-        List<FriendshipDto> friendshipsWithUsernames = friendshipService
-            .getPendingFriendshipDetailsWithUsernames(userId);
+  /**
+   * Número de amigos del usuario autenticado, con la misma frescura que {@link #mutualFriends}.
+   */
+  @GetMapping("/count")
+  public ResponseEntity<?> friendCount(Authentication authentication) {
+    try {
+      return ResponseEntity.ok(friendshipService.friendCount(authentication.getName()));
+    } catch (IllegalStateException e) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+    }
+  }
 
-        redisTemplate.opsForValue().set(cacheKey, friendshipsWithUsernames, Duration.ofHours(1)); // Ajusta la duración
-                                                                                                  // según tus
-                                                                                                  // necesidades
+  @GetMapping("/pending")
+  public ResponseEntity<?> getPending(Authentication authentication,
+      @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+    try {
+      String userId = authentication.getName();
 
-        return ResponseEntity.ok(friendshipsWithUsernames);
+      // Sin cursor ni limit se mantiene la respuesta completa de siempre
+      if (cursor != null || limit != null) {
+        int pageSize = pageSize(limit);
+        return ResponseEntity.ok(cachedPage(PENDING_PAGES_PREFIX + userId, cursor, pageSize,
+            () -> friendshipService.getPendingFriendshipPage(userId, cursor, pageSize)));
       }
+
+      String cacheKey = PENDING_PREFIX + userId;
+
+      List<FriendshipDto> friendshipsWithUsernames = cacheAside.get(cacheKey, FRIENDSHIP_DTO_LIST,
+          () -> friendshipService.getPendingFriendshipDetailsWithUsernames(userId));
+      return ResponseEntity.ok(friendshipsWithUsernames);
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
     } catch (Exception e) {
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
           .body("Error al obtener amistades pendientes: " + e.getMessage());
@@ -196,42 +241,29 @@ public class FriendshipController {
   }
 
   @GetMapping("/friends")
-  public ResponseEntity<?> getFriends(HttpServletRequest request) {
+  public ResponseEntity<?> getFriends(Authentication authentication,
+      @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
     try {
-      String userId = jwtTokenUtil.getUserIdFromToken(jwtTokenUtil.obtenerJwtDeLaSolicitud(request));
-      String cacheKey = "friendsDto:" + userId; // Clave de caché para los amigos del usuario
-
-      // Intenta recuperar la lista de amigos desde la caché
-      Object cachedData = redisTemplate.opsForValue().get(cacheKey);
-      List<FriendshipDto> cachedFriends;
-
-      if (cachedData instanceof List<?>) {
-        cachedFriends = ((List<?>) cachedData).stream()
-            .filter(LinkedHashMap.class::isInstance)
-            .map(obj -> objectMapper.convertValue(obj, FriendshipDto.class))
-            .collect(Collectors.toList());
-
-        if (!cachedFriends.isEmpty()) {
-          log.info("Retrieved friends for user with ID {} from cache", userId);
-          // Agrega los IDs de amigos al conjunto de amigos de cada amigo
-          cachedFriends
-              .forEach(friendship -> redisTemplate.opsForSet().add("friendsOf:" + friendship.getFriendId(), userId));
-          return ResponseEntity.ok(cachedFriends);
-        }
-      }
+      String userId = authentication.getName();
 
-      List<FriendshipDto> friendshipsWithUsernames = friendshipService.getFriendshipDetailsWithUsernames(userId);
-      if (!friendshipsWithUsernames.isEmpty()) {
-        redisTemplate.opsForValue().set(cacheKey, friendshipsWithUsernames, 1, TimeUnit.HOURS);
-        // Por cada amigo, agrega este userId al conjunto 'friendsOf:' del amigo
-        friendshipsWithUsernames
-            .forEach(friendship -> redisTemplate.opsForSet().add("friendsOf:" + friendship.getFriendId(), userId));
+      if (cursor != null || limit != null) {
+        int pageSize = pageSize(limit);
+        return ResponseEntity.ok(cachedPage(FRIENDS_PAGES_PREFIX + userId, cursor, pageSize,
+            () -> friendshipService.getFriendshipPage(userId, cursor, pageSize)));
       }
 
+      String cacheKey = FRIENDS_PREFIX + userId; // Clave de caché para los amigos del usuario
+
+      // Lista de amigos desde la caché o, si no está, calculada por una sola petición entre todas las instancias
+      List<FriendshipDto> friendshipsWithUsernames = cacheAside.get(cacheKey, FRIENDSHIP_DTO_LIST,
+          () -> friendshipService.getFriendshipDetailsWithUsernames(userId), list -> !list.isEmpty());
+
       return ResponseEntity.ok(friendshipsWithUsernames);
     } catch (JwtException e) {
       log.error("JWT parsing error: {}", e.getMessage());
       return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("Invalid JWT token");
+    } catch (IllegalArgumentException e) {
+      return ResponseEntity.badRequest().body(e.getMessage());
     } catch (Exception e) {
       log.error("Error retrieving friends list: {}", e.getMessage());
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -239,4 +271,41 @@ public class FriendshipController {
     }
   }
 
+  /**
+   * Cada página se guarda como un campo del hash {@code <prefijo><userId>} ({@code <cursor>|<limit>}), de modo que
+   * leer una página no deserializa la lista completa e invalidar todas las páginas de un usuario es un solo DEL.
+   */
+  private FriendshipPageDto cachedPage(String hashKey, String cursor, int limit, Supplier<FriendshipPageDto> loader) {
+    String field = (cursor == null ? "" : cursor) + "|" + limit;
+    return cacheAside.getField(hashKey, field, FRIENDSHIP_PAGE, loader);
+  }
+
+  private int pageSize(Integer limit) {
+    if (limit == null) {
+      return defaultPageSize;
+    }
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit debe ser mayor que 0");
+    }
+    return Math.min(limit, maxPageSize);
+  }
+
+  // Listas y páginas de los usuarios; CacheAside sube además su generación para que un cálculo en curso no las reponga
+  private void evictListCaches(List<String> userIds) {
+    List<String> keys = new ArrayList<>();
+    for (String userId : userIds) {
+      keys.add(FRIENDSHIPS_PREFIX + userId);
+      keys.add(FRIENDS_PREFIX + userId);
+      keys.add(PENDING_PREFIX + userId);
+      keys.add(FRIENDS_PAGES_PREFIX + userId);
+      keys.add(PENDING_PAGES_PREFIX + userId);
+    }
+    cacheAside.invalidate(keys);
+  }
+
+  private static String gatewayCacheTags(List<String> userIds) {
+    return userIds.stream()
+        .map(userId -> "user:" + userId)
+        .collect(Collectors.joining(","));
+  }
 }
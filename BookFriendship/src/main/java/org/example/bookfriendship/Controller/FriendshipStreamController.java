@@ -0,0 +1,39 @@
+package org.example.bookfriendship.Controller;
+
+import org.example.bookfriendship.Model.FriendshipDto;
+import org.example.bookfriendship.Service.ReactiveFriendshipService;
+import org.example.bookfriendship.util.JwtTokenHolder;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+/**
+ * Listados en streaming (NDJSON, un {@link FriendshipDto} por línea). El hilo del servidor se libera en cuanto se
+ * devuelve el Flux; los elementos se escriben a medida que el cliente los consume. No es un despliegue WebFlux: la
+ * aplicación sigue siendo servlet y el resto de endpoints son bloqueantes. {@code load/stream-vs-servlet.sh} compara
+ * estos listados con {@code /api/friendships/friends}.
+ */
+@RestController
+@RequestMapping("/api/friendships/stream")
+public class FriendshipStreamController {
+
+  private final ReactiveFriendshipService reactiveFriendshipService;
+
+  public FriendshipStreamController(ReactiveFriendshipService reactiveFriendshipService) {
+    this.reactiveFriendshipService = reactiveFriendshipService;
+  }
+
+  @GetMapping(value = "/friends", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<FriendshipDto> streamFriends(Authentication authentication) {
+    // El JWT se captura aquí, en el hilo de la petición, y viaja en el contexto de Reactor
+    return reactiveFriendshipService.streamFriendships(authentication.getName(), JwtTokenHolder.current());
+  }
+
+  @GetMapping(value = "/pending", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public Flux<FriendshipDto> streamPending(Authentication authentication) {
+    return reactiveFriendshipService.streamPendingFriendships(authentication.getName(), JwtTokenHolder.current());
+  }
+}
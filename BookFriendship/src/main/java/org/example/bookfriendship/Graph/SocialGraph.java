@@ -0,0 +1,350 @@
+package org.example.bookfriendship.Graph;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Grafo en memoria de amistades aceptadas. Cada usuario recibe un índice denso y su lista de amigos es un
+ * {@code int[]} ordenado; las consultas (amigos en común, sugerencias a dos saltos, grado) son intersecciones y
+ * recorridos sobre arrays primitivos, sin tocar Mongo.
+ *
+ * <p>Las lecturas no bloquean: las escrituras sustituyen la fila afectada por una copia (copy-on-write) bajo un único
+ * lock, y una carga completa construye las filas aparte y las publica de una vez.
+ *
+ * <p>Cada instancia del servicio tiene su propio grafo. Las amistades aceptadas o eliminadas a través de esta instancia
+ * se aplican al momento; las que pasan por otras solo aparecen cuando {@link SocialGraphLoader} vuelve a cargar el
+ * grafo desde Mongo ({@code friends.graph.rebuild-interval}, 30 minutos por defecto). Los resultados pueden ir por
+ * detrás de Mongo como mucho ese intervalo.
+ */
+@Component
+public class SocialGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final Object writeLock = new Object();
+    private volatile Table table = new Table(16, new ConcurrentHashMap<>());
+    private volatile boolean loaded;
+
+    // Cambios recibidos mientras se construye una carga completa; se reaplican sobre el grafo nuevo
+    private List<Runnable> pendingDuringLoad;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public int vertexCount() {
+        return table.size;
+    }
+
+    public int degree(String userId) {
+        Table t = table;
+        return friendsOf(t, t.vertexIds.get(userId)).length;
+    }
+
+    public List<String> mutualFriends(String userId1, String userId2) {
+        Table t = table;
+        int[] a = friendsOf(t, t.vertexIds.get(userId1));
+        int[] b = friendsOf(t, t.vertexIds.get(userId2));
+        List<String> mutual = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                mutual.add(t.userIds.get(a[i]));
+                i++;
+                j++;
+            }
+        }
+        return mutual;
+    }
+
+    /**
+     * Amigos de amigos que aún no son amigos de {@code userId}, ordenados por número de amigos en común.
+     */
+    public List<Suggestion> suggestions(String userId, int limit) {
+        Table t = table;
+        Integer vertex = t.vertexIds.get(userId);
+        int[] own = friendsOf(t, vertex);
+        if (own.length == 0 || limit <= 0) {
+            return List.of();
+        }
+
+        // Cada fila se lee una sola vez: una escritura concurrente puede sustituirla entre dos lecturas
+        int[][] rows = new int[own.length][];
+        int total = 0;
+        for (int f = 0; f < own.length; f++) {
+            rows[f] = friendsOf(t, own[f]);
+            total += rows[f].length;
+        }
+        int[] candidates = new int[total];
+        int n = 0;
+        for (int[] row : rows) {
+            for (int candidate : row) {
+                if (candidate != vertex && Arrays.binarySearch(own, candidate) < 0) {
+                    candidates[n++] = candidate;
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, n);
+
+        // Top-k por número de apariciones (= amigos en común); a igualdad, el de menor índice
+        PriorityQueue<long[]> top = new PriorityQueue<>(limit + 1,
+                (x, y) -> x[1] != y[1] ? Long.compare(x[1], y[1]) : Long.compare(y[0], x[0]));
+        for (int i = 0; i < n; ) {
+            int run = i;
+            while (run < n && candidates[run] == candidates[i]) {
+                run++;
+            }
+            top.offer(new long[]{candidates[i], run - i});
+            if (top.size() > limit) {
+                top.poll();
+            }
+            i = run;
+        }
+
+        Suggestion[] ranked = new Suggestion[top.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            long[] entry = top.poll();
+            ranked[i] = new Suggestion(t.userIds.get((int) entry[0]), (int) entry[1]);
+        }
+        return Arrays.asList(ranked);
+    }
+
+    public void addFriendship(String userId1, String userId2) {
+        synchronized (writeLock) {
+            if (pendingDuringLoad != null) {
+                pendingDuringLoad.add(() -> addFriendship(userId1, userId2));
+            }
+            int a = vertex(userId1);
+            int b = vertex(userId2);
+            Table t = table;
+            t.rows.set(a, insert(friendsOf(t, a), b));
+            t.rows.set(b, insert(friendsOf(t, b), a));
+        }
+    }
+
+    public void removeFriendship(String userId1, String userId2) {
+        synchronized (writeLock) {
+            if (pendingDuringLoad != null) {
+                pendingDuringLoad.add(() -> removeFriendship(userId1, userId2));
+            }
+            Table t = table;
+            Integer a = t.vertexIds.get(userId1);
+            Integer b = t.vertexIds.get(userId2);
+            if (a == null || b == null) {
+                return;
+            }
+            t.rows.set(a, remove(friendsOf(t, a), b));
+            t.rows.set(b, remove(friendsOf(t, b), a));
+        }
+    }
+
+    /**
+     * Sustituye el grafo completo por las aristas que entrega {@code source}. Las escrituras concurrentes siguen
+     * aplicándose al grafo actual y se reaplican sobre el nuevo antes de publicarlo.
+     */
+    public void load(EdgeSource source) {
+        synchronized (writeLock) {
+            pendingDuringLoad = new ArrayList<>();
+        }
+        Table built;
+        try {
+            built = build(source);
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                pendingDuringLoad = null;
+            }
+            throw e;
+        }
+
+        synchronized (writeLock) {
+            List<Runnable> pending = pendingDuringLoad;
+            pendingDuringLoad = null;
+            table = built;
+            pending.forEach(Runnable::run);
+            loaded = true;
+        }
+    }
+
+    private static Table build(EdgeSource source) {
+        ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+        List<String> names = new ArrayList<>();
+        IntBuffer from = new IntBuffer();
+        IntBuffer to = new IntBuffer();
+        source.forEachEdge((userId1, userId2) -> {
+            if (userId1 == null || userId2 == null || userId1.equals(userId2)) {
+                return;
+            }
+            from.add(ids.computeIfAbsent(userId1, id -> { names.add(id); return names.size() - 1; }));
+            to.add(ids.computeIfAbsent(userId2, id -> { names.add(id); return names.size() - 1; }));
+        });
+
+        // Ordenación por conteo: grado de cada vértice, filas del tamaño justo y relleno en una pasada
+        int vertices = names.size();
+        int[] degree = new int[vertices];
+        for (int e = 0; e < from.size; e++) {
+            degree[from.values[e]]++;
+            degree[to.values[e]]++;
+        }
+        int[][] rows = new int[vertices][];
+        for (int v = 0; v < vertices; v++) {
+            rows[v] = new int[degree[v]];
+        }
+        int[] cursor = new int[vertices];
+        for (int e = 0; e < from.size; e++) {
+            int a = from.values[e];
+            int b = to.values[e];
+            rows[a][cursor[a]++] = b;
+            rows[b][cursor[b]++] = a;
+        }
+
+        Table built = new Table(Math.max(16, vertices), ids);
+        for (int v = 0; v < vertices; v++) {
+            built.rows.set(v, sortedUnique(rows[v]));
+            built.userIds.set(v, names.get(v));
+        }
+        built.size = vertices;
+        return built;
+    }
+
+    private int vertex(String userId) {
+        Table t = table;
+        Integer existing = t.vertexIds.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        if (t.size == t.rows.length()) {
+            t = t.grow();
+            table = t;
+        }
+        int vertex = t.size;
+        t.userIds.set(vertex, userId);
+        t.rows.set(vertex, NO_FRIENDS);
+        t.size = vertex + 1;
+        t.vertexIds.put(userId, vertex);
+        return vertex;
+    }
+
+    private static int[] friendsOf(Table t, Integer vertex) {
+        if (vertex == null || vertex >= t.rows.length()) {
+            return NO_FRIENDS;
+        }
+        int[] row = t.rows.get(vertex);
+        return row == null ? NO_FRIENDS : row;
+    }
+
+    private static int[] insert(int[] row, int value) {
+        int position = Arrays.binarySearch(row, value);
+        if (position >= 0) {
+            return row;
+        }
+        position = -position - 1;
+        int[] copy = new int[row.length + 1];
+        System.arraycopy(row, 0, copy, 0, position);
+        copy[position] = value;
+        System.arraycopy(row, position, copy, position + 1, row.length - position);
+        return copy;
+    }
+
+    private static int[] remove(int[] row, int value) {
+        int position = Arrays.binarySearch(row, value);
+        if (position < 0) {
+            return row;
+        }
+        int[] copy = new int[row.length - 1];
+        System.arraycopy(row, 0, copy, 0, position);
+        System.arraycopy(row, position + 1, copy, position, row.length - position - 1);
+        return copy;
+    }
+
+    private static int[] sortedUnique(int[] row) {
+        if (row.length == 0) {
+            return NO_FRIENDS;
+        }
+        Arrays.sort(row);
+        int unique = 1;
+        for (int i = 1; i < row.length; i++) {
+            if (row[i] != row[unique - 1]) {
+                row[unique++] = row[i];
+            }
+        }
+        return unique == row.length ? row : Arrays.copyOf(row, unique);
+    }
+
+    private static final class Table {
+
+        final AtomicReferenceArray<int[]> rows;
+        final AtomicReferenceArray<String> userIds;
+        final ConcurrentHashMap<String, Integer> vertexIds;
+        volatile int size;
+
+        Table(int capacity, ConcurrentHashMap<String, Integer> vertexIds) {
+            this.rows = new AtomicReferenceArray<>(capacity);
+            this.userIds = new AtomicReferenceArray<>(capacity);
+            this.vertexIds = vertexIds;
+        }
+
+        // Comparte el mapa de ids: los vértices nuevos se registran después de publicar la tabla ampliada
+        Table grow() {
+            Table bigger = new Table(rows.length() * 2, vertexIds);
+            for (int v = 0; v < size; v++) {
+                bigger.rows.set(v, rows.get(v));
+                bigger.userIds.set(v, userIds.get(v));
+            }
+            bigger.size = size;
+            return bigger;
+        }
+    }
+
+    private static final class IntBuffer {
+
+        int[] values = new int[1024];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    @FunctionalInterface
+    public interface EdgeSource {
+        void forEachEdge(EdgeConsumer consumer);
+    }
+
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(String userId1, String userId2);
+    }
+
+    public static class Suggestion {
+
+        private final String userId;
+        private final int mutualFriends;
+
+        public Suggestion(String userId, int mutualFriends) {
+            this.userId = userId;
+            this.mutualFriends = mutualFriends;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public int getMutualFriends() {
+            return mutualFriends;
+        }
+    }
+}
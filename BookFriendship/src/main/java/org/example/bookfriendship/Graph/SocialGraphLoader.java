@@ -0,0 +1,61 @@
+package org.example.bookfriendship.Graph;
+
+import org.bson.Document;
+import org.example.bookfriendship.Model.Friendship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * Carga {@link SocialGraph} desde Mongo al arrancar y lo reconstruye periódicamente, para recoger las amistades
+ * aceptadas o eliminadas a través de otras instancias. Hasta la siguiente recarga esta instancia no ve esos cambios:
+ * el intervalo es la frescura máxima de amigos en común, sugerencias y contadores.
+ */
+@Component
+public class SocialGraphLoader implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(SocialGraphLoader.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final SocialGraph socialGraph;
+
+    public SocialGraphLoader(MongoTemplate mongoTemplate, SocialGraph socialGraph) {
+        this.mongoTemplate = mongoTemplate;
+        this.socialGraph = socialGraph;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        reload();
+    }
+
+    @Scheduled(fixedDelayString = "${friends.graph.rebuild-interval:PT30M}",
+            initialDelayString = "${friends.graph.rebuild-interval:PT30M}")
+    public void reload() {
+        long start = System.nanoTime();
+        try {
+            socialGraph.load(this::streamAcceptedEdges);
+            log.info("Grafo de amistades cargado: {} usuarios en {} ms", socialGraph.vertexCount(),
+                    (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.error("No se pudo cargar el grafo de amistades: {}", e.getMessage());
+        }
+    }
+
+    private void streamAcceptedEdges(SocialGraph.EdgeConsumer consumer) {
+        Query accepted = new Query(Criteria.where("status").is("accepted"));
+        accepted.fields().include("requesterId", "friendId").exclude("_id");
+        try (Stream<Document> edges = mongoTemplate.stream(accepted, Document.class,
+                mongoTemplate.getCollectionName(Friendship.class))) {
+            edges.forEach(edge -> consumer.accept(edge.getString("requesterId"), edge.getString("friendId")));
+        }
+    }
+}
@@ -4,8 +4,10 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.example.bookfriendship.util.GatewayIdentitySignature;
 import org.example.bookfriendship.util.JwtTokenUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -13,6 +15,8 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 
 @Component
@@ -21,12 +25,26 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    // Secreto compartido con BookGateway; si está vacío no se confía en las cabeceras X-User-*
+    @Value("${gateway.identity.secret:}")
+    private String gatewayIdentitySecret;
+
+    // Antigüedad máxima de la firma de las cabeceras de identidad (desfase de reloj incluido)
+    @Value("${gateway.identity.max-skew:PT1M}")
+    private Duration gatewayIdentityMaxSkew;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
             throws ServletException, IOException {
         String authHeader = request.getHeader("Authorization");
 
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+        if (isFromGateway(request)) {
+            // El gateway ya verificó el token: no volvemos a comprobar la firma
+            UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                    request.getHeader("X-User-Id"), null, new ArrayList<>());
+            authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        } else if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String jwtToken = authHeader.substring(7);
             if (jwtTokenUtil.validateToken(jwtToken)) {
                 String userId = jwtTokenUtil.getUserIdFromToken(jwtToken);
@@ -45,5 +63,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         chain.doFilter(request, response);
     }
+
+    private boolean isFromGateway(HttpServletRequest request) {
+        return GatewayIdentitySignature.verify(gatewayIdentitySecret, request.getHeader("X-Gateway-Auth"),
+                request.getHeader("X-User-Id"), request.getHeader("X-Username"), request.getHeader("X-User-Roles"),
+                Instant.now().getEpochSecond(), gatewayIdentityMaxSkew.toSeconds());
+    }
 }
 
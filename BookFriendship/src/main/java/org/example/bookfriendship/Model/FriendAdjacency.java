@@ -0,0 +1,155 @@
+package org.example.bookfriendship.Model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Lista de amistades de un usuario en un estado dado, materializada a partir de la colección friendship. Las listas
+ * grandes se reparten en varios documentos (buckets) de como mucho {@code friends.adjacency.bucket-size} entradas, con
+ * ids {@code userId:status:N}; {@link FriendAdjacencyHead} dice cuáles forman la lista publicada.
+ */
+@Document("friendAdjacency")
+public class FriendAdjacency {
+
+    @Id
+    private String id;
+    private String userId;
+    private String status;
+    private int count;
+    private List<Entry> entries = new ArrayList<>();
+    private Date updatedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public static class Entry {
+
+        @Indexed(name = "entries_friendship")
+        private String friendshipId;
+        // Para actualizar el nombre y la foto de un usuario en todas las listas en las que aparece
+        @Indexed(name = "entries_requester")
+        private String requesterId;
+        @Indexed(name = "entries_friend")
+        private String friendId;
+        private LocalDateTime createdAt;
+        private String requesterUsername;
+        private String requesterPhotoUrl;
+        private String friendUsername;
+        private String friendPhotoUrl;
+
+        public String getFriendshipId() {
+            return friendshipId;
+        }
+
+        public void setFriendshipId(String friendshipId) {
+            this.friendshipId = friendshipId;
+        }
+
+        public String getRequesterId() {
+            return requesterId;
+        }
+
+        public void setRequesterId(String requesterId) {
+            this.requesterId = requesterId;
+        }
+
+        public String getFriendId() {
+            return friendId;
+        }
+
+        public void setFriendId(String friendId) {
+            this.friendId = friendId;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+
+        public void setCreatedAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+        }
+
+        public String getRequesterUsername() {
+            return requesterUsername;
+        }
+
+        public void setRequesterUsername(String requesterUsername) {
+            this.requesterUsername = requesterUsername;
+        }
+
+        public String getRequesterPhotoUrl() {
+            return requesterPhotoUrl;
+        }
+
+        public void setRequesterPhotoUrl(String requesterPhotoUrl) {
+            this.requesterPhotoUrl = requesterPhotoUrl;
+        }
+
+        public String getFriendUsername() {
+            return friendUsername;
+        }
+
+        public void setFriendUsername(String friendUsername) {
+            this.friendUsername = friendUsername;
+        }
+
+        public String getFriendPhotoUrl() {
+            return friendPhotoUrl;
+        }
+
+        public void setFriendPhotoUrl(String friendPhotoUrl) {
+            this.friendPhotoUrl = friendPhotoUrl;
+        }
+    }
+}
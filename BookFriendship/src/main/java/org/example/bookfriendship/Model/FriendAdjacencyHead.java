@@ -0,0 +1,104 @@
+package org.example.bookfriendship.Model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Cabecera de una lista de {@link FriendAdjacency} ({@code userId:status}): qué buckets forman la lista publicada y
+ * una versión que sube con cada cambio, para que una materialización construida con aristas ya leídas solo se
+ * publique si nada cambió mientras tanto.
+ */
+@Document("friendAdjacencyHead")
+public class FriendAdjacencyHead {
+
+    @Id
+    private String id;
+    // Para invalidar de una vez todas las listas de un usuario
+    @Indexed(name = "user")
+    private String userId;
+    private String status;
+    private long version;
+    private boolean materialized;
+    private List<String> buckets = new ArrayList<>();
+    // Número del siguiente bucket; nunca se reutiliza, así que cada materialización escribe documentos nuevos
+    private int nextBucket;
+    private long generation;
+    private Date updatedAt;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    public void setMaterialized(boolean materialized) {
+        this.materialized = materialized;
+    }
+
+    public List<String> getBuckets() {
+        return buckets;
+    }
+
+    public void setBuckets(List<String> buckets) {
+        this.buckets = buckets;
+    }
+
+    public int getNextBucket() {
+        return nextBucket;
+    }
+
+    public void setNextBucket(int nextBucket) {
+        this.nextBucket = nextBucket;
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public void setGeneration(long generation) {
+        this.generation = generation;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,11 +1,19 @@
 package org.example.bookfriendship.Model;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document
+@CompoundIndexes({
+        // Sirven tanto para filtrar por participante y estado como para paginar por (createdAt, _id) sin ordenar en memoria
+        @CompoundIndex(name = "requester_status_created", def = "{'requesterId': 1, 'status': 1, 'createdAt': -1, '_id': -1}"),
+        @CompoundIndex(name = "friend_status_created", def = "{'friendId': 1, 'status': 1, 'createdAt': -1, '_id': -1}")
+})
 public class Friendship {
 
     @Id
@@ -16,6 +24,39 @@ public class Friendship {
     private String status;      // Ejemplo: "pending", "accepted", "declined"
     private String PhotoUrl;
 
+    // Clave del par sin orden ("a:b" con a < b); el índice único impide dos amistades entre los mismos usuarios
+    @Indexed(name = "pair_key", unique = true, sparse = true)
+    private String pairKey;
+
+    // Copia del nombre y la foto de cada participante para listar amistades sin resolver usuarios; la mantiene
+    // FriendProfileSync
+    private String requesterUsername;
+    private String requesterPhotoUrl;
+    private String friendUsername;
+    private String friendPhotoUrl;
+    // Cuándo se copió por última vez cada lado; profilesSyncedAt es el más antiguo de los dos (null si alguno no se ha
+    // copiado nunca) y es lo que consulta el barrido
+    private LocalDateTime requesterSyncedAt;
+    private LocalDateTime friendSyncedAt;
+    @Indexed(name = "profiles_synced_at")
+    private LocalDateTime profilesSyncedAt;
+
+    public static String pairKey(String userId1, String userId2) {
+        return userId1.compareTo(userId2) <= 0 ? userId1 + ":" + userId2 : userId2 + ":" + userId1;
+    }
+
+    public String counterpartId(String userId) {
+        return requesterId.equals(userId) ? friendId : requesterId;
+    }
+
+    public String counterpartUsername(String userId) {
+        return requesterId.equals(userId) ? friendUsername : requesterUsername;
+    }
+
+    public String counterpartPhotoUrl(String userId) {
+        return requesterId.equals(userId) ? friendPhotoUrl : requesterPhotoUrl;
+    }
+
     public String getId() {
         return id;
     }
@@ -63,4 +104,68 @@ public class Friendship {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public String getPairKey() {
+        return pairKey;
+    }
+
+    public void setPairKey(String pairKey) {
+        this.pairKey = pairKey;
+    }
+
+    public String getRequesterUsername() {
+        return requesterUsername;
+    }
+
+    public void setRequesterUsername(String requesterUsername) {
+        this.requesterUsername = requesterUsername;
+    }
+
+    public String getRequesterPhotoUrl() {
+        return requesterPhotoUrl;
+    }
+
+    public void setRequesterPhotoUrl(String requesterPhotoUrl) {
+        this.requesterPhotoUrl = requesterPhotoUrl;
+    }
+
+    public String getFriendUsername() {
+        return friendUsername;
+    }
+
+    public void setFriendUsername(String friendUsername) {
+        this.friendUsername = friendUsername;
+    }
+
+    public String getFriendPhotoUrl() {
+        return friendPhotoUrl;
+    }
+
+    public void setFriendPhotoUrl(String friendPhotoUrl) {
+        this.friendPhotoUrl = friendPhotoUrl;
+    }
+
+    public LocalDateTime getProfilesSyncedAt() {
+        return profilesSyncedAt;
+    }
+
+    public void setProfilesSyncedAt(LocalDateTime profilesSyncedAt) {
+        this.profilesSyncedAt = profilesSyncedAt;
+    }
+
+    public LocalDateTime getRequesterSyncedAt() {
+        return requesterSyncedAt;
+    }
+
+    public void setRequesterSyncedAt(LocalDateTime requesterSyncedAt) {
+        this.requesterSyncedAt = requesterSyncedAt;
+    }
+
+    public LocalDateTime getFriendSyncedAt() {
+        return friendSyncedAt;
+    }
+
+    public void setFriendSyncedAt(LocalDateTime friendSyncedAt) {
+        this.friendSyncedAt = friendSyncedAt;
+    }
 }
@@ -0,0 +1,33 @@
+package org.example.bookfriendship.Model;
+
+import java.util.List;
+
+public class FriendshipPageDto {
+
+    private List<FriendshipDto> items;
+    private String nextCursor; // null en la última página
+
+    public FriendshipPageDto() {
+    }
+
+    public FriendshipPageDto(List<FriendshipDto> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FriendshipDto> getItems() {
+        return items;
+    }
+
+    public void setItems(List<FriendshipDto> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
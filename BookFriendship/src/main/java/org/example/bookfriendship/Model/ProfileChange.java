@@ -0,0 +1,29 @@
+package org.example.bookfriendship.Model;
+
+/**
+ * Nombre y foto actuales de un usuario, tal como los publica Book en el stream de cambios de perfil.
+ */
+public class ProfileChange {
+
+    private final String userId;
+    private final String username;
+    private final String photoUrl;
+
+    public ProfileChange(String userId, String username, String photoUrl) {
+        this.userId = userId;
+        this.username = username;
+        this.photoUrl = photoUrl;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPhotoUrl() {
+        return photoUrl;
+    }
+}
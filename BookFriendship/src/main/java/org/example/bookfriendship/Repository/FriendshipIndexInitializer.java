@@ -0,0 +1,83 @@
+package org.example.bookfriendship.Repository;
+
+import org.bson.Document;
+import org.example.bookfriendship.Model.FriendAdjacency;
+import org.example.bookfriendship.Model.FriendAdjacencyHead;
+import org.example.bookfriendship.Model.Friendship;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rellena {@code pairKey} en las amistades antiguas y crea los índices declarados en {@link Friendship},
+ * {@link FriendAdjacency} y {@link FriendAdjacencyHead} al arrancar (la creación automática de índices de Spring Data
+ * está desactivada por defecto).
+ */
+@Component
+public class FriendshipIndexInitializer implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendshipIndexInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public FriendshipIndexInitializer(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        backfillPairKeys();
+
+        MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+                mongoTemplate.getConverter().getMappingContext();
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        for (Class<?> entity : List.of(Friendship.class, FriendAdjacency.class, FriendAdjacencyHead.class)) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity);
+            resolver.resolveIndexFor(entity).forEach(index -> {
+                try {
+                    indexOps.ensureIndex(index);
+                } catch (RuntimeException e) {
+                    // Por ejemplo, pares duplicados creados antes de que existiera el índice único
+                    log.error("No se pudo crear el índice {} en {}: {}", index.getIndexOptions().get("name"),
+                            mongoTemplate.getCollectionName(entity), e.getMessage());
+                }
+            });
+        }
+    }
+
+    private void backfillPairKeys() {
+        Query missing = new Query(Criteria.where("pairKey").exists(false));
+        missing.fields().include("requesterId", "friendId");
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Friendship.class);
+        int pending = 0;
+        for (Document friendship : mongoTemplate.find(missing, Document.class, mongoTemplate.getCollectionName(Friendship.class))) {
+            String requesterId = friendship.getString("requesterId");
+            String friendId = friendship.getString("friendId");
+            if (requesterId == null || friendId == null) {
+                continue;
+            }
+            bulk.updateOne(new Query(Criteria.where("_id").is(friendship.get("_id"))),
+                    new Update().set("pairKey", Friendship.pairKey(requesterId, friendId)));
+            pending++;
+        }
+        if (pending > 0) {
+            bulk.execute();
+            log.info("pairKey rellenado en {} amistades", pending);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.example.bookfriendship.Repository;
 
 import org.example.bookfriendship.Model.Friendship;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
 
 import java.util.List;
 
@@ -18,4 +19,12 @@ public interface FriendshipRepository extends MongoRepository<Friendship, String
 	List<Friendship> findByRequesterIdAndFriendId(String requesterId, String friendId);
 
 	List<Friendship> findByFriendIdAndRequesterId(String friendId, String requesterId);
+
+    // Cada rama del $or usa uno de los índices compuestos que empiezan por (requesterId, status) y (friendId, status)
+    @Query(value = "{ '$or': [ { 'requesterId': ?0, 'status': ?1 }, { 'friendId': ?0, 'status': ?1 } ] }",
+            fields = "{ 'requesterId': 1, 'friendId': 1, 'status': 1, 'createdAt': 1, 'requesterUsername': 1,"
+                    + " 'requesterPhotoUrl': 1, 'friendUsername': 1, 'friendPhotoUrl': 1 }")
+    List<Friendship> findByParticipantAndStatus(String userId, String status);
+
+    boolean existsByPairKeyAndStatus(String pairKey, String status);
 }
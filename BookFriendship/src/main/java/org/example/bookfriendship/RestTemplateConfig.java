@@ -1,12 +1,28 @@
 package org.example.bookfriendship;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.example.bookfriendship.util.JwtTokenInterceptor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 
     @Configuration
     public class RestTemplateConfig {
@@ -14,11 +30,74 @@ import org.springframework.web.client.RestTemplate;
         @Autowired
         private JwtTokenInterceptor jwtTokenInterceptor;
 
+        // Casi todas las llamadas van al mismo host (Book), así que el límite por ruta es el que manda
+        @Value("${outbound.http.max-total:100}")
+        private int maxTotal;
+
+        @Value("${outbound.http.max-per-route:50}")
+        private int maxPerRoute;
+
+        @Value("${outbound.http.connect-timeout:PT1S}")
+        private Duration connectTimeout;
+
+        @Value("${outbound.http.read-timeout:PT3S}")
+        private Duration readTimeout;
+
+        // Espera máxima por una conexión libre del pool
+        @Value("${outbound.http.lease-timeout:PT1S}")
+        private Duration leaseTimeout;
+
+        @Value("${outbound.http.idle-eviction:PT30S}")
+        private Duration idleEviction;
+
+        @Value("${outbound.http.time-to-live:PT5M}")
+        private Duration timeToLive;
+
+        @Bean(destroyMethod = "close")
+        public PoolingHttpClientConnectionManager outboundConnectionManager(MeterRegistry meterRegistry) {
+            Counter created = Counter.builder("httpcomponents.httpclient.pool.connections.created")
+                    .description("Connections opened by the outbound pool")
+                    .tag("httpclient", "outbound")
+                    .register(meterRegistry);
+
+            PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                    .setMaxConnTotal(maxTotal)
+                    .setMaxConnPerRoute(maxPerRoute)
+                    .setDefaultConnectionConfig(ConnectionConfig.custom()
+                            .setConnectTimeout(Timeout.of(connectTimeout))
+                            .setSocketTimeout(Timeout.of(readTimeout))
+                            .setTimeToLive(TimeValue.of(timeToLive))
+                            .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                            .build())
+                    .setConnectionFactory(socket -> {
+                        created.increment();
+                        return ManagedHttpClientConnectionFactory.INSTANCE.createConnection(socket);
+                    })
+                    .build();
+
+            // Conexiones disponibles y prestadas, peticiones esperando conexión y límites del pool
+            new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "outbound").bindTo(meterRegistry);
+            return connectionManager;
+        }
+
+        @Bean(destroyMethod = "close")
+        public CloseableHttpClient outboundHttpClient(PoolingHttpClientConnectionManager outboundConnectionManager) {
+            return HttpClients.custom()
+                    .setConnectionManager(outboundConnectionManager)
+                    .setDefaultRequestConfig(RequestConfig.custom()
+                            .setConnectionRequestTimeout(Timeout.of(leaseTimeout))
+                            .setResponseTimeout(Timeout.of(readTimeout))
+                            .build())
+                    .evictIdleConnections(TimeValue.of(idleEviction))
+                    .evictExpiredConnections()
+                    .build();
+        }
+
         @Bean
-        public RestTemplate restTemplate() {
+        public RestTemplate restTemplate(CloseableHttpClient outboundHttpClient) {
             return new RestTemplateBuilder()
+                    .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(outboundHttpClient))
                     .interceptors(jwtTokenInterceptor)
                     .build();
         }
     }
-
@@ -0,0 +1,34 @@
+package org.example.bookfriendship.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recalcula periódicamente las listas materializadas para corregir lo que se haya desviado (escrituras fallidas,
+ * carreras entre instancias).
+ */
+@Component
+public class FriendAdjacencyReconciler {
+
+  private static final Logger log = LoggerFactory.getLogger(FriendAdjacencyReconciler.class);
+
+  private final FriendAdjacencyStore friendAdjacencyStore;
+
+  public FriendAdjacencyReconciler(FriendAdjacencyStore friendAdjacencyStore) {
+    this.friendAdjacencyStore = friendAdjacencyStore;
+  }
+
+  @Scheduled(fixedDelayString = "${friends.adjacency.reconcile-interval:PT6H}",
+      initialDelayString = "${friends.adjacency.reconcile-initial-delay:PT5M}")
+  public void reconcile() {
+    long start = System.nanoTime();
+    try {
+      friendAdjacencyStore.rebuildAll();
+      log.info("Reconciliación de listas de amistades completada en {} ms", (System.nanoTime() - start) / 1_000_000);
+    } catch (RuntimeException e) {
+      log.error("Falló la reconciliación de listas de amistades: {}", e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,463 @@
+package org.example.bookfriendship.Service;
+
+import org.bson.Document;
+import org.example.bookfriendship.Model.FriendAdjacency;
+import org.example.bookfriendship.Model.FriendAdjacencyHead;
+import org.example.bookfriendship.Model.Friendship;
+import org.example.bookfriendship.Model.ProfileChange;
+import org.example.bookfriendship.Repository.FriendshipRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Mantiene los documentos {@link FriendAdjacency}: cada lista de amigos o de solicitudes pendientes se lee con una
+ * consulta por (userId, status) en lugar de un $or sobre las aristas. Las actualizaciones son idempotentes; si una
+ * falla se marca la lista como no materializada y la siguiente lectura la vuelve a construir desde friendship.
+ * {@link FriendAdjacencyReconciler} las recalcula todas periódicamente.
+ * <p>
+ * Cada cambio sube antes la versión de la cabecera ({@link FriendAdjacencyHead}) de la lista, exista o no. Quien
+ * construye una lista entera (la primera lectura o la reconciliación) lee la versión, luego las aristas, escribe los
+ * buckets con números nuevos y solo los publica en la cabecera si la versión no cambió; si cambió, los descarta. Así
+ * una lista construida con aristas anteriores a un cambio nunca sustituye a la que ya lo tiene, y nadie sobrescribe
+ * un bucket publicado en el que otro esté añadiendo o quitando entradas.
+ */
+@Component
+public class FriendAdjacencyStore {
+
+  private static final Logger log = LoggerFactory.getLogger(FriendAdjacencyStore.class);
+
+  private static final String ACCEPTED = "accepted";
+  private static final String PENDING = "pending";
+  // Cada recálculo usa su propia colección auxiliar (<prefijo><inicio en ms>_<aleatorio>): todas las instancias
+  // reconcilian y ninguna debe borrar la que otra está leyendo
+  private static final String REBUILD_COLLECTION_PREFIX = "friendAdjacencyRebuild_";
+  private static final Duration ABANDONED_REBUILD_AGE = Duration.ofDays(1);
+
+  private static final Comparator<Friendship> NEWEST_FIRST = Comparator
+      .comparing(Friendship::getCreatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+      .thenComparing(Friendship::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+      .reversed();
+
+  private final MongoTemplate mongoTemplate;
+  private final FriendshipRepository friendshipRepository;
+
+  @Value("${friends.adjacency.bucket-size:500}")
+  private int bucketSize;
+
+  public FriendAdjacencyStore(MongoTemplate mongoTemplate, FriendshipRepository friendshipRepository) {
+    this.mongoTemplate = mongoTemplate;
+    this.friendshipRepository = friendshipRepository;
+  }
+
+  /**
+   * Amistades de {@code userId} en {@code status}, de la más reciente a la más antigua.
+   */
+  public List<Friendship> find(String userId, String status) {
+    FriendAdjacencyHead head = mongoTemplate.findById(headId(userId, status), FriendAdjacencyHead.class);
+    if (head != null && head.isMaterialized()) {
+      List<FriendAdjacency> buckets = mongoTemplate.find(
+          new Query(Criteria.where("_id").in(head.getBuckets())), FriendAdjacency.class);
+      if (buckets.size() == head.getBuckets().size()) {
+        List<Friendship> friendships = new ArrayList<>();
+        for (FriendAdjacency bucket : buckets) {
+          for (FriendAdjacency.Entry entry : bucket.getEntries()) {
+            friendships.add(toFriendship(entry, status));
+          }
+        }
+        friendships.sort(NEWEST_FIRST);
+        return friendships;
+      }
+      // Falta algún bucket (se reemplazó la lista entre las dos lecturas o quedó a medias): se vuelve a construir
+      head = invalidate(userId, status);
+    }
+    return materialize(userId, status, head == null ? 0 : head.getVersion());
+  }
+
+  public void onCreated(Friendship friendship) {
+    add(friendship, PENDING);
+  }
+
+  public void onAccepted(Friendship friendship) {
+    remove(friendship, PENDING);
+    add(friendship, ACCEPTED);
+  }
+
+  public void onRemoved(Friendship friendship) {
+    remove(friendship, friendship.getStatus());
+  }
+
+  private void add(Friendship friendship, String status) {
+    for (String userId : List.of(friendship.getRequesterId(), friendship.getFriendId())) {
+      try {
+        FriendAdjacencyHead head = bump(userId, status);
+        if (!head.isMaterialized()) {
+          // La materialización en curso, si la hay, ya no se publicará; la siguiente lectura incluye esta amistad
+          continue;
+        }
+        Query published = new Query(Criteria.where("_id").in(head.getBuckets()));
+        Query alreadyPresent = Query.of(published)
+            .addCriteria(Criteria.where("entries.friendshipId").is(friendship.getId()));
+        if (mongoTemplate.exists(alreadyPresent, FriendAdjacency.class)) {
+          continue;
+        }
+
+        Query openBucket = Query.of(published).addCriteria(Criteria.where("count").lt(bucketSize));
+        Update push = new Update()
+            .push("entries", toEntry(friendship))
+            .inc("count", 1)
+            .currentDate("updatedAt");
+        if (mongoTemplate.updateFirst(openBucket, push, FriendAdjacency.class).getMatchedCount() == 0) {
+          appendBucket(head, friendship);
+        }
+      } catch (RuntimeException e) {
+        log.error("No se pudo actualizar la lista {} de {}: {}", status, userId, e.getMessage());
+        invalidate(userId, status);
+      }
+    }
+  }
+
+  // Todos los buckets llenos: se escribe uno nuevo y se añade a la lista si nadie la ha reemplazado entretanto (si
+  // la reemplazaron, quien lo hizo leyó las aristas después de nuestro bump y ya incluye esta amistad)
+  private void appendBucket(FriendAdjacencyHead head, Friendship friendship) {
+    String id = allocate(head.getUserId(), head.getStatus(), 1).get(0);
+    mongoTemplate.save(bucket(id, head.getUserId(), head.getStatus(), List.of(toEntry(friendship))));
+    Query sameGeneration = new Query(Criteria.where("_id").is(head.getId())
+        .and("generation").is(head.getGeneration())
+        .and("materialized").is(true));
+    Update link = new Update().push("buckets", id).currentDate("updatedAt");
+    if (mongoTemplate.updateFirst(sameGeneration, link, FriendAdjacencyHead.class).getMatchedCount() == 0) {
+      discard(List.of(id));
+    }
+  }
+
+  private void remove(Friendship friendship, String status) {
+    for (String userId : List.of(friendship.getRequesterId(), friendship.getFriendId())) {
+      try {
+        FriendAdjacencyHead head = bump(userId, status);
+        if (!head.isMaterialized()) {
+          continue;
+        }
+        Query containing = new Query(Criteria.where("_id").in(head.getBuckets())
+            .and("entries.friendshipId").is(friendship.getId()));
+        Update pull = new Update()
+            .pull("entries", new Document("friendshipId", friendship.getId()))
+            .inc("count", -1)
+            .currentDate("updatedAt");
+        mongoTemplate.updateMulti(containing, pull, FriendAdjacency.class);
+      } catch (RuntimeException e) {
+        log.error("No se pudo actualizar la lista {} de {}: {}", status, userId, e.getMessage());
+        invalidate(userId, status);
+      }
+    }
+  }
+
+  // version es la de la cabecera leída antes de las aristas
+  private List<Friendship> materialize(String userId, String status, long version) {
+    List<Friendship> friendships = new ArrayList<>(friendshipRepository.findByParticipantAndStatus(userId, status));
+    friendships.sort(NEWEST_FIRST);
+
+    List<List<FriendAdjacency.Entry>> slices = new ArrayList<>();
+    for (int from = 0; from == 0 || from < friendships.size(); from += bucketSize) {
+      slices.add(friendships.subList(from, Math.min(from + bucketSize, friendships.size())).stream()
+          .map(FriendAdjacencyStore::toEntry)
+          .collect(Collectors.toList()));
+    }
+    try {
+      publish(userId, status, version, slices);
+    } catch (RuntimeException e) {
+      log.error("No se pudo materializar la lista {} de {}: {}", status, userId, e.getMessage());
+    }
+    return friendships;
+  }
+
+  /**
+   * Escribe {@code slices} en buckets nuevos y los publica solo si la versión de la lista sigue siendo
+   * {@code version}; los buckets que dejan de estar publicados (los anteriores, o los nuevos si no se publicaron) se
+   * borran. Devuelve si se publicó.
+   */
+  private boolean publish(String userId, String status, long version, List<List<FriendAdjacency.Entry>> slices) {
+    List<String> ids = allocate(userId, status, slices.size());
+    FriendAdjacencyHead previous;
+    try {
+      for (int i = 0; i < slices.size(); i++) {
+        // save y no insert: con ese número solo puede haber un resto de un intento fallido, que nadie lee
+        mongoTemplate.save(bucket(ids.get(i), userId, status, slices.get(i)));
+      }
+      previous = mongoTemplate.findAndModify(
+          new Query(Criteria.where("_id").is(headId(userId, status)).and("version").is(version)),
+          new Update()
+              .set("materialized", true)
+              .set("buckets", ids)
+              .inc("generation", 1)
+              .currentDate("updatedAt"),
+          FriendAdjacencyHead.class);
+    } catch (RuntimeException e) {
+      discard(ids);
+      throw e;
+    }
+    discard(previous == null ? ids : previous.getBuckets());
+    return previous != null;
+  }
+
+  // Sube la versión de la lista (creando su cabecera si no existe) y devuelve la cabecera resultante
+  private FriendAdjacencyHead bump(String userId, String status) {
+    return mongoTemplate.findAndModify(
+        new Query(Criteria.where("_id").is(headId(userId, status))),
+        newHead(userId, status).inc("version", 1).currentDate("updatedAt"),
+        FindAndModifyOptions.options().upsert(true).returnNew(true),
+        FriendAdjacencyHead.class);
+  }
+
+  // Reserva count números de bucket consecutivos; no cambia la versión
+  private List<String> allocate(String userId, String status, int count) {
+    FriendAdjacencyHead head = mongoTemplate.findAndModify(
+        new Query(Criteria.where("_id").is(headId(userId, status))),
+        newHead(userId, status).setOnInsert("version", 0L).inc("nextBucket", count),
+        FindAndModifyOptions.options().upsert(true).returnNew(true),
+        FriendAdjacencyHead.class);
+    List<String> ids = new ArrayList<>();
+    for (int number = head.getNextBucket() - count; number < head.getNextBucket(); number++) {
+      ids.add(headId(userId, status) + ":" + number);
+    }
+    return ids;
+  }
+
+  private static Update newHead(String userId, String status) {
+    return new Update()
+        .setOnInsert("userId", userId)
+        .setOnInsert("status", status)
+        .setOnInsert("materialized", false);
+  }
+
+  // Marca la lista como no materializada; la versión también sube para que no se publique ninguna construcción en
+  // curso. Sus buckets se borran en la siguiente publicación.
+  private FriendAdjacencyHead invalidate(String userId, String status) {
+    try {
+      return mongoTemplate.findAndModify(
+          new Query(Criteria.where("_id").is(headId(userId, status))),
+          new Update().inc("version", 1).set("materialized", false).currentDate("updatedAt"),
+          FindAndModifyOptions.options().returnNew(true),
+          FriendAdjacencyHead.class);
+    } catch (RuntimeException e) {
+      log.error("No se pudo invalidar la lista {} de {}: {}", status, userId, e.getMessage());
+      return null;
+    }
+  }
+
+  private void discard(List<String> ids) {
+    if (ids.isEmpty()) {
+      return;
+    }
+    try {
+      mongoTemplate.remove(new Query(Criteria.where("_id").in(ids)), FriendAdjacency.class);
+    } catch (RuntimeException e) {
+      log.error("No se pudieron borrar los buckets {}: {}", ids, e.getMessage());
+    }
+  }
+
+  /**
+   * Recalcula desde friendship, con una agregación que escribe en una colección auxiliar, todas las listas
+   * materializadas que no han cambiado desde que empezó, y las publica con la misma comprobación de versión que la
+   * primera lectura. Las que cambiaron se dejan como están: se mantuvieron en el sitio. Una lista solo se publica
+   * vacía si friendship confirma que no tiene ninguna amistad en ese estado.
+   */
+  public void rebuildAll() {
+    Date start = mongoTemplate.executeCommand(new Document("hello", 1)).getDate("localTime");
+    String collection = mongoTemplate.getCollectionName(Friendship.class);
+    dropAbandonedRebuilds(start);
+    String staging = REBUILD_COLLECTION_PREFIX + start.getTime() + "_"
+        + UUID.randomUUID().toString().substring(0, 8);
+
+    List<Document> pipeline = List.of(
+        Document.parse("{ $match: { status: { $in: ['" + PENDING + "', '" + ACCEPTED + "'] },"
+            + " requesterId: { $ne: null }, friendId: { $ne: null } } }"),
+        Document.parse("{ $project: { status: 1, userIds: ['$requesterId', '$friendId'],"
+            + " entry: { friendshipId: { $toString: '$_id' }, requesterId: '$requesterId', friendId: '$friendId',"
+            + " createdAt: '$createdAt', requesterUsername: '$requesterUsername',"
+            + " requesterPhotoUrl: '$requesterPhotoUrl', friendUsername: '$friendUsername',"
+            + " friendPhotoUrl: '$friendPhotoUrl' } } }"),
+        Document.parse("{ $unwind: '$userIds' }"),
+        Document.parse("{ $sort: { 'entry.createdAt': -1, _id: -1 } }"),
+        Document.parse("{ $group: { _id: { userId: '$userIds', status: '$status' }, entries: { $push: '$entry' } } }"),
+        Document.parse("{ $project: { _id: 0, userId: '$_id.userId', status: '$_id.status',"
+            + " buckets: { $map: { input: { $range: [0, { $size: '$entries' }, " + bucketSize + "] }, as: 'start',"
+            + " in: { $slice: ['$entries', '$$start', " + bucketSize + "] } } } } }"),
+        Document.parse("{ $unwind: { path: '$buckets', includeArrayIndex: 'bucket' } }"),
+        Document.parse("{ $project: { _id: { $concat: ['$userId', ':', '$status', ':', { $toString: '$bucket' }] },"
+            + " userId: 1, status: 1, bucket: 1, entries: '$buckets', count: { $size: '$buckets' } } }"),
+        Document.parse("{ $out: '" + staging + "' }"));
+
+    int published = 0;
+    int skipped = 0;
+    try {
+      mongoTemplate.getCollection(collection).aggregate(pipeline).allowDiskUse(true).toCollection();
+      mongoTemplate.indexOps(staging).ensureIndex(new Index()
+          .on("userId", Sort.Direction.ASC).on("status", Sort.Direction.ASC).on("bucket", Sort.Direction.ASC));
+
+      Query unchanged = new Query(Criteria.where("materialized").is(true).and("updatedAt").lt(start));
+      try (Stream<FriendAdjacencyHead> heads = mongoTemplate.stream(unchanged, FriendAdjacencyHead.class)) {
+        for (FriendAdjacencyHead head : (Iterable<FriendAdjacencyHead>) heads::iterator) {
+          if (rebuild(head, staging)) {
+            published++;
+          } else {
+            skipped++;
+          }
+        }
+      }
+    } finally {
+      mongoTemplate.dropCollection(staging);
+    }
+    log.info("Listas de amistades recalculadas: {}; {} cambiaron durante el recálculo o no se pudieron comprobar y se "
+        + "dejaron como estaban", published, skipped);
+  }
+
+  // Devuelve si se publicó
+  private boolean rebuild(FriendAdjacencyHead head, String staging) {
+    Query staged = new Query(Criteria.where("userId").is(head.getUserId()).and("status").is(head.getStatus()))
+        .with(Sort.by("bucket"));
+    List<List<FriendAdjacency.Entry>> slices = mongoTemplate.find(staged, FriendAdjacency.class, staging)
+        .stream()
+        .map(FriendAdjacency::getEntries)
+        .collect(Collectors.toCollection(ArrayList::new));
+    try {
+      if (slices.isEmpty()) {
+        // Que la colección auxiliar no tenga nada no basta para vaciar la lista: se comprueba en friendship
+        Query any = new Query(Criteria.where("status").is(head.getStatus()).orOperator(
+            Criteria.where("requesterId").is(head.getUserId()),
+            Criteria.where("friendId").is(head.getUserId())));
+        if (mongoTemplate.exists(any, Friendship.class)) {
+          log.warn("La colección auxiliar no tiene la lista {} de {}; se deja como está", head.getStatus(),
+              head.getUserId());
+          return false;
+        }
+        slices.add(List.of());
+      }
+      return publish(head.getUserId(), head.getStatus(), head.getVersion(), slices);
+    } catch (RuntimeException e) {
+      log.error("No se pudo recalcular la lista {} de {}: {}", head.getStatus(), head.getUserId(), e.getMessage());
+      return false;
+    }
+  }
+
+  // Colecciones auxiliares de recálculos que se interrumpieron sin llegar a borrarlas
+  private void dropAbandonedRebuilds(Date now) {
+    long cutoff = now.getTime() - ABANDONED_REBUILD_AGE.toMillis();
+    for (String name : mongoTemplate.getCollectionNames()) {
+      if (!name.startsWith(REBUILD_COLLECTION_PREFIX)) {
+        continue;
+      }
+      String startedAt = name.substring(REBUILD_COLLECTION_PREFIX.length()).split("_", 2)[0];
+      try {
+        if (Long.parseLong(startedAt) < cutoff) {
+          mongoTemplate.dropCollection(name);
+        }
+      } catch (NumberFormatException e) {
+        // No es de este recálculo
+      }
+    }
+  }
+
+
+  /**
+   * Copia el nombre y la foto de cada usuario en todas las entradas en las que aparece, en las listas de sus amigos y
+   * en las suyas propias, con una sola escritura bulk. Antes sube la versión de esas listas, para que no se publique
+   * una construida con los nombres anteriores.
+   */
+  public void updateProfiles(Collection<ProfileChange> changes) {
+    if (changes.isEmpty()) {
+      return;
+    }
+    Set<String> userIds = changes.stream().map(ProfileChange::getUserId).collect(Collectors.toSet());
+    Query participants = new Query(new Criteria().orOperator(
+        Criteria.where("requesterId").in(userIds),
+        Criteria.where("friendId").in(userIds)));
+    participants.fields().include("requesterId", "friendId");
+    Set<String> owners = new HashSet<>(userIds);
+    for (Friendship friendship : mongoTemplate.find(participants, Friendship.class)) {
+      owners.add(friendship.getRequesterId());
+      owners.add(friendship.getFriendId());
+    }
+    mongoTemplate.updateMulti(new Query(Criteria.where("userId").in(owners)),
+        new Update().inc("version", 1).currentDate("updatedAt"), FriendAdjacencyHead.class);
+
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, FriendAdjacency.class);
+    for (ProfileChange change : changes) {
+      bulk.updateMulti(new Query(Criteria.where("entries.requesterId").is(change.getUserId())),
+          new Update()
+              .set("entries.$[e].requesterUsername", change.getUsername())
+              .set("entries.$[e].requesterPhotoUrl", change.getPhotoUrl())
+              .filterArray(Criteria.where("e.requesterId").is(change.getUserId())));
+      bulk.updateMulti(new Query(Criteria.where("entries.friendId").is(change.getUserId())),
+          new Update()
+              .set("entries.$[e].friendUsername", change.getUsername())
+              .set("entries.$[e].friendPhotoUrl", change.getPhotoUrl())
+              .filterArray(Criteria.where("e.friendId").is(change.getUserId())));
+    }
+    bulk.execute();
+  }
+
+  private static String headId(String userId, String status) {
+    return userId + ":" + status;
+  }
+
+  private static FriendAdjacency bucket(String id, String userId, String status, List<FriendAdjacency.Entry> entries) {
+    FriendAdjacency adjacency = new FriendAdjacency();
+    adjacency.setId(id);
+    adjacency.setUserId(userId);
+    adjacency.setStatus(status);
+    adjacency.setCount(entries.size());
+    adjacency.setEntries(new ArrayList<>(entries));
+    adjacency.setUpdatedAt(new Date());
+    return adjacency;
+  }
+
+  private static FriendAdjacency.Entry toEntry(Friendship friendship) {
+    FriendAdjacency.Entry entry = new FriendAdjacency.Entry();
+    entry.setFriendshipId(friendship.getId());
+    entry.setRequesterId(friendship.getRequesterId());
+    entry.setFriendId(friendship.getFriendId());
+    entry.setCreatedAt(friendship.getCreatedAt());
+    entry.setRequesterUsername(friendship.getRequesterUsername());
+    entry.setRequesterPhotoUrl(friendship.getRequesterPhotoUrl());
+    entry.setFriendUsername(friendship.getFriendUsername());
+    entry.setFriendPhotoUrl(friendship.getFriendPhotoUrl());
+    return entry;
+  }
+
+  private static Friendship toFriendship(FriendAdjacency.Entry entry, String status) {
+    Friendship friendship = new Friendship();
+    friendship.setId(entry.getFriendshipId());
+    friendship.setRequesterId(entry.getRequesterId());
+    friendship.setFriendId(entry.getFriendId());
+    friendship.setCreatedAt(entry.getCreatedAt());
+    friendship.setStatus(status);
+    friendship.setRequesterUsername(entry.getRequesterUsername());
+    friendship.setRequesterPhotoUrl(entry.getRequesterPhotoUrl());
+    friendship.setFriendUsername(entry.getFriendUsername());
+    friendship.setFriendPhotoUrl(entry.getFriendPhotoUrl());
+    return friendship;
+  }
+}
@@ -0,0 +1,143 @@
+package org.example.bookfriendship.Service;
+
+import org.example.bookfriendship.Model.Friendship;
+import org.example.bookfriendship.Repository.FriendshipRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Conjunto de amigos aceptados por usuario en Redis ({@code friends:{userId}}), para responder si dos usuarios son
+ * amigos con un SMISMEMBER en lugar de consultar Mongo. El conjunto lleva un centinela que distingue "sin amigos" de
+ * "no cargado"; se carga desde Mongo la primera vez que se consulta y se actualiza en el sitio al aceptar o eliminar
+ * una amistad, solo si ya estaba cargado.
+ * <p>
+ * Cada cambio incrementa además una generación por usuario ({@code friendsGen:{userId}}). La carga anota la
+ * generación antes de leer Mongo y solo escribe el conjunto si sigue igual, así que una carga que leyó Mongo antes de
+ * un cambio no puede dejar en Redis un amigo ya eliminado (o faltar uno recién aceptado).
+ * <p>
+ * Book lee también este conjunto (sin el centinela) al cambiar un perfil, para invalidar en el gateway las listas de
+ * amigos cacheadas que lo muestran.
+ */
+@Component
+public class FriendMembershipIndex {
+
+  private static final String KEY_PREFIX = "friends:";
+  private static final String GENERATION_PREFIX = "friendsGen:";
+  private static final String LOADED = "__loaded__";
+
+  // Invalida las cargas en curso y solo modifica el conjunto si ya está cargado; si no, la próxima lectura lo carga
+  // completo desde Mongo
+  private static final RedisScript<Long> ADD_IF_LOADED = new DefaultRedisScript<>(
+      "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[3]) "
+          + "if redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 1 then return redis.call('SADD', KEYS[1], ARGV[2]) end "
+          + "return 0",
+      Long.class);
+  private static final RedisScript<Long> REMOVE_IF_LOADED = new DefaultRedisScript<>(
+      "redis.call('INCR', KEYS[2]) redis.call('EXPIRE', KEYS[2], ARGV[3]) "
+          + "if redis.call('SISMEMBER', KEYS[1], ARGV[1]) == 1 then return redis.call('SREM', KEYS[1], ARGV[2]) end "
+          + "return 0",
+      Long.class);
+
+  // Reemplaza el conjunto solo si la generación no cambió desde que se leyó Mongo; SADD por bloques para no pasar
+  // del límite de argumentos de unpack
+  private static final RedisScript<Long> LOAD_IF_UNCHANGED = new DefaultRedisScript<>(
+      "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end "
+          + "redis.call('DEL', KEYS[1]) "
+          + "for i = 3, #ARGV, 1000 do redis.call('SADD', KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV))) end "
+          + "redis.call('EXPIRE', KEYS[1], ARGV[2]) "
+          + "return 1",
+      Long.class);
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final FriendshipRepository friendshipRepository;
+
+  @Value("${friends.membership.ttl:PT10M}")
+  private Duration ttl;
+
+  // Mucho más larga que cualquier carga, para que la generación no desaparezca con una carga en curso
+  @Value("${friends.membership.generation-ttl:P1D}")
+  private Duration generationTtl;
+
+  public FriendMembershipIndex(RedisTemplate<String, Object> redisTemplate,
+      FriendshipRepository friendshipRepository) {
+    this.redisTemplate = redisTemplate;
+    this.friendshipRepository = friendshipRepository;
+  }
+
+  public boolean areFriends(String userId, String otherId) {
+    return !friendsAmong(userId, List.of(otherId)).isEmpty();
+  }
+
+  /**
+   * Devuelve, en el orden recibido, los ids de {@code candidateIds} que son amigos aceptados de {@code userId}. Una
+   * sola ida y vuelta a Redis cuando el conjunto ya está cargado.
+   */
+  public List<String> friendsAmong(String userId, Collection<String> candidateIds) {
+    Set<String> candidates = new LinkedHashSet<>(candidateIds);
+    candidates.remove(LOADED);
+    if (candidates.isEmpty()) {
+      return List.of();
+    }
+
+    List<Object> members = new ArrayList<>(candidates.size() + 1);
+    members.add(LOADED);
+    members.addAll(candidates);
+    Map<Object, Boolean> membership = redisTemplate.opsForSet().isMember(KEY_PREFIX + userId, members.toArray());
+    if (membership != null && Boolean.TRUE.equals(membership.get(LOADED))) {
+      return candidates.stream()
+          .filter(candidate -> Boolean.TRUE.equals(membership.get(candidate)))
+          .collect(Collectors.toList());
+    }
+
+    Set<String> friends = load(userId);
+    return candidates.stream().filter(friends::contains).collect(Collectors.toList());
+  }
+
+  public void onAccepted(Friendship friendship) {
+    change(ADD_IF_LOADED, friendship.getRequesterId(), friendship.getFriendId());
+    change(ADD_IF_LOADED, friendship.getFriendId(), friendship.getRequesterId());
+  }
+
+  public void onRemoved(Friendship friendship) {
+    change(REMOVE_IF_LOADED, friendship.getRequesterId(), friendship.getFriendId());
+    change(REMOVE_IF_LOADED, friendship.getFriendId(), friendship.getRequesterId());
+  }
+
+  private void change(RedisScript<Long> script, String userId, String friendId) {
+    redisTemplate.execute(script, List.of(KEY_PREFIX + userId, GENERATION_PREFIX + userId), LOADED, friendId,
+        generationTtl.toSeconds());
+  }
+
+  private Set<String> load(String userId) {
+    Object generation = redisTemplate.opsForValue().get(GENERATION_PREFIX + userId);
+    long observed = generation instanceof Number number ? number.longValue() : 0;
+
+    Set<String> friends = friendshipRepository.findByParticipantAndStatus(userId, "accepted").stream()
+        .map(friendship -> friendship.getRequesterId().equals(userId)
+            ? friendship.getFriendId()
+            : friendship.getRequesterId())
+        .collect(Collectors.toSet());
+
+    // Si hubo un cambio entre medias no se escribe nada: lo leído sirve para esta respuesta y la siguiente recarga
+    List<Object> args = new ArrayList<>(friends.size() + 3);
+    args.add(observed);
+    args.add(ttl.toSeconds());
+    args.add(LOADED);
+    args.addAll(friends);
+    redisTemplate.execute(LOAD_IF_UNCHANGED, List.of(KEY_PREFIX + userId, GENERATION_PREFIX + userId),
+        args.toArray());
+    return friends;
+  }
+}
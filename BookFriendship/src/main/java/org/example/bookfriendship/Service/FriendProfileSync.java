@@ -0,0 +1,491 @@
+package org.example.bookfriendship.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.example.bookfriendship.Model.Friendship;
+import org.example.bookfriendship.Model.ProfileChange;
+import org.example.bookfriendship.util.CacheAside;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene al día el nombre y la foto copiados en las amistades (y en las listas de {@link FriendAdjacencyStore}).
+ * <ul>
+ *   <li>Los cambios de perfil que publica Book se aplican en cuanto llegan ({@link ProfileEventConsumer}).</li>
+ *   <li>Por si algún cambio no llega a aplicarse, un barrido vuelve a copiar desde Book (en Mongo y en las listas
+ *   cacheadas) las amistades con algún lado sincronizado hace más de {@code friends.profiles.max-staleness}. Los
+ *   cambios aplicados por evento cuentan como sincronización de ese lado, así que el barrido solo recorre lo que los
+ *   eventos no han tocado, y lo recorre entero: mientras quepa en {@code friends.profiles.sweep-max-duration}
+ *   ({@code friendships.profiles.sweep_backlog} dice cuánto hay), ninguna copia queda más vieja que eso más un
+ *   intervalo de barrido.</li>
+ *   <li>Una comprobación periódica compara una muestra con Book, publica la proporción de diferencias y las corrige.</li>
+ * </ul>
+ */
+@Component
+public class FriendProfileSync {
+
+  private static final Logger log = LoggerFactory.getLogger(FriendProfileSync.class);
+
+  // Listas cacheadas que muestran el nombre y la foto de los amigos
+  private static final List<String> LIST_CACHE_PREFIXES = List.of("friendsDto:", "pendingFriendships:",
+      "friendsDtoPages:", "pendingFriendshipsPages:");
+  // Listas de entidades Friendship (GET /{userId}), con el nombre y la foto de ambos lados: se invalidan en lugar de
+  // parchearse, su recálculo es una sola consulta a Mongo
+  private static final String FRIENDSHIPS_CACHE_PREFIX = "friendships:";
+  private static final String USER_CACHE_PREFIX = "user:";
+  private static final int PATCH_KEYS_PER_CALL = 500;
+
+  // La primera mitad de KEYS son las claves y la segunda sus generaciones (CacheAside.generationKey), en el mismo
+  // orden. KEYS[1] es el resumen user:{id} (mapa JSON); el resto, listas de FriendshipDto (JSON en un string) o
+  // páginas (hash de FriendshipPageDto). Se reescriben solo las que cambian y conservando su TTL, y todas las
+  // generaciones suben: un cálculo de esas claves que leyó las amistades antes del cambio ya no podrá guardarse.
+  private static final byte[] PATCH_CACHED_PROFILE = (""
+      + "local userId, username = ARGV[1], ARGV[2]\n"
+      + "local photoUrl = ARGV[3]\n"
+      + "local n = #KEYS / 2\n"
+      + "if photoUrl == '' then photoUrl = cjson.null end\n"
+      + "local function patch(items)\n"
+      + "  local changed = false\n"
+      + "  for _, item in ipairs(items) do\n"
+      + "    if type(item) == 'table' and item['friendId'] == userId then\n"
+      + "      item['friendUsername'] = username\n"
+      + "      item['photoUrl'] = photoUrl\n"
+      + "      changed = true\n"
+      + "    end\n"
+      + "  end\n"
+      + "  return changed\n"
+      + "end\n"
+      + "local patched = 0\n"
+      + "for i = 1, n do\n"
+      + "  local key = KEYS[i]\n"
+      + "  redis.call('INCR', KEYS[n + i])\n"
+      + "  redis.call('PEXPIRE', KEYS[n + i], ARGV[4])\n"
+      + "  local kind = redis.call('TYPE', key)['ok']\n"
+      + "  if kind == 'string' then\n"
+      + "    local value = cjson.decode(redis.call('GET', key))\n"
+      + "    local changed = false\n"
+      + "    if i == 1 then\n"
+      + "      value['username'] = username\n"
+      + "      value['PhotoUrl'] = photoUrl\n"
+      + "      changed = true\n"
+      + "    elseif type(value) == 'table' then\n"
+      + "      changed = patch(value)\n"
+      + "    end\n"
+      + "    if changed then\n"
+      + "      redis.call('SET', key, cjson.encode(value), 'KEEPTTL')\n"
+      + "      patched = patched + 1\n"
+      + "    end\n"
+      + "  elseif kind == 'hash' then\n"
+      + "    local fields = redis.call('HGETALL', key)\n"
+      + "    for f = 1, #fields, 2 do\n"
+      + "      local page = cjson.decode(fields[f + 1])\n"
+      + "      if type(page) == 'table' and type(page['items']) == 'table' and patch(page['items']) then\n"
+      + "        redis.call('HSET', key, fields[f], cjson.encode(page))\n"
+      + "        patched = patched + 1\n"
+      + "      end\n"
+      + "    end\n"
+      + "  end\n"
+      + "end\n"
+      + "return patched").getBytes(StandardCharsets.UTF_8);
+
+  private final MongoTemplate mongoTemplate;
+  private final StringRedisTemplate stringRedisTemplate;
+  private final FriendshipService friendshipService;
+  private final FriendAdjacencyStore friendAdjacencyStore;
+  private final CacheAside cacheAside;
+  private final AtomicReference<Double> mismatchRatio = new AtomicReference<>(0.0);
+  private final AtomicLong sweepBacklog = new AtomicLong();
+  private final Counter repaired;
+
+  @Value("${friends.profiles.max-staleness:PT1H}")
+  private Duration maxStaleness;
+
+  // Tamaño de cada consulta a Book del barrido; no debe superar users.batch.max-size de Book
+  @Value("${friends.profiles.sweep-batch-size:500}")
+  private int sweepBatchSize;
+
+  @Value("${friends.profiles.sweep-max-duration:PT4M}")
+  private Duration sweepMaxDuration;
+
+  @Value("${friends.profiles.check-sample-size:200}")
+  private int checkSampleSize;
+
+  public FriendProfileSync(MongoTemplate mongoTemplate, StringRedisTemplate stringRedisTemplate,
+      FriendshipService friendshipService, FriendAdjacencyStore friendAdjacencyStore, CacheAside cacheAside,
+      MeterRegistry meterRegistry) {
+    this.mongoTemplate = mongoTemplate;
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.friendshipService = friendshipService;
+    this.friendAdjacencyStore = friendAdjacencyStore;
+    this.cacheAside = cacheAside;
+    this.repaired = Counter.builder("friendships.profiles.repaired")
+        .description("Usuarios cuya copia de perfil no coincidía con Book en la comprobación")
+        .register(meterRegistry);
+    Gauge.builder("friendships.profiles.sweep_backlog", sweepBacklog, AtomicLong::get)
+        .description("Amistades pendientes de volver a copiar desde Book al empezar el último barrido")
+        .register(meterRegistry);
+    Gauge.builder("friendships.profiles.mismatch_ratio", mismatchRatio, AtomicReference::get)
+        .description("Proporción de amistades de la última muestra con nombre o foto desactualizados")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Copia el perfil de cada usuario en todas sus amistades y listas materializadas, y corrige en el sitio las listas
+   * cacheadas de sus amigos y su resumen {@code user:{id}} (sin vaciarlas, para no enfriar la caché de todos ellos).
+   * Es idempotente: aplicar dos veces el mismo cambio deja el mismo resultado.
+   */
+  public void applyAll(Collection<ProfileChange> changes) {
+    apply(changes, null);
+  }
+
+  // Con fetchedAt (la hora a la que se leyó Book), solo se escriben los lados que nadie ha sincronizado desde
+  // entonces, y los usuarios con algún lado más reciente se dejan fuera de las listas materializadas y cacheadas: un
+  // evento aplicado mientras tanto ya trae un perfil más nuevo que el leído.
+  private void apply(Collection<ProfileChange> changes, Date fetchedAt) {
+    List<ProfileChange> valid = changes.stream()
+        .filter(change -> change.getUserId() != null && change.getUsername() != null)
+        .collect(Collectors.toList());
+    if (valid.isEmpty()) {
+      return;
+    }
+
+    Date now = fetchedAt == null ? new Date() : fetchedAt;
+    BulkOperations edges = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Friendship.class);
+    for (ProfileChange change : valid) {
+      edges.updateMulti(new Query(notSyncedSince(Criteria.where("requesterId").is(change.getUserId()), "requester",
+          fetchedAt)), copySide("requester", "friend", change, now));
+      edges.updateMulti(new Query(notSyncedSince(Criteria.where("friendId").is(change.getUserId()), "friend",
+          fetchedAt)), copySide("friend", "requester", change, now));
+    }
+    edges.execute();
+    if (fetchedAt != null) {
+      valid = withoutNewerProfiles(valid, fetchedAt);
+      if (valid.isEmpty()) {
+        return;
+      }
+    }
+    friendAdjacencyStore.updateProfiles(valid);
+
+    patchCachedLists(valid, counterparts(valid));
+  }
+
+  private static Criteria notSyncedSince(Criteria criteria, String side, Date fetchedAt) {
+    if (fetchedAt == null) {
+      return criteria;
+    }
+    return criteria.orOperator(
+        Criteria.where(side + "SyncedAt").is(null),
+        Criteria.where(side + "SyncedAt").lt(fetchedAt));
+  }
+
+  // Quita los usuarios con algún lado sincronizado después de fetchedAt, es decir, por un evento posterior a la
+  // lectura de Book
+  private List<ProfileChange> withoutNewerProfiles(List<ProfileChange> changes, Date fetchedAt) {
+    List<String> userIds = changes.stream().map(ProfileChange::getUserId).collect(Collectors.toList());
+    Query newer = new Query(new Criteria().orOperator(
+        Criteria.where("requesterId").in(userIds).and("requesterSyncedAt").gt(fetchedAt),
+        Criteria.where("friendId").in(userIds).and("friendSyncedAt").gt(fetchedAt)));
+    newer.fields().include("requesterId", "friendId", "requesterSyncedAt", "friendSyncedAt");
+
+    LocalDateTime since = LocalDateTime.ofInstant(fetchedAt.toInstant(), ZoneId.systemDefault());
+    Set<String> skipped = new HashSet<>();
+    for (Friendship friendship : mongoTemplate.find(newer, Friendship.class)) {
+      if (friendship.getRequesterSyncedAt() != null && friendship.getRequesterSyncedAt().isAfter(since)) {
+        skipped.add(friendship.getRequesterId());
+      }
+      if (friendship.getFriendSyncedAt() != null && friendship.getFriendSyncedAt().isAfter(since)) {
+        skipped.add(friendship.getFriendId());
+      }
+    }
+    if (skipped.isEmpty()) {
+      return changes;
+    }
+    return changes.stream().filter(change -> !skipped.contains(change.getUserId())).collect(Collectors.toList());
+  }
+
+  // Copia el perfil en un lado de la amistad y lo marca como sincronizado. profilesSyncedAt pasa a ser el más antiguo
+  // de los dos lados, o sigue siendo null si el otro no se ha copiado nunca: un evento de un usuario no cuenta como
+  // sincronización de su amigo.
+  private static AggregationUpdate copySide(String side, String otherSide, ProfileChange change, Date now) {
+    Document other = new Document("$ifNull", Arrays.asList("$" + otherSide + "SyncedAt", "$profilesSyncedAt"));
+    Document set = new Document()
+        .append(side + "Username", new Document("$literal", change.getUsername()))
+        .append(side + "PhotoUrl", new Document("$literal", change.getPhotoUrl()))
+        .append(side + "SyncedAt", now)
+        .append("profilesSyncedAt", new Document("$cond", Arrays.asList(
+            new Document("$eq", Arrays.asList(new Document("$type", other), "date")),
+            new Document("$min", Arrays.asList(other, now)),
+            null)));
+    return AggregationUpdate.from(List.of(context -> new Document("$set", set)));
+  }
+
+  // Amigos y solicitudes de cada usuario, con una sola consulta para todo el lote
+  private Map<String, Set<String>> counterparts(List<ProfileChange> changes) {
+    List<String> userIds = changes.stream().map(ProfileChange::getUserId).collect(Collectors.toList());
+    Query participants = new Query(new Criteria().orOperator(
+        Criteria.where("requesterId").in(userIds),
+        Criteria.where("friendId").in(userIds)));
+    participants.fields().include("requesterId", "friendId");
+
+    Set<String> changed = new HashSet<>(userIds);
+    Map<String, Set<String>> counterparts = new HashMap<>();
+    for (Friendship friendship : mongoTemplate.find(participants, Friendship.class)) {
+      if (changed.contains(friendship.getRequesterId())) {
+        counterparts.computeIfAbsent(friendship.getRequesterId(), id -> new HashSet<>()).add(friendship.getFriendId());
+      }
+      if (changed.contains(friendship.getFriendId())) {
+        counterparts.computeIfAbsent(friendship.getFriendId(), id -> new HashSet<>()).add(friendship.getRequesterId());
+      }
+    }
+    return counterparts;
+  }
+
+  private void patchCachedLists(List<ProfileChange> changes, Map<String, Set<String>> counterparts) {
+    byte[] generationTtlMillis = String.valueOf(cacheAside.generationTtl().toMillis()).getBytes(StandardCharsets.UTF_8);
+    stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+      for (ProfileChange change : changes) {
+        List<String> keys = new ArrayList<>();
+        for (String counterpart : counterparts.getOrDefault(change.getUserId(), Set.of())) {
+          LIST_CACHE_PREFIXES.forEach(prefix -> keys.add(prefix + counterpart));
+        }
+        // El resumen va siempre primero; el resto en bloques para no mandar miles de claves en un solo EVAL
+        for (int from = 0; from == 0 || from < keys.size(); from += PATCH_KEYS_PER_CALL) {
+          List<String> chunk = new ArrayList<>();
+          chunk.add(USER_CACHE_PREFIX + change.getUserId());
+          chunk.addAll(keys.subList(from, Math.min(from + PATCH_KEYS_PER_CALL, keys.size())));
+          int keyCount = 2 * chunk.size();
+          byte[][] keysAndArgs = new byte[keyCount + 4][];
+          for (int i = 0; i < chunk.size(); i++) {
+            keysAndArgs[i] = chunk.get(i).getBytes(StandardCharsets.UTF_8);
+            keysAndArgs[chunk.size() + i] = CacheAside.generationKey(chunk.get(i)).getBytes(StandardCharsets.UTF_8);
+          }
+          keysAndArgs[keyCount] = change.getUserId().getBytes(StandardCharsets.UTF_8);
+          keysAndArgs[keyCount + 1] = change.getUsername().getBytes(StandardCharsets.UTF_8);
+          keysAndArgs[keyCount + 2] = (change.getPhotoUrl() == null ? "" : change.getPhotoUrl())
+              .getBytes(StandardCharsets.UTF_8);
+          keysAndArgs[keyCount + 3] = generationTtlMillis;
+          connection.scriptingCommands().eval(PATCH_CACHED_PROFILE, ReturnType.INTEGER, keyCount, keysAndArgs);
+        }
+        // El resumen user:{id} acaba de cambiar: que cada nodo descarte su copia local
+        connection.publish(UserSummaryCache.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+            change.getUserId().getBytes(StandardCharsets.UTF_8));
+      }
+      return null;
+    });
+
+    Set<String> owners = new HashSet<>();
+    for (ProfileChange change : changes) {
+      owners.add(change.getUserId());
+      owners.addAll(counterparts.getOrDefault(change.getUserId(), Set.of()));
+    }
+    List<String> friendshipKeys = owners.stream().map(id -> FRIENDSHIPS_CACHE_PREFIX + id).collect(Collectors.toList());
+    for (int from = 0; from < friendshipKeys.size(); from += PATCH_KEYS_PER_CALL) {
+      cacheAside.invalidate(friendshipKeys.subList(from, Math.min(from + PATCH_KEYS_PER_CALL, friendshipKeys.size())));
+    }
+  }
+
+  /**
+   * Vuelve a copiar desde Book las amistades con algún lado sincronizado hace más de
+   * {@code friends.profiles.max-staleness}. Recorre el atraso entero, por orden de _id y en lotes de
+   * {@code friends.profiles.sweep-batch-size} (lo que acepta {@code /users/batch}), hasta agotarlo o hasta
+   * {@code friends.profiles.sweep-max-duration}; lo que quede se retoma en el siguiente barrido. Cada lado solo se
+   * escribe si nadie lo ha sincronizado desde que se leyó, para no pisar con la copia de Book un evento más reciente.
+   */
+  @Scheduled(fixedDelayString = "${friends.profiles.sweep-interval:PT5M}",
+      initialDelayString = "${friends.profiles.sweep-interval:PT5M}")
+  public void sweep() {
+    try {
+      Criteria stale = new Criteria().orOperator(
+          Criteria.where("profilesSyncedAt").is(null),
+          Criteria.where("profilesSyncedAt").lt(LocalDateTime.now().minus(maxStaleness)));
+      long backlog = mongoTemplate.count(new Query(stale), Friendship.class);
+      sweepBacklog.set(backlog);
+      if (backlog == 0) {
+        return;
+      }
+
+      long deadline = System.nanoTime() + sweepMaxDuration.toNanos();
+      String after = null;
+      int seen = 0;
+      int synced = 0;
+      while (System.nanoTime() < deadline) {
+        Criteria page = after == null ? stale : new Criteria().andOperator(stale, Criteria.where("id").gt(after));
+        Query batch = new Query(page).with(Sort.by("id")).limit(sweepBatchSize);
+        batch.fields().include("requesterId", "friendId", "requesterUsername", "requesterPhotoUrl", "friendUsername",
+            "friendPhotoUrl", "requesterSyncedAt", "friendSyncedAt");
+        List<Friendship> friendships = mongoTemplate.find(batch, Friendship.class);
+        if (friendships.isEmpty()) {
+          break;
+        }
+        synced += sweepBatch(friendships);
+        seen += friendships.size();
+        after = friendships.get(friendships.size() - 1).getId();
+        if (friendships.size() < sweepBatchSize) {
+          break;
+        }
+      }
+      log.info("Perfiles copiados en {} de {} amistades revisadas; atraso al empezar: {}", synced, seen, backlog);
+    } catch (RuntimeException e) {
+      log.error("Falló el barrido de perfiles de amistades: {}", e.getMessage());
+    }
+  }
+
+  // Devuelve cuántas amistades del lote quedaron sincronizadas. Los usuarios cuya copia no coincidía con Book se
+  // corrigen también en las listas cacheadas de sus amigos, como haría su evento si hubiera llegado.
+  private int sweepBatch(List<Friendship> friendships) {
+    Set<String> userIds = new HashSet<>();
+    friendships.forEach(friendship -> {
+      userIds.add(friendship.getRequesterId());
+      userIds.add(friendship.getFriendId());
+    });
+    Date fetchedAt = new Date();
+    Map<String, String> usernameMap = friendshipService.fetchUsernamesFromSource(userIds);
+
+    Set<String> outdated = new HashSet<>();
+    for (Friendship friendship : friendships) {
+      if (differs(usernameMap, friendship.getRequesterId(), friendship.getRequesterUsername(),
+          friendship.getRequesterPhotoUrl())) {
+        outdated.add(friendship.getRequesterId());
+      }
+      if (differs(usernameMap, friendship.getFriendId(), friendship.getFriendUsername(),
+          friendship.getFriendPhotoUrl())) {
+        outdated.add(friendship.getFriendId());
+      }
+    }
+
+    Map<String, ProfileChange> profiles = new HashMap<>();
+    for (String userId : userIds) {
+      if (usernameMap.get(userId) != null) {
+        profiles.put(userId, new ProfileChange(userId, usernameMap.get(userId), usernameMap.get(userId + "_photoUrl")));
+      }
+    }
+
+    // Cada lado se escribe solo si su *SyncedAt sigue siendo el que se leyó; si no, lo ha cambiado un evento
+    BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Friendship.class);
+    int synced = 0;
+    for (Friendship friendship : friendships) {
+      ProfileChange requester = profiles.get(friendship.getRequesterId());
+      ProfileChange friend = profiles.get(friendship.getFriendId());
+      if (requester == null || friend == null) {
+        continue; // Book no devolvió alguno de los dos; se reintenta en el siguiente barrido
+      }
+      bulk.updateOne(new Query(Criteria.where("_id").is(friendship.getId())
+              .and("requesterSyncedAt").is(friendship.getRequesterSyncedAt())),
+          copySide("requester", "friend", requester, fetchedAt));
+      bulk.updateOne(new Query(Criteria.where("_id").is(friendship.getId())
+              .and("friendSyncedAt").is(friendship.getFriendSyncedAt())),
+          copySide("friend", "requester", friend, fetchedAt));
+      synced++;
+    }
+    if (synced > 0) {
+      bulk.execute();
+    }
+    if (profiles.isEmpty()) {
+      return synced;
+    }
+    List<ProfileChange> resolved = withoutNewerProfiles(new ArrayList<>(profiles.values()), fetchedAt);
+    friendAdjacencyStore.updateProfiles(resolved);
+
+    List<ProfileChange> changed = resolved.stream()
+        .filter(change -> outdated.contains(change.getUserId()))
+        .collect(Collectors.toList());
+    if (!changed.isEmpty()) {
+      patchCachedLists(changed, counterparts(changed));
+    }
+    return synced;
+  }
+
+  @Scheduled(fixedDelayString = "${friends.profiles.check-interval:PT30M}",
+      initialDelayString = "${friends.profiles.check-interval:PT30M}")
+  public void check() {
+    try {
+      Aggregation sample = Aggregation.newAggregation(
+          Aggregation.match(Criteria.where("profilesSyncedAt").ne(null)),
+          Aggregation.sample(checkSampleSize));
+      List<Friendship> friendships = mongoTemplate.aggregate(sample, Friendship.class, Friendship.class)
+          .getMappedResults();
+      if (friendships.isEmpty()) {
+        return;
+      }
+
+      Set<String> userIds = new HashSet<>();
+      friendships.forEach(friendship -> {
+        userIds.add(friendship.getRequesterId());
+        userIds.add(friendship.getFriendId());
+      });
+      Date fetchedAt = new Date();
+      Map<String, String> usernameMap = friendshipService.fetchUsernamesFromSource(userIds);
+
+      Set<String> outdated = new HashSet<>();
+      int mismatched = 0;
+      for (Friendship friendship : friendships) {
+        boolean requesterOutdated = differs(usernameMap, friendship.getRequesterId(),
+            friendship.getRequesterUsername(), friendship.getRequesterPhotoUrl());
+        boolean friendOutdated = differs(usernameMap, friendship.getFriendId(),
+            friendship.getFriendUsername(), friendship.getFriendPhotoUrl());
+        if (requesterOutdated) {
+          outdated.add(friendship.getRequesterId());
+        }
+        if (friendOutdated) {
+          outdated.add(friendship.getFriendId());
+        }
+        if (requesterOutdated || friendOutdated) {
+          mismatched++;
+        }
+      }
+
+      mismatchRatio.set((double) mismatched / friendships.size());
+      apply(outdated.stream()
+          .map(userId -> new ProfileChange(userId, usernameMap.get(userId), usernameMap.get(userId + "_photoUrl")))
+          .collect(Collectors.toList()), fetchedAt);
+      repaired.increment(outdated.size());
+      if (mismatched > 0) {
+        log.warn("{} de {} amistades muestreadas tenían el perfil desactualizado; corregidos {} usuarios", mismatched,
+            friendships.size(), outdated.size());
+      }
+    } catch (RuntimeException e) {
+      log.error("Falló la comprobación de perfiles de amistades: {}", e.getMessage());
+    }
+  }
+
+  // Solo cuenta como diferencia si Book devolvió el usuario
+  private static boolean differs(Map<String, String> usernameMap, String userId, String username, String photoUrl) {
+    String current = usernameMap.get(userId);
+    return current != null
+        && (!current.equals(username) || !Objects.equals(usernameMap.get(userId + "_photoUrl"), photoUrl));
+  }
+}
@@ -0,0 +1,47 @@
+package org.example.bookfriendship.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import org.example.bookfriendship.Model.Friendship;
+
+/**
+ * Posición en un listado paginado: (createdAt, id) de la última amistad devuelta, en base64url. Un {@code createdAt}
+ * nulo corresponde a amistades antiguas sin fecha, que van al final del listado.
+ */
+record FriendshipCursor(LocalDateTime createdAt, String id) {
+
+  static FriendshipCursor of(Friendship friendship) {
+    return new FriendshipCursor(friendship.getCreatedAt(), friendship.getId());
+  }
+
+  String encode() {
+    String raw = (createdAt == null ? "" : createdAt.toString()) + "|" + id;
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static FriendshipCursor decode(String cursor) {
+    String decoded;
+    try {
+      decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Cursor no válido");
+    }
+    int separator = decoded.indexOf('|');
+    if (separator < 0 || separator == decoded.length() - 1) {
+      throw new IllegalArgumentException("Cursor no válido");
+    }
+    String createdAt = decoded.substring(0, separator);
+    String id = decoded.substring(separator + 1);
+    if (createdAt.isEmpty()) {
+      return new FriendshipCursor(null, id);
+    }
+    try {
+      return new FriendshipCursor(LocalDateTime.parse(createdAt), id);
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("Cursor no válido");
+    }
+  }
+}
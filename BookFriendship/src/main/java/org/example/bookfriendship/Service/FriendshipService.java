@@ -1,22 +1,41 @@
 package org.example.bookfriendship.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.BsonValue;
 import org.example.bookfriendship.Controller.FriendshipController;
+import org.example.bookfriendship.Graph.SocialGraph;
 import org.example.bookfriendship.Model.Friendship;
 import org.example.bookfriendship.Model.FriendshipDto;
+import org.example.bookfriendship.Model.FriendshipPageDto;
 import org.example.bookfriendship.Repository.FriendshipRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
-import java.time.Duration;
 
 @Service
 public class FriendshipService {
@@ -35,27 +54,88 @@ public class FriendshipService {
 
   private static final Logger log = LoggerFactory.getLogger(FriendshipController.class);
 
+  private static final ParameterizedTypeReference<List<Map<String, String>>> USER_SUMMARY_LIST =
+      new ParameterizedTypeReference<>() {
+      };
+
+  // Máximo de ids que acepta POST /users/batch en Book
+  @Value("${users.batch.max-size:200}")
+  private int batchMaxSize;
+
+  // Ids por llamada a Book cuando se resuelven en paralelo
+  @Value("${friendships.resolve.chunk-size:50}")
+  private int resolveChunkSize;
+
+  // Plazo total para resolver usuarios; al vencer se devuelven resultados parciales
+  @Value("${friendships.resolve.deadline:PT2S}")
+  private Duration resolveDeadline;
+
+  @Autowired
+  private AsyncTaskExecutor friendshipExecutor;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private FriendMembershipIndex friendMembershipIndex;
+
+  @Autowired
+  private SocialGraph socialGraph;
+
+  @Autowired
+  private FriendAdjacencyStore friendAdjacencyStore;
+
+  @Autowired
+  private UserSummaryCache userSummaryCache;
+
   public FriendshipService(RedisTemplate<String, Object> redisTemplate) {
     this.redisTemplate = redisTemplate;
   }
 
+  /**
+   * Crea la solicitud con un único upsert sobre {@code pairKey}: si ya existe una amistad o solicitud entre los dos
+   * usuarios (en cualquier sentido) no se inserta nada. El índice único sobre {@code pairKey} cubre las carreras entre
+   * dos solicitudes simultáneas.
+   */
   public Friendship createFriendship(String requesterId, String friendId) {
-    boolean friendshipExists = friendshipRepository
-        .existsByRequesterIdAndFriendId(requesterId, friendId) ||
-        friendshipRepository
-            .existsByRequesterIdAndFriendId(friendId, requesterId);
-
-    if (friendshipExists) {
-      throw new IllegalStateException("Ya existe una amistad o solicitud de amistad entre estos usuarios");
-    }
-
     Friendship friendship = new Friendship();
     friendship.setRequesterId(requesterId);
     friendship.setFriendId(friendId);
     friendship.setCreatedAt(LocalDateTime.now());
     friendship.setStatus("pending");
+    friendship.setPairKey(Friendship.pairKey(requesterId, friendId));
+    copyProfiles(friendship, fetchUsernames(new HashSet<>(List.of(requesterId, friendId))));
+
+    Query samePair = new Query(Criteria.where("pairKey").is(friendship.getPairKey()));
+    Update insertIfAbsent = new Update()
+        .setOnInsert("requesterId", friendship.getRequesterId())
+        .setOnInsert("friendId", friendship.getFriendId())
+        .setOnInsert("createdAt", friendship.getCreatedAt())
+        .setOnInsert("status", friendship.getStatus())
+        .setOnInsert("requesterUsername", friendship.getRequesterUsername())
+        .setOnInsert("requesterPhotoUrl", friendship.getRequesterPhotoUrl())
+        .setOnInsert("friendUsername", friendship.getFriendUsername())
+        .setOnInsert("friendPhotoUrl", friendship.getFriendPhotoUrl())
+        .setOnInsert("requesterSyncedAt", friendship.getRequesterSyncedAt())
+        .setOnInsert("friendSyncedAt", friendship.getFriendSyncedAt())
+        .setOnInsert("profilesSyncedAt", friendship.getProfilesSyncedAt());
+
+    UpdateResult result;
+    try {
+      result = mongoTemplate.upsert(samePair, insertIfAbsent, Friendship.class);
+    } catch (DuplicateKeyException e) {
+      result = null;
+    }
+    if (result == null || result.getUpsertedId() == null) {
+      throw new IllegalStateException("Ya existe una amistad o solicitud de amistad entre estos usuarios");
+    }
 
-    return friendshipRepository.save(friendship);
+    BsonValue upsertedId = result.getUpsertedId();
+    friendship.setId(upsertedId.isObjectId()
+        ? upsertedId.asObjectId().getValue().toHexString()
+        : upsertedId.asString().getValue());
+    friendAdjacencyStore.onCreated(friendship);
+    return friendship;
   }
 
   public List<String> acceptFriendship(String friendshipId) {
@@ -64,7 +144,12 @@ public class FriendshipService {
         .orElseThrow(() -> new RuntimeException("No se encontró la amistad"));
 
     friendship.setStatus("accepted");
+    copyProfiles(friendship,
+        fetchUsernames(new HashSet<>(List.of(friendship.getRequesterId(), friendship.getFriendId()))));
     friendshipRepository.save(friendship);
+    friendMembershipIndex.onAccepted(friendship);
+    socialGraph.addFriendship(friendship.getRequesterId(), friendship.getFriendId());
+    friendAdjacencyStore.onAccepted(friendship);
 
     userIds.add(friendship.getRequesterId());
     userIds.add(friendship.getFriendId());
@@ -73,28 +158,116 @@ public class FriendshipService {
   }
 
   public List<FriendshipDto> getFriendshipDetailsWithUsernames(String userId) {
-    List<Friendship> requesterFriendships = friendshipRepository.findByRequesterIdAndStatus(userId, "accepted");
-    List<Friendship> friendFriendships = friendshipRepository.findByFriendIdAndStatus(userId, "accepted");
+    return getFriendshipDetails(userId, "accepted");
+  }
+
+  public List<FriendshipDto> getPendingFriendshipDetailsWithUsernames(String userId) {
+    return getFriendshipDetails(userId, "pending");
+  }
+
+  private List<FriendshipDto> getFriendshipDetails(String userId, String status) {
+    long deadlineNanos = System.nanoTime() + resolveDeadline.toNanos();
+
+    // Lista materializada por (userId, status); si aún no existe se construye desde las aristas
+    List<Friendship> friendships = friendAdjacencyStore.find(userId, status);
+    return toDtos(userId, friendships, deadlineNanos);
+  }
+
+  public FriendshipPageDto getFriendshipPage(String userId, String cursor, int limit) {
+    return getFriendshipPage(userId, "accepted", cursor, limit);
+  }
+
+  public FriendshipPageDto getPendingFriendshipPage(String userId, String cursor, int limit) {
+    return getFriendshipPage(userId, "pending", cursor, limit);
+  }
+
+  /**
+   * Página de amistades ordenada por (createdAt, id) descendente. El cursor es la última (createdAt, id) devuelta, así
+   * que cada página es un recorrido acotado de los índices sin saltar documentos con skip. Cada rama (el usuario como
+   * requesterId o como friendId) se lee por separado de su índice y las dos se mezclan aquí: un {@code $or} entre
+   * ramas con este orden puede acabar en un SORT en memoria.
+   */
+  private FriendshipPageDto getFriendshipPage(String userId, String status, String cursor, int limit) {
+    long deadlineNanos = System.nanoTime() + resolveDeadline.toNanos();
+    FriendshipCursor after = cursor == null ? null : FriendshipCursor.decode(cursor);
+
+    List<Friendship> friendships = new ArrayList<>(findBranch("requesterId", userId, status, after, limit + 1));
+    friendships.addAll(findBranch("friendId", userId, status, after, limit + 1));
+    friendships.sort(PAGE_ORDER);
+
+    String nextCursor = null;
+    if (friendships.size() > limit) {
+      friendships = friendships.subList(0, limit);
+      nextCursor = FriendshipCursor.of(friendships.get(limit - 1)).encode();
+    }
+    return new FriendshipPageDto(toDtos(userId, friendships, deadlineNanos), nextCursor);
+  }
+
+  // Mismo orden que los índices (createdAt, _id) descendentes, con los createdAt nulos al final
+  static final Comparator<Friendship> PAGE_ORDER = Comparator
+      .comparing(Friendship::getCreatedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+      .thenComparing(Friendship::getId)
+      .reversed();
+
+  private static final Sort PAGE_SORT = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("_id"));
+
+  private List<Friendship> findBranch(String field, String userId, String status, FriendshipCursor after, int limit) {
+    List<Friendship> found = new ArrayList<>();
+    for (Query query : branchQueries(field, userId, status, after)) {
+      found.addAll(mongoTemplate.find(query.limit(limit - found.size()), Friendship.class));
+      if (found.size() >= limit) {
+        break;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Consultas de una rama a partir del cursor, en el orden de la página. Cada una fija {@code field} y
+   * {@code status} por igualdad y acota {@code createdAt} con un único rango, así que es un recorrido del índice
+   * {@code <field>_status_created} en su propio orden. La de los createdAt nulos solo se lanza si la primera no llena
+   * la página.
+   */
+  static List<Query> branchQueries(String field, String userId, String status, FriendshipCursor after) {
+    List<Criteria> ranges = new ArrayList<>();
+    if (after == null) {
+      // El índice ya deja los nulos al final del recorrido descendente
+      ranges.add(Criteria.where(field).is(userId).and("status").is(status));
+    } else if (after.createdAt() != null) {
+      ranges.add(Criteria.where(field).is(userId).and("status").is(status)
+          .and("createdAt").lte(after.createdAt())
+          .norOperator(Criteria.where("createdAt").is(after.createdAt()).and("_id").gte(after.id())));
+      ranges.add(Criteria.where(field).is(userId).and("status").is(status).and("createdAt").is(null));
+    } else {
+      ranges.add(Criteria.where(field).is(userId).and("status").is(status)
+          .and("createdAt").is(null).and("_id").lt(after.id()));
+    }
+
+    List<Query> queries = new ArrayList<>();
+    for (Criteria range : ranges) {
+      Query query = new Query(range).with(PAGE_SORT);
+      query.fields().include("requesterId", "friendId", "status", "createdAt", "requesterUsername",
+          "requesterPhotoUrl", "friendUsername", "friendPhotoUrl");
+      queries.add(query);
+    }
+    return queries;
+  }
 
-    Set<String> userIds = Stream.concat(requesterFriendships.stream(), friendFriendships.stream())
-        .map(friendship -> Arrays.asList(friendship.getRequesterId(), friendship.getFriendId()))
-        .flatMap(List::stream)
+  private List<FriendshipDto> toDtos(String userId, List<Friendship> friendships, long deadlineNanos) {
+    // Solo se resuelven los usuarios cuyo nombre aún no está copiado en la amistad (documentos anteriores a la copia)
+    Set<String> userIds = friendships.stream()
+        .filter(friendship -> friendship.counterpartUsername(userId) == null)
+        .map(friendship -> friendship.counterpartId(userId))
         .collect(Collectors.toSet());
 
-    Map<String, String> usernameMap = fetchUsernames(userIds);
+    Map<String, String> usernameMap = fetchUsernames(userIds, deadlineNanos);
 
-    return Stream.concat(requesterFriendships.stream(), friendFriendships.stream())
+    return friendships.stream()
         .map(friendship -> {
-          String actualFriendId;
-          String otherUsername;
-          String photoUrl;
-
-          if (friendship.getRequesterId().equals(userId)) {
-            actualFriendId = friendship.getFriendId();
-            otherUsername = usernameMap.getOrDefault(actualFriendId, "Unknown");
-            photoUrl = usernameMap.getOrDefault(actualFriendId + "_photoUrl", null);
-          } else {
-            actualFriendId = friendship.getRequesterId();
+          String actualFriendId = friendship.counterpartId(userId);
+          String otherUsername = friendship.counterpartUsername(userId);
+          String photoUrl = friendship.counterpartPhotoUrl(userId);
+          if (otherUsername == null) {
             otherUsername = usernameMap.getOrDefault(actualFriendId, "Unknown");
             photoUrl = usernameMap.getOrDefault(actualFriendId + "_photoUrl", null);
           }
@@ -106,90 +279,177 @@ public class FriendshipService {
   }
 
   public Map<String, String> fetchUsernames(Set<String> userIds) {
+    return fetchUsernames(userIds, System.nanoTime() + resolveDeadline.toNanos());
+  }
+
+  /**
+   * Como {@link #fetchUsernames(Set)} pero sin pasar por {@code user:{id}}: siempre pregunta a Book, para comparar o
+   * refrescar las copias guardadas en las amistades.
+   */
+  public Map<String, String> fetchUsernamesFromSource(Collection<String> userIds) {
     Map<String, String> usernameMap = new HashMap<>();
+    if (!userIds.isEmpty()) {
+      resolveMisses(new ArrayList<>(userIds), usernameMap, System.nanoTime() + resolveDeadline.toNanos());
+    }
+    return usernameMap;
+  }
+
+  // Rellena los datos de los dos participantes y marca como sincronizado cada lado resuelto; profilesSyncedAt solo si
+  // se resolvieron ambos
+  static void copyProfiles(Friendship friendship, Map<String, String> usernameMap) {
+    friendship.setRequesterUsername(usernameMap.get(friendship.getRequesterId()));
+    friendship.setRequesterPhotoUrl(usernameMap.get(friendship.getRequesterId() + "_photoUrl"));
+    friendship.setFriendUsername(usernameMap.get(friendship.getFriendId()));
+    friendship.setFriendPhotoUrl(usernameMap.get(friendship.getFriendId() + "_photoUrl"));
+    LocalDateTime now = LocalDateTime.now();
+    if (friendship.getRequesterUsername() != null) {
+      friendship.setRequesterSyncedAt(now);
+    }
+    if (friendship.getFriendUsername() != null) {
+      friendship.setFriendSyncedAt(now);
+    }
+    if (friendship.getRequesterUsername() != null && friendship.getFriendUsername() != null) {
+      friendship.setProfilesSyncedAt(now);
+    }
+  }
+
+  /**
+   * Igual que {@link #fetchUsernames(Set)}, pero los usuarios que no estén en Redis se resuelven en paralelo y solo
+   * hasta {@code deadlineNanos}; los que no lleguen a tiempo se quedan fuera del mapa.
+   */
+  private Map<String, String> fetchUsernames(Set<String> userIds, long deadlineNanos) {
+    Map<String, String> usernameMap = new HashMap<>();
+    if (userIds.isEmpty()) {
+      return usernameMap;
+    }
 
-    userIds.forEach(id -> {
-      Map<String, String> userInfo = (Map<String, String>) redisTemplate.opsForValue().get("user:" + id);
-      System.out.println(userInfo);
-
-      if (userInfo != null && !userInfo.isEmpty()) {
-        if (userInfo.containsKey("username")) {
-          usernameMap.put(id, userInfo.get("username"));
-        }
-        if (userInfo.containsKey("PhotoUrl")) {
-          usernameMap.put(id + "_photoUrl", userInfo.get("PhotoUrl"));
-        }
-        if (userInfo.containsKey("Email")) {
-          usernameMap.put(id + "_email", userInfo.get("Email"));
-        }
+    // Caché local primero y un solo MGET para el resto, en lugar de un GET por amigo
+    Map<String, Map<String, String>> cached = userSummaryCache.getAll(userIds);
 
+    List<String> misses = new ArrayList<>();
+    for (String id : userIds) {
+      Map<String, String> userInfo = cached.get(id);
+      if (userInfo != null) {
+        putUserInfo(id, userInfo, usernameMap);
       } else {
-        fetchAndCacheUserInfo(id, usernameMap);
+        misses.add(id);
       }
-    });
+    }
+
+    if (!misses.isEmpty()) {
+      resolveMisses(misses, usernameMap, deadlineNanos);
+    }
 
     return usernameMap;
   }
 
-  private void fetchAndCacheUserInfo(String id, Map<String, String> usernameMap) {
-    ResponseEntity<Map> response = restTemplate.getForEntity(productionUrl + "/users/" + id, Map.class);
-    if (response.getStatusCode().is2xxSuccessful() && response.hasBody()) {
-      Map<String, Object> userDetails = response.getBody();
-      Map<String, String> userInfoToCache = new HashMap<>();
-      userInfoToCache.put("username", (String) userDetails.get("username"));
-      userInfoToCache.put("PhotoUrl", (String) userDetails.get("PhotoUrl"));
-      userInfoToCache.put("Email", (String) userDetails.get("Email"));
+  private void putUserInfo(String id, Map<String, String> userInfo, Map<String, String> usernameMap) {
+    if (userInfo.get("username") != null) {
+      usernameMap.put(id, userInfo.get("username"));
+    }
+    if (userInfo.get("PhotoUrl") != null) {
+      usernameMap.put(id + "_photoUrl", userInfo.get("PhotoUrl"));
+    }
+    if (userInfo.get("Email") != null) {
+      usernameMap.put(id + "_email", userInfo.get("Email"));
+    }
+  }
 
-      usernameMap.put(id, userInfoToCache.get("username"));
-      usernameMap.put(id + "_photoUrl", userInfoToCache.get("PhotoUrl"));
+  private void resolveMisses(List<String> ids, Map<String, String> usernameMap, long deadlineNanos) {
+    int chunkSize = Math.max(1, Math.min(resolveChunkSize, batchMaxSize));
+    List<CompletableFuture<Map<String, String>>> chunks = new ArrayList<>();
+    for (int from = 0; from < ids.size(); from += chunkSize) {
+      List<String> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+      chunks.add(supplyAsync(() -> fetchUserSummaries(chunk)));
+    }
 
-      redisTemplate.opsForValue().set("user:" + id, userInfoToCache, Duration.ofHours(1));
-    } else {
-      log.error("No se pudo obtener detalles del usuario del servicio externo para el ID {}: StatusCode {}", id,
-          response.getStatusCode());
+    try {
+      CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+          .get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      log.warn("Plazo agotado resolviendo {} usuarios; se devuelven resultados parciales", ids.size());
+    } catch (ExecutionException e) {
+      log.error("Error resolviendo usuarios; se devuelven resultados parciales: {}", e.getCause().getMessage());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    for (CompletableFuture<Map<String, String>> chunk : chunks) {
+      if (chunk.isDone() && !chunk.isCompletedExceptionally()) {
+        usernameMap.putAll(chunk.join());
+      } else {
+        chunk.cancel(true);
+      }
     }
   }
 
-  public List<FriendshipDto> getPendingFriendshipDetailsWithUsernames(String userId) {
-    List<Friendship> requesterFriendships = friendshipRepository.findByRequesterIdAndStatus(userId, "pending");
-    List<Friendship> friendFriendships = friendshipRepository.findByFriendIdAndStatus(userId, "pending");
+  /**
+   * Resuelve un bloque de usuarios con {@code POST /users/batch} de Book. Book guarda las entradas
+   * {@code user:{id}} que consulta, así que aquí no se vuelven a escribir.
+   */
+  private Map<String, String> fetchUserSummaries(List<String> ids) {
+    Map<String, String> usernameMap = new HashMap<>();
+    ResponseEntity<List<Map<String, String>>> response = restTemplate.exchange(productionUrl + "/users/batch",
+        HttpMethod.POST, new HttpEntity<>(ids), USER_SUMMARY_LIST);
+    if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+      log.error("No se pudieron obtener {} usuarios del servicio externo: StatusCode {}", ids.size(),
+          response.getStatusCode());
+      return usernameMap;
+    }
+    for (Map<String, String> summary : response.getBody()) {
+      String id = summary.get("id");
+      if (summary.get("username") != null) {
+        usernameMap.put(id, summary.get("username"));
+      }
+      if (summary.get("photoUrl") != null) {
+        usernameMap.put(id + "_photoUrl", summary.get("photoUrl"));
+      }
+    }
+    return usernameMap;
+  }
 
-    Set<String> userIds = Stream.concat(requesterFriendships.stream(), friendFriendships.stream())
-        .map(friendship -> Arrays.asList(friendship.getRequesterId(), friendship.getFriendId()))
-        .flatMap(List::stream)
-        .collect(Collectors.toSet());
+  /**
+   * Ejecuta la tarea en el executor; si su cola está llena la ejecuta en el hilo actual en lugar de fallar.
+   */
+  private <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+    try {
+      return CompletableFuture.supplyAsync(task, friendshipExecutor);
+    } catch (RejectedExecutionException e) {
+      try {
+        return CompletableFuture.completedFuture(task.get());
+      } catch (RuntimeException failure) {
+        return CompletableFuture.failedFuture(failure);
+      }
+    }
+  }
 
-    Map<String, String> usernameMap = fetchUsernames(userIds);
+  public boolean areFriends(String userId1, String userId2) {
+    return friendMembershipIndex.areFriends(userId1, userId2);
+  }
 
-    return Stream.concat(requesterFriendships.stream(), friendFriendships.stream())
-        .map(friendship -> {
-          String actualFriendId;
-          String otherUsername;
-          String photoUrl;
-          String requesterId = friendship.getRequesterId();
+  public List<String> friendsAmong(String userId, List<String> candidateIds) {
+    return friendMembershipIndex.friendsAmong(userId, candidateIds);
+  }
 
-          if (friendship.getRequesterId().equals(userId)) {
-            actualFriendId = friendship.getFriendId();
-            otherUsername = usernameMap.getOrDefault(actualFriendId, "Unknown");
-            photoUrl = usernameMap.getOrDefault(actualFriendId + "_photoUrl", null);
-          } else {
-            actualFriendId = friendship.getRequesterId();
-            otherUsername = usernameMap.getOrDefault(actualFriendId, "Unknown");
-            photoUrl = usernameMap.getOrDefault(actualFriendId + "_photoUrl", null);
-          }
+  public List<String> mutualFriends(String userId1, String userId2) {
+    requireGraphLoaded();
+    return socialGraph.mutualFriends(userId1, userId2);
+  }
 
-          return new FriendshipDto(friendship.getId(), requesterId, otherUsername, actualFriendId,
-              friendship.getStatus(), friendship.getCreatedAt(), photoUrl);
-        })
-        .collect(Collectors.toList());
+  public List<SocialGraph.Suggestion> friendSuggestions(String userId, int limit) {
+    requireGraphLoaded();
+    return socialGraph.suggestions(userId, limit);
   }
 
-  public boolean areFriends(String userId1, String userId2) {
-    List<Friendship> friendshipsAsRequester = friendshipRepository.findByRequesterIdAndFriendId(userId1, userId2);
-    List<Friendship> friendshipsAsFriend = friendshipRepository.findByFriendIdAndRequesterId(userId1, userId2);
+  public int friendCount(String userId) {
+    requireGraphLoaded();
+    return socialGraph.degree(userId);
+  }
 
-    return Stream.concat(friendshipsAsRequester.stream(), friendshipsAsFriend.stream())
-        .anyMatch(f -> f.getStatus().equals("accepted"));
+  private void requireGraphLoaded() {
+    if (!socialGraph.isLoaded()) {
+      throw new IllegalStateException("El grafo de amistades aún se está cargando");
+    }
   }
 
   public List<String> deleteFriendship(String friendshipId) {
@@ -197,6 +457,11 @@ public class FriendshipService {
         .orElseThrow(() -> new RuntimeException("No se encontró la amistad"));
 
     friendshipRepository.delete(friendship);
+    friendAdjacencyStore.onRemoved(friendship);
+    if ("accepted".equals(friendship.getStatus())) {
+      friendMembershipIndex.onRemoved(friendship);
+      socialGraph.removeFriendship(friendship.getRequesterId(), friendship.getFriendId());
+    }
 
     return Arrays.asList(friendship.getRequesterId(), friendship.getFriendId());
 
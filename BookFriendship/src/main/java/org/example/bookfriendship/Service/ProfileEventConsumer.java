@@ -0,0 +1,318 @@
+package org.example.bookfriendship.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.bookfriendship.Model.ProfileChange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consume el stream {@value #STREAM} que escribe Book con el grupo {@value #GROUP} y aplica cada lote con
+ * {@link FriendProfileSync#applyAll}.
+ * <ul>
+ *   <li>Entrega al menos una vez: un lote solo se confirma (XACK) después de aplicarlo. Si falla, sus entradas quedan
+ *   pendientes y cualquier instancia las reclama cuando llevan más de {@code friends.profile-events.claim-idle} sin
+ *   confirmar; tras {@code friends.profile-events.max-deliveries} intentos se apartan a {@value #DEAD_STREAM}.</li>
+ *   <li>Idempotente: el id de la entrada hace de versión. Se guarda la última aplicada por usuario y se descartan las
+ *   repetidas o más viejas, así que una reentrega o un reclamo tardío no pisa un cambio posterior.</li>
+ *   <li>Publica lo procesado, lo descartado, el retraso extremo a extremo y cuánto va el grupo por detrás del stream.</li>
+ * </ul>
+ */
+@Component
+public class ProfileEventConsumer implements SmartLifecycle {
+
+  public static final String STREAM = "user-profile-events";
+  public static final String GROUP = "bookfriendship";
+  public static final String DEAD_STREAM = STREAM + ":dead";
+
+  private static final Logger log = LoggerFactory.getLogger(ProfileEventConsumer.class);
+  private static final String VERSION_PREFIX = "profileEventVersion:";
+  private static final Duration VERSION_TTL = Duration.ofDays(7);
+
+  // Guarda la versión solo si es más nueva que la almacenada (ids "ms-seq" del stream)
+  private static final RedisScript<Long> SET_IF_NEWER = new DefaultRedisScript<>(
+      "local current = redis.call('GET', KEYS[1])\n"
+          + "if current then\n"
+          + "  local cms, cseq = string.match(current, '(%d+)-(%d+)')\n"
+          + "  local nms, nseq = string.match(ARGV[1], '(%d+)-(%d+)')\n"
+          + "  if tonumber(cms) > tonumber(nms) or (cms == nms and tonumber(cseq) >= tonumber(nseq)) then\n"
+          + "    return 0\n"
+          + "  end\n"
+          + "end\n"
+          + "redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])\n"
+          + "return 1", Long.class);
+
+  private final StringRedisTemplate stringRedisTemplate;
+  private final FriendProfileSync friendProfileSync;
+  private final Counter processed;
+  private final Counter skipped;
+  private final Counter deadLettered;
+  private final Timer delay;
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicLong lagMillis = new AtomicLong();
+
+  @Value("${friends.profile-events.enabled:true}")
+  private boolean enabled;
+
+  @Value("${friends.profile-events.batch-size:100}")
+  private int batchSize;
+
+  @Value("${friends.profile-events.block:PT2S}")
+  private Duration block;
+
+  @Value("${friends.profile-events.claim-idle:PT1M}")
+  private Duration claimIdle;
+
+  @Value("${friends.profile-events.max-deliveries:5}")
+  private int maxDeliveries;
+
+  private final String consumerName = "friendship-" + UUID.randomUUID();
+  private volatile boolean running;
+  private Thread worker;
+  private long lastClaimAt;
+
+  public ProfileEventConsumer(StringRedisTemplate stringRedisTemplate, FriendProfileSync friendProfileSync,
+      MeterRegistry meterRegistry) {
+    this.stringRedisTemplate = stringRedisTemplate;
+    this.friendProfileSync = friendProfileSync;
+    this.processed = Counter.builder("friendships.profile_events.processed")
+        .description("Cambios de perfil aplicados")
+        .register(meterRegistry);
+    this.skipped = Counter.builder("friendships.profile_events.skipped")
+        .description("Eventos repetidos o reemplazados por uno más nuevo del mismo usuario")
+        .register(meterRegistry);
+    this.deadLettered = Counter.builder("friendships.profile_events.dead_lettered")
+        .description("Eventos apartados tras agotar los reintentos")
+        .register(meterRegistry);
+    this.delay = Timer.builder("friendships.profile_events.delay")
+        .description("Tiempo desde que Book escribe el evento hasta que se aplica")
+        .register(meterRegistry);
+    Gauge.builder("friendships.profile_events.pending", pending, AtomicLong::get)
+        .description("Eventos entregados al grupo y aún sin confirmar")
+        .register(meterRegistry);
+    Gauge.builder("friendships.profile_events.lag_seconds", lagMillis, value -> value.get() / 1000.0)
+        .description("Distancia entre el último evento del stream y el último entregado al grupo")
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void start() {
+    if (!enabled) {
+      return;
+    }
+    running = true;
+    worker = new Thread(this::run, "profile-events");
+    worker.setDaemon(true);
+    worker.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (worker != null) {
+      worker.interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        ensureGroup();
+        break;
+      } catch (RuntimeException e) {
+        log.warn("No se pudo crear el grupo {} en {}: {}", GROUP, STREAM, e.getMessage());
+        pause();
+      }
+    }
+    Consumer consumer = Consumer.from(GROUP, consumerName);
+    StreamReadOptions options = StreamReadOptions.empty().count(batchSize).block(block);
+    while (running) {
+      try {
+        if (System.currentTimeMillis() - lastClaimAt >= claimIdle.toMillis()) {
+          lastClaimAt = System.currentTimeMillis();
+          claimStale(consumer);
+          refreshLag();
+        }
+        List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+            .read(consumer, options, StreamOffset.create(STREAM, ReadOffset.lastConsumed()));
+        if (records != null && !records.isEmpty()) {
+          process(records);
+        }
+      } catch (RuntimeException e) {
+        if (!running) {
+          break;
+        }
+        // Lo leído y no confirmado queda pendiente; se reclamará pasado claim-idle
+        log.warn("Error procesando cambios de perfil: {}", e.getMessage());
+        pause();
+      }
+    }
+  }
+
+  private void ensureGroup() {
+    stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+      try {
+        connection.streamCommands().xGroupCreate(STREAM.getBytes(StandardCharsets.UTF_8), GROUP,
+            ReadOffset.latest(), true);
+      } catch (RuntimeException e) {
+        if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+          throw e;
+        }
+      }
+      return null;
+    });
+  }
+
+  void process(List<MapRecord<String, Object, Object>> records) {
+    // Dentro del lote basta con el último cambio de cada usuario
+    Map<String, MapRecord<String, Object, Object>> latest = new LinkedHashMap<>();
+    for (MapRecord<String, Object, Object> record : records) {
+      Object userId = record.getValue().get("id");
+      if (userId == null || record.getValue().get("username") == null) {
+        continue;
+      }
+      MapRecord<String, Object, Object> previous = latest.put(userId.toString(), record);
+      if (previous != null) {
+        skipped.increment();
+      }
+    }
+
+    List<String> userIds = new ArrayList<>(latest.keySet());
+    List<String> applied = userIds.isEmpty() ? Collections.emptyList() : stringRedisTemplate.opsForValue()
+        .multiGet(userIds.stream().map(id -> VERSION_PREFIX + id).toList());
+    List<ProfileChange> changes = new ArrayList<>();
+    List<MapRecord<String, Object, Object>> toApply = new ArrayList<>();
+    for (int i = 0; i < userIds.size(); i++) {
+      MapRecord<String, Object, Object> record = latest.get(userIds.get(i));
+      String version = applied == null ? null : applied.get(i);
+      if (version != null && !isNewer(record.getId(), RecordId.of(version))) {
+        skipped.increment();
+        continue;
+      }
+      Object photoUrl = record.getValue().get("photoUrl");
+      changes.add(new ProfileChange(userIds.get(i), record.getValue().get("username").toString(),
+          photoUrl == null ? null : photoUrl.toString()));
+      toApply.add(record);
+    }
+
+    if (!changes.isEmpty()) {
+      friendProfileSync.applyAll(changes);
+      long now = System.currentTimeMillis();
+      for (MapRecord<String, Object, Object> record : toApply) {
+        stringRedisTemplate.execute(SET_IF_NEWER,
+            List.of(VERSION_PREFIX + record.getValue().get("id")),
+            record.getId().getValue(), String.valueOf(VERSION_TTL.toMillis()));
+        delay.record(Math.max(0, now - record.getId().getTimestamp()), TimeUnit.MILLISECONDS);
+      }
+      processed.increment(changes.size());
+    }
+
+    stringRedisTemplate.opsForStream().acknowledge(STREAM, GROUP,
+        records.stream().map(MapRecord::getId).toArray(RecordId[]::new));
+  }
+
+  /**
+   * Reclama las entradas que otra instancia (o esta misma antes de fallar) dejó sin confirmar y aparta las que ya
+   * superaron los reintentos.
+   */
+  private void claimStale(Consumer consumer) {
+    PendingMessages stale = stringRedisTemplate.opsForStream()
+        .pending(STREAM, GROUP, Range.unbounded(), batchSize);
+    List<RecordId> toClaim = new ArrayList<>();
+    for (PendingMessage message : stale) {
+      if (message.getElapsedTimeSinceLastDelivery().compareTo(claimIdle) < 0) {
+        continue;
+      }
+      if (message.getTotalDeliveryCount() >= maxDeliveries) {
+        deadLetter(message.getId());
+      } else {
+        toClaim.add(message.getId());
+      }
+    }
+    if (toClaim.isEmpty()) {
+      return;
+    }
+    List<MapRecord<String, Object, Object>> claimed = stringRedisTemplate.opsForStream()
+        .claim(STREAM, GROUP, consumer.getName(), claimIdle, toClaim.toArray(RecordId[]::new));
+    if (!claimed.isEmpty()) {
+      log.info("Reclamados {} cambios de perfil pendientes", claimed.size());
+      process(claimed);
+    }
+  }
+
+  private void deadLetter(RecordId id) {
+    List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+        .range(STREAM, Range.closed(id.getValue(), id.getValue()));
+    if (records != null && !records.isEmpty()) {
+      Map<String, String> fields = new LinkedHashMap<>();
+      records.get(0).getValue().forEach((field, value) -> fields.put(field.toString(), value.toString()));
+      fields.put("sourceId", id.getValue());
+      stringRedisTemplate.opsForStream().add(StreamRecords.newRecord().in(DEAD_STREAM).ofMap(fields));
+    }
+    log.error("Cambio de perfil {} descartado tras {} intentos", id, maxDeliveries);
+    stringRedisTemplate.opsForStream().acknowledge(STREAM, GROUP, id);
+    deadLettered.increment();
+  }
+
+  private void refreshLag() {
+    StreamInfo.XInfoStream stream = stringRedisTemplate.opsForStream().info(STREAM);
+    StreamInfo.XInfoGroups groups = stringRedisTemplate.opsForStream().groups(STREAM);
+    groups.stream().filter(group -> GROUP.equals(group.groupName())).findFirst().ifPresent(group -> {
+      pending.set(group.pendingCount());
+      long lastGenerated = RecordId.of(stream.lastGeneratedId()).getTimestamp();
+      long lastDelivered = RecordId.of(group.lastDeliveredId()).getTimestamp();
+      lagMillis.set(Math.max(0, lastGenerated - lastDelivered));
+    });
+  }
+
+  static boolean isNewer(RecordId candidate, RecordId current) {
+    // getTimestamp()/getSequence() devuelven Long: comparar por valor, no por referencia
+    int byTime = Long.compare(candidate.getTimestamp(), current.getTimestamp());
+    return byTime != 0 ? byTime > 0 : candidate.getSequence() > current.getSequence();
+  }
+
+  private void pause() {
+    try {
+      Thread.sleep(block.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      running = false;
+    }
+  }
+}
@@ -0,0 +1,168 @@
+package org.example.bookfriendship.Service;
+
+import org.example.bookfriendship.Model.Friendship;
+import org.example.bookfriendship.Model.FriendshipDto;
+import org.example.bookfriendship.util.JwtTokenHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Versión no bloqueante de los listados de amistades: las aristas se leen con un cursor reactivo de Mongo en bloques
+ * de {@code friends.stream.chunk-size}, y cada bloque se resuelve con {@link UserSummaryCache} (caché local y MGET
+ * reactivo de {@code user:{id}}) más {@code POST /users/batch} por WebClient para los que falten. Cada bloque se pide
+ * cuando el cliente ha consumido el anterior, así que la memoria por petición no depende del tamaño de la lista.
+ */
+@Service
+public class ReactiveFriendshipService {
+
+  private static final Logger log = LoggerFactory.getLogger(ReactiveFriendshipService.class);
+
+  private static final ParameterizedTypeReference<Map<String, String>> USER_SUMMARY =
+      new ParameterizedTypeReference<>() {
+      };
+
+  private final ReactiveMongoTemplate reactiveMongoTemplate;
+  private final UserSummaryCache userSummaryCache;
+  private final WebClient webClient;
+
+  @Value("${production.url.backredirect}")
+  private String productionUrl;
+
+  // No debe superar users.batch.max-size de Book
+  @Value("${friends.stream.chunk-size:50}")
+  private int chunkSize;
+
+  @Value("${friendships.resolve.deadline:PT2S}")
+  private Duration resolveDeadline;
+
+  public ReactiveFriendshipService(ReactiveMongoTemplate reactiveMongoTemplate,
+      UserSummaryCache userSummaryCache, WebClient webClient) {
+    this.reactiveMongoTemplate = reactiveMongoTemplate;
+    this.userSummaryCache = userSummaryCache;
+    this.webClient = webClient;
+  }
+
+  public Flux<FriendshipDto> streamFriendships(String userId, String jwtToken) {
+    return streamFriendships(userId, "accepted", jwtToken);
+  }
+
+  public Flux<FriendshipDto> streamPendingFriendships(String userId, String jwtToken) {
+    return streamFriendships(userId, "pending", jwtToken);
+  }
+
+  private Flux<FriendshipDto> streamFriendships(String userId, String status, String jwtToken) {
+    Query query = new Query(new Criteria().orOperator(
+        Criteria.where("requesterId").is(userId).and("status").is(status),
+        Criteria.where("friendId").is(userId).and("status").is(status)))
+        .with(Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("_id")));
+    query.fields().include("requesterId", "friendId", "status", "createdAt", "requesterUsername",
+        "requesterPhotoUrl", "friendUsername", "friendPhotoUrl");
+
+    Flux<FriendshipDto> friendships = reactiveMongoTemplate.find(query, Friendship.class)
+        .buffer(chunkSize)
+        .concatMap(chunk -> resolveUsers(counterpartIds(userId, chunk))
+            .flatMapIterable(users -> toDtos(userId, chunk, users)));
+    return jwtToken == null ? friendships : friendships.contextWrite(Context.of(JwtTokenHolder.CONTEXT_KEY, jwtToken));
+  }
+
+  private Mono<Map<String, String>> resolveUsers(List<String> ids) {
+    if (ids.isEmpty()) {
+      return Mono.just(Map.of());
+    }
+    return userSummaryCache.getAllReactive(ids)
+        .flatMap(cached -> {
+          Map<String, String> usernameMap = new HashMap<>();
+          List<String> misses = new ArrayList<>();
+          for (String id : ids) {
+            Map<String, String> info = cached.get(id);
+            if (info != null && info.get("username") != null) {
+              usernameMap.put(id, String.valueOf(info.get("username")));
+              if (info.get("PhotoUrl") != null) {
+                usernameMap.put(id + "_photoUrl", String.valueOf(info.get("PhotoUrl")));
+              }
+            } else {
+              misses.add(id);
+            }
+          }
+          if (misses.isEmpty()) {
+            return Mono.just(usernameMap);
+          }
+          return fetchUserSummaries(misses).map(fetched -> {
+            usernameMap.putAll(fetched);
+            return usernameMap;
+          });
+        });
+  }
+
+  // Igual que en FriendshipService: si Book no responde a tiempo se devuelven los usuarios sin nombre
+  private Mono<Map<String, String>> fetchUserSummaries(List<String> ids) {
+    return webClient.post()
+        .uri(productionUrl + "/users/batch")
+        .bodyValue(ids)
+        .retrieve()
+        .bodyToFlux(USER_SUMMARY)
+        .collect(HashMap<String, String>::new, (usernameMap, summary) -> {
+          String id = summary.get("id");
+          if (summary.get("username") != null) {
+            usernameMap.put(id, summary.get("username"));
+          }
+          if (summary.get("photoUrl") != null) {
+            usernameMap.put(id + "_photoUrl", summary.get("photoUrl"));
+          }
+        })
+        .map(usernameMap -> (Map<String, String>) usernameMap)
+        .timeout(resolveDeadline)
+        .onErrorResume(e -> {
+          log.error("No se pudieron obtener {} usuarios del servicio externo: {}", ids.size(), e.getMessage());
+          return Mono.just(Map.of());
+        });
+  }
+
+  private static List<String> counterpartIds(String userId, List<Friendship> friendships) {
+    Set<String> ids = new LinkedHashSet<>();
+    for (Friendship friendship : friendships) {
+      // Los que ya llevan el nombre copiado en la amistad no hace falta resolverlos
+      if (friendship.counterpartUsername(userId) == null) {
+        ids.add(friendship.counterpartId(userId));
+      }
+    }
+    return new ArrayList<>(ids);
+  }
+
+  private static List<FriendshipDto> toDtos(String userId, List<Friendship> friendships,
+      Map<String, String> usernameMap) {
+    return friendships.stream()
+        .map(friendship -> {
+          String actualFriendId = friendship.counterpartId(userId);
+          if (friendship.counterpartUsername(userId) != null) {
+            return new FriendshipDto(friendship.getId(), friendship.getRequesterId(),
+                friendship.counterpartUsername(userId), actualFriendId, friendship.getStatus(),
+                friendship.getCreatedAt(), friendship.counterpartPhotoUrl(userId));
+          }
+          return new FriendshipDto(friendship.getId(), friendship.getRequesterId(),
+              usernameMap.getOrDefault(actualFriendId, "Unknown"), actualFriendId, friendship.getStatus(),
+              friendship.getCreatedAt(), usernameMap.get(actualFriendId + "_photoUrl"));
+        })
+        .collect(Collectors.toList());
+  }
+}
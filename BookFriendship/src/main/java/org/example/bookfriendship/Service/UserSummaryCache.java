@@ -0,0 +1,141 @@
+package org.example.bookfriendship.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Caché local (Caffeine, admisión W-TinyLFU) de los resúmenes {@code user:{id}} que escribe Book en Redis, para no ir
+ * a Redis por los mismos usuarios en cada listado.
+ * <p>
+ * Book y {@link FriendProfileSync} publican en {@value #INVALIDATION_CHANNEL} el id de cada resumen que cambian o
+ * borran, y cada nodo descarta su copia al recibirlo; el TTL corto acota lo que dure una copia si se pierde un aviso.
+ * Lo leído de Redis solo se guarda si no llegó ninguna invalidación durante la lectura.
+ */
+@Component
+public class UserSummaryCache implements MessageListener {
+
+  public static final String INVALIDATION_CHANNEL = "user-summary-invalidated";
+
+  private static final String KEY_PREFIX = "user:";
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final ReactiveRedisTemplate<String, Object> reactiveRedisTemplate;
+  private final Cache<String, Map<String, String>> near;
+  private final AtomicLong generation = new AtomicLong();
+  private final Counter redisHits;
+  private final Counter redisMisses;
+
+  public UserSummaryCache(RedisTemplate<String, Object> redisTemplate,
+      ReactiveRedisTemplate<String, Object> reactiveRedisTemplate,
+      @Value("${friends.user-near-cache.max-size:20000}") long maxSize,
+      @Value("${friends.user-near-cache.ttl:PT30S}") Duration ttl,
+      MeterRegistry meterRegistry) {
+    this.redisTemplate = redisTemplate;
+    this.reactiveRedisTemplate = reactiveRedisTemplate;
+    this.near = Caffeine.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttl)
+        .recordStats()
+        .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, near, "userSummaries");
+    // Mismas métricas que Caffeine (cache.gets por resultado) para comparar la tasa de aciertos de los dos niveles
+    this.redisHits = Counter.builder("cache.gets").tag("cache", "userSummaries.redis").tag("result", "hit")
+        .register(meterRegistry);
+    this.redisMisses = Counter.builder("cache.gets").tag("cache", "userSummaries.redis").tag("result", "miss")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Devuelve los resúmenes que estén en la caché local o en Redis (estos con un solo MGET); los que no estén en
+   * ninguno de los dos no aparecen en el mapa.
+   */
+  public Map<String, Map<String, String>> getAll(Collection<String> userIds) {
+    Map<String, Map<String, String>> found = new HashMap<>(near.getAllPresent(userIds));
+    List<String> remote = remaining(userIds, found);
+    if (remote.isEmpty()) {
+      return found;
+    }
+    long observed = generation.get();
+    List<Object> cached = redisTemplate.opsForValue().multiGet(keys(remote));
+    collect(remote, cached, found, observed);
+    return found;
+  }
+
+  /**
+   * Igual que {@link #getAll(Collection)} sin bloquear el hilo.
+   */
+  public Mono<Map<String, Map<String, String>>> getAllReactive(Collection<String> userIds) {
+    Map<String, Map<String, String>> found = new HashMap<>(near.getAllPresent(userIds));
+    List<String> remote = remaining(userIds, found);
+    if (remote.isEmpty()) {
+      return Mono.just(found);
+    }
+    long observed = generation.get();
+    return reactiveRedisTemplate.opsForValue().multiGet(keys(remote))
+        .defaultIfEmpty(List.of())
+        .map(cached -> {
+          collect(remote, cached.size() == remote.size() ? cached : null, found, observed);
+          return found;
+        });
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    generation.incrementAndGet();
+    near.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+  }
+
+  private static List<String> remaining(Collection<String> userIds, Map<String, Map<String, String>> found) {
+    return userIds.stream().filter(id -> !found.containsKey(id)).distinct().collect(Collectors.toList());
+  }
+
+  private static List<String> keys(List<String> userIds) {
+    return userIds.stream().map(id -> KEY_PREFIX + id).collect(Collectors.toList());
+  }
+
+  @SuppressWarnings("unchecked")
+  private void collect(List<String> remote, List<Object> cached, Map<String, Map<String, String>> found,
+      long observed) {
+    for (int i = 0; i < remote.size(); i++) {
+      Object userInfo = cached == null ? null : cached.get(i);
+      if (!(userInfo instanceof Map<?, ?> info) || info.isEmpty()) {
+        redisMisses.increment();
+        continue;
+      }
+      redisHits.increment();
+      Map<String, String> summary = new HashMap<>((Map<String, String>) info);
+      found.put(remote.get(i), summary);
+      keepLocally(remote.get(i), summary, observed);
+    }
+  }
+
+  private void keepLocally(String userId, Map<String, String> userInfo, long observed) {
+    if (generation.get() != observed) {
+      return;
+    }
+    near.put(userId, userInfo);
+    // Una invalidación que llegue entre la comprobación y el put no debe quedar sin efecto
+    if (generation.get() != observed) {
+      near.invalidate(userId);
+    }
+  }
+}
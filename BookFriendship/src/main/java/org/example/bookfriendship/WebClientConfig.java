@@ -0,0 +1,32 @@
+package org.example.bookfriendship;
+
+import org.example.bookfriendship.util.JwtTokenHolder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+@Configuration
+public class WebClientConfig {
+
+    /**
+     * WebClient para llamar a Book sin bloquear hilos. El JWT no puede leerse de un ThreadLocal en una cadena
+     * reactiva, así que se toma del contexto de Reactor ({@link JwtTokenHolder#CONTEXT_KEY}).
+     */
+    @Bean
+    public WebClient webClient(WebClient.Builder builder) {
+        ExchangeFilterFunction propagateJwt = (request, next) -> Mono.deferContextual(context -> {
+            String jwtToken = context.getOrDefault(JwtTokenHolder.CONTEXT_KEY, null);
+            if (jwtToken == null) {
+                return next.exchange(request);
+            }
+            return next.exchange(ClientRequest.from(request)
+                    .headers(headers -> headers.set(HttpHeaders.AUTHORIZATION, "Bearer " + jwtToken))
+                    .build());
+        });
+        return builder.filter(propagateJwt).build();
+    }
+}
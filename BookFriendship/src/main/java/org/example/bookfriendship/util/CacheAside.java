@@ -0,0 +1,347 @@
+package org.example.bookfriendship.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache-aside sobre Redis para las listas cacheadas de los controladores, con tres protecciones contra estampidas:
+ * <ul>
+ *   <li>TTL con jitter ({@code cache.ttl} ± {@code cache.ttl-jitter}), para que lo escrito a la vez no caduque a la
+ *   vez.</li>
+ *   <li>Refresco anticipado probabilístico (XFetch): junto a cada valor se guarda cuánto tardó en calcularse
+ *   ({@code recompute:<clave>}) y cada lectura decide recalcularlo antes de tiempo con una probabilidad que crece al
+ *   acercarse la caducidad y con lo caro que sea el cálculo. El refresco se hace en {@code cacheRefreshExecutor}: la
+ *   lectura que lo dispara devuelve el valor cacheado sin esperarlo.</li>
+ *   <li>Un solo cálculo por clave entre todas las instancias: quien recalcula toma antes un lease corto en Redis
+ *   ({@code lease:<clave>}, SET NX PX). Si hay valor, el resto sigue sirviéndolo; si no, espera hasta
+ *   {@code cache.lease-wait} a que aparezca y, si no aparece, lo calcula por su cuenta.</li>
+ * </ul>
+ * Cada clave tiene además una generación ({@code gen:<clave>}) que sube quien modifica el valor por otro camino (ver
+ * {@link #generationKey}). Un cálculo lee la generación antes de empezar y solo escribe si no ha cambiado, así que lo
+ * calculado con datos anteriores a una modificación no la pisa; {@link #invalidate} la sube también.
+ * <p>
+ * Book tiene una copia de esta clase ({@code com.example.book.Util.CacheAside}): los servicios son builds Maven
+ * independientes, sin un módulo común del que depender. Las dos comparten claves en Redis ({@code user:<id>} lo llena
+ * Book y lo parchea {@code FriendProfileSync}), así que los prefijos {@code lease:}, {@code recompute:} y
+ * {@code gen:} y los scripts tienen que cambiar a la vez en ambas.
+ */
+@Component
+public class CacheAside {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheAside.class);
+    private static final String LEASE_PREFIX = "lease:";
+    private static final String RECOMPUTE_PREFIX = "recompute:";
+    private static final String GENERATION_PREFIX = "gen:";
+    private static final long POLL_MILLIS = 25;
+
+    // Libera el lease solo si sigue siendo nuestro (pudo caducar y tomarlo otra instancia)
+    private static final RedisScript<Long> RELEASE_LEASE = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0", Long.class);
+
+    // KEYS: valor, recompute:<clave>, gen:<clave>; ARGV: generación leída, valor, ms de cálculo, TTL en ms
+    private static final RedisScript<Long> SET_IF_GENERATION = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[3]) or '0') ~= ARGV[1] then return 0 end\n"
+                    + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[4])\n"
+                    + "redis.call('SET', KEYS[2], ARGV[3], 'PX', ARGV[4])\n"
+                    + "return 1", Long.class);
+
+    // KEYS: hash, gen:<hash>; ARGV: generación leída, campo, valor, TTL en ms
+    private static final RedisScript<Long> HSET_IF_GENERATION = new DefaultRedisScript<>(
+            "if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then return 0 end\n"
+                    + "redis.call('HSET', KEYS[1], ARGV[2], ARGV[3])\n"
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[4])\n"
+                    + "return 1", Long.class);
+
+    // KEYS: n claves, sus n recompute:<clave> y sus n gen:<clave>; ARGV: TTL de las generaciones en ms
+    private static final RedisScript<Long> INVALIDATE = new DefaultRedisScript<>(
+            "local n = #KEYS / 3\n"
+                    + "for i = 1, n do\n"
+                    + "  redis.call('DEL', KEYS[i], KEYS[n + i])\n"
+                    + "  redis.call('INCR', KEYS[2 * n + i])\n"
+                    + "  redis.call('PEXPIRE', KEYS[2 * n + i], ARGV[1])\n"
+                    + "end\n"
+                    + "return n", Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ObjectMapper objectMapper;
+    private final TaskExecutor refreshExecutor;
+    private final Counter recomputedOnMiss;
+    private final Counter refreshedEarly;
+    private final Counter refreshesRejected;
+    private final Counter waitsFilled;
+    private final Counter waitsTimedOut;
+
+    @Value("${cache.ttl:PT1H}")
+    private Duration ttl;
+
+    @Value("${cache.ttl-jitter:0.1}")
+    private double ttlJitter;
+
+    // beta de XFetch: 1 es el valor recomendado; mayor adelanta más los refrescos
+    @Value("${cache.xfetch-beta:1.0}")
+    private double xfetchBeta;
+
+    @Value("${cache.lease:PT5S}")
+    private Duration lease;
+
+    @Value("${cache.lease-wait:PT200MS}")
+    private Duration leaseWait;
+
+    public CacheAside(RedisTemplate<String, Object> redisTemplate, StringRedisTemplate stringRedisTemplate,
+                      ObjectMapper objectMapper, @Qualifier("cacheRefreshExecutor") TaskExecutor refreshExecutor,
+                      MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.refreshExecutor = refreshExecutor;
+        this.recomputedOnMiss = Counter.builder("cache.aside.recomputes").tag("trigger", "miss")
+                .register(meterRegistry);
+        this.refreshedEarly = Counter.builder("cache.aside.recomputes").tag("trigger", "early")
+                .register(meterRegistry);
+        this.refreshesRejected = Counter.builder("cache.aside.early_refreshes_rejected")
+                .description("Refrescos anticipados descartados por tener la cola de cacheRefreshExecutor llena")
+                .register(meterRegistry);
+        this.waitsFilled = Counter.builder("cache.aside.lease_waits").tag("result", "filled")
+                .register(meterRegistry);
+        this.waitsTimedOut = Counter.builder("cache.aside.lease_waits").tag("result", "timeout")
+                .register(meterRegistry);
+    }
+
+    public <T> T get(String key, TypeReference<T> type, Supplier<T> loader) {
+        return get(key, type, loader, value -> true);
+    }
+
+    /**
+     * Devuelve el valor de {@code key} o lo calcula con {@code loader}; solo se guarda si cumple {@code cacheable}.
+     */
+    public <T> T get(String key, TypeReference<T> type, Supplier<T> loader, Predicate<T> cacheable) {
+        List<Object> read = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, Object> ops = (RedisOperations<String, Object>) operations;
+                ops.opsForValue().get(key);
+                ops.getExpire(key, TimeUnit.MILLISECONDS);
+                ops.opsForValue().get(RECOMPUTE_PREFIX + key);
+                ops.opsForValue().get(GENERATION_PREFIX + key);
+                return null;
+            }
+        });
+        Object cached = read.get(0);
+        String generation = read.get(3) == null ? "0" : read.get(3).toString();
+
+        if (cached != null) {
+            if (read.get(1) instanceof Long remaining && read.get(2) instanceof Number recomputeMillis
+                    && shouldRefreshEarly(recomputeMillis.longValue(), remaining)) {
+                String token = tryLease(key);
+                if (token != null) {
+                    refreshInBackground(key, generation, token, loader, cacheable);
+                }
+            }
+            return objectMapper.convertValue(cached, type);
+        }
+
+        String token = tryLease(key);
+        if (token == null) {
+            Object filled = awaitValue(key);
+            if (filled != null) {
+                waitsFilled.increment();
+                return objectMapper.convertValue(filled, type);
+            }
+            waitsTimedOut.increment();
+        }
+        recomputedOnMiss.increment();
+        try {
+            return recompute(key, generation, loader, cacheable);
+        } finally {
+            if (token != null) {
+                releaseLease(key, token);
+            }
+        }
+    }
+
+    /**
+     * Igual que {@link #get(String, TypeReference, Supplier)} para un campo de un hash; el TTL (con jitter) es el del
+     * hash entero, así que no hay refresco anticipado por campo.
+     */
+    public <T> T getField(String hashKey, String field, TypeReference<T> type, Supplier<T> loader) {
+        String generation = stringRedisTemplate.opsForValue().get(GENERATION_PREFIX + hashKey);
+        Object cached = redisTemplate.opsForHash().get(hashKey, field);
+        if (cached != null) {
+            return objectMapper.convertValue(cached, type);
+        }
+
+        String leaseKey = hashKey + "|" + field;
+        String token = tryLease(leaseKey);
+        if (token == null) {
+            long deadline = System.nanoTime() + leaseWait.toNanos();
+            while (System.nanoTime() < deadline && pause()) {
+                Object filled = redisTemplate.opsForHash().get(hashKey, field);
+                if (filled != null) {
+                    waitsFilled.increment();
+                    return objectMapper.convertValue(filled, type);
+                }
+            }
+            waitsTimedOut.increment();
+        }
+        recomputedOnMiss.increment();
+        try {
+            T value = loader.get();
+            stringRedisTemplate.execute(HSET_IF_GENERATION, List.of(hashKey, GENERATION_PREFIX + hashKey),
+                    generation == null ? "0" : generation, field, serialize(value),
+                    String.valueOf(ttl().toMillis()));
+            return value;
+        } finally {
+            if (token != null) {
+                releaseLease(leaseKey, token);
+            }
+        }
+    }
+
+    /**
+     * Borra {@code keys} (valores o hashes de páginas) y su tiempo de cálculo, y sube su generación: un cálculo que ya
+     * estuviera en marcha con los datos anteriores no las vuelve a escribir.
+     */
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        List<String> scriptKeys = new ArrayList<>(keys);
+        keys.forEach(key -> scriptKeys.add(RECOMPUTE_PREFIX + key));
+        keys.forEach(key -> scriptKeys.add(GENERATION_PREFIX + key));
+        stringRedisTemplate.execute(INVALIDATE, scriptKeys, String.valueOf(generationTtl().toMillis()));
+    }
+
+    /**
+     * Clave de la generación de {@code key}. Quien cambie el valor de {@code key} sin pasar por aquí (parcheándolo en
+     * el sitio, por ejemplo) debe incrementarla en la misma operación, con {@link #generationTtl()} como caducidad.
+     */
+    public static String generationKey(String key) {
+        return GENERATION_PREFIX + key;
+    }
+
+    /**
+     * Caducidad de las generaciones: más larga que cualquier valor, para que una generación no desaparezca (y vuelva a
+     * empezar desde 0) mientras un cálculo la está usando.
+     */
+    public Duration generationTtl() {
+        return ttl.multipliedBy(2);
+    }
+
+    /**
+     * TTL con jitter para las entradas que se escriben fuera de este helper.
+     */
+    public Duration ttl() {
+        double factor = 1 + ttlJitter * (2 * ThreadLocalRandom.current().nextDouble() - 1);
+        return Duration.ofMillis(Math.max(1, (long) (ttl.toMillis() * factor)));
+    }
+
+    // Si la cola está llena no se refresca: otra lectura volverá a intentarlo, y si no, se recalcula al caducar
+    private <T> void refreshInBackground(String key, String generation, String token, Supplier<T> loader,
+                                         Predicate<T> cacheable) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    recompute(key, generation, loader, cacheable);
+                } catch (RuntimeException e) {
+                    log.warn("Error refrescando {} en segundo plano: {}", key, e.getMessage());
+                } finally {
+                    releaseLease(key, token);
+                }
+            });
+            refreshedEarly.increment();
+        } catch (TaskRejectedException e) {
+            refreshesRejected.increment();
+            releaseLease(key, token);
+        }
+    }
+
+    // Solo escribe si la generación sigue siendo la leída antes de llamar a loader
+    private <T> T recompute(String key, String generation, Supplier<T> loader, Predicate<T> cacheable) {
+        long start = System.nanoTime();
+        T value = loader.get();
+        long recomputeMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        if (value == null || !cacheable.test(value)) {
+            return value;
+        }
+        stringRedisTemplate.execute(SET_IF_GENERATION,
+                List.of(key, RECOMPUTE_PREFIX + key, GENERATION_PREFIX + key),
+                generation, serialize(value), String.valueOf(recomputeMillis), String.valueOf(ttl().toMillis()));
+        return value;
+    }
+
+    // Mismo formato que los valores de redisTemplate
+    @SuppressWarnings("unchecked")
+    private String serialize(Object value) {
+        byte[] bytes = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(value);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // XFetch: recalcular si ahora - delta * beta * ln(rand) >= caducidad
+    private boolean shouldRefreshEarly(long recomputeMillis, long remainingMillis) {
+        if (remainingMillis <= 0) {
+            return false;
+        }
+        double random = 1 - ThreadLocalRandom.current().nextDouble();
+        return -recomputeMillis * xfetchBeta * Math.log(random) >= remainingMillis;
+    }
+
+    private String tryLease(String key) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(LEASE_PREFIX + key, token, lease);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    private void releaseLease(String key, String token) {
+        stringRedisTemplate.execute(RELEASE_LEASE, List.of(LEASE_PREFIX + key), token);
+    }
+
+    private Object awaitValue(String key) {
+        long deadline = System.nanoTime() + leaseWait.toNanos();
+        while (System.nanoTime() < deadline && pause()) {
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private static boolean pause() {
+        try {
+            Thread.sleep(POLL_MILLIS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.bookfriendship.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Comprueba el valor de {@code X-Gateway-Auth} que BookGateway añade a las cabeceras de identidad que reenvía:
+ * {@code v1.<epochSeconds>.<base64url HMAC-SHA256>} sobre id, nombre de usuario, roles y marca de tiempo, con la clave
+ * {@code gateway.identity.secret}. Debe coincidir con {@code IdentitySignature} del gateway.
+ */
+public final class GatewayIdentitySignature {
+
+    private static final String VERSION = "v1";
+
+    private GatewayIdentitySignature() {
+    }
+
+    public static boolean verify(String secret, String signature, String userId, String username, String roles,
+                                 long nowEpochSeconds, long maxSkewSeconds) {
+        if (secret == null || secret.isEmpty() || signature == null || userId == null) {
+            return false;
+        }
+        String[] parts = signature.split("\\.", 3);
+        if (parts.length != 3 || !VERSION.equals(parts[0])) {
+            return false;
+        }
+        long epochSeconds;
+        try {
+            epochSeconds = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Math.abs(nowEpochSeconds - epochSeconds) > maxSkewSeconds) {
+            return false;
+        }
+        String expected = mac(secret, String.join("\n", userId, username == null ? "" : username,
+                roles == null ? "" : roles, Long.toString(epochSeconds)));
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                parts[2].getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String mac(String secret, String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
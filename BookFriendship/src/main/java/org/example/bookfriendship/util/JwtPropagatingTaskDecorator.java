@@ -0,0 +1,24 @@
+package org.example.bookfriendship.util;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * Captura el JWT del hilo que envía la tarea y lo deja disponible en {@link JwtTokenHolder} mientras se ejecuta, para
+ * que {@link JwtTokenInterceptor} pueda propagarlo fuera del hilo de la petición.
+ */
+public class JwtPropagatingTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        String token = JwtTokenHolder.current();
+        return () -> {
+            String previous = JwtTokenHolder.get();
+            JwtTokenHolder.set(token);
+            try {
+                runnable.run();
+            } finally {
+                JwtTokenHolder.set(previous);
+            }
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.bookfriendship.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * JWT de la petición en curso para las llamadas a otros servicios. En el hilo de la petición se lee de la propia
+ * petición; en los hilos del executor lo deja {@link JwtPropagatingTaskDecorator}.
+ */
+public final class JwtTokenHolder {
+
+    // Clave del contexto de Reactor con el JWT para las llamadas de WebClient (ver WebClientConfig)
+    public static final String CONTEXT_KEY = JwtTokenHolder.class.getName();
+
+    private static final ThreadLocal<String> TOKEN = new ThreadLocal<>();
+
+    private JwtTokenHolder() {
+    }
+
+    public static String current() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            return JwtTokenUtil.obtenerJwtDeLaSolicitud(request);
+        }
+        return TOKEN.get();
+    }
+
+    static String get() {
+        return TOKEN.get();
+    }
+
+    static void set(String token) {
+        if (token == null) {
+            TOKEN.remove();
+        } else {
+            TOKEN.set(token);
+        }
+    }
+}
@@ -2,13 +2,18 @@ package org.example.bookfriendship.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.bookfriendship.Service.UserSummaryCache;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
@@ -37,6 +42,39 @@ public class RedisConfig {
 		RedisTemplate<String, Object> template = new RedisTemplate<>();
 		template.setConnectionFactory(redisConnectionFactory);
 
+		Jackson2JsonRedisSerializer<Object> serializer = jsonSerializer();
+
+		template.setKeySerializer(new StringRedisSerializer());
+		template.setValueSerializer(serializer);
+		template.setHashKeySerializer(new StringRedisSerializer());
+		template.setHashValueSerializer(serializer);
+
+		return template;
+	}
+
+	// Mismo formato que redisTemplate, para los listados en streaming
+	@Bean
+	public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(LettuceConnectionFactory redisConnectionFactory) {
+		RedisSerializationContext<String, Object> context = RedisSerializationContext
+				.<String, Object>newSerializationContext(new StringRedisSerializer())
+				.value(jsonSerializer())
+				.hashKey(new StringRedisSerializer())
+				.hashValue(jsonSerializer())
+				.build();
+		return new ReactiveRedisTemplate<>(redisConnectionFactory, context);
+	}
+
+	// Invalida la caché local de resúmenes de usuario cuando Book u otro nodo los cambia
+	@Bean
+	public RedisMessageListenerContainer userSummaryInvalidationContainer(LettuceConnectionFactory redisConnectionFactory,
+			UserSummaryCache userSummaryCache) {
+		RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(redisConnectionFactory);
+		container.addMessageListener(userSummaryCache, new ChannelTopic(UserSummaryCache.INVALIDATION_CHANNEL));
+		return container;
+	}
+
+	private static Jackson2JsonRedisSerializer<Object> jsonSerializer() {
 		// Configure ObjectMapper to support Java 8 date/time types
 		ObjectMapper objectMapper = new ObjectMapper();
 		objectMapper.registerModule(new JavaTimeModule());
@@ -44,10 +82,6 @@ public class RedisConfig {
 		// Initialize Jackson2JsonRedisSerializer with the configured ObjectMapper
 		Jackson2JsonRedisSerializer<Object> serializer = new Jackson2JsonRedisSerializer<>(Object.class);
 		serializer.setObjectMapper(objectMapper);
-
-		template.setKeySerializer(new StringRedisSerializer());
-		template.setValueSerializer(serializer);
-
-		return template;
+		return serializer;
 	}
 }
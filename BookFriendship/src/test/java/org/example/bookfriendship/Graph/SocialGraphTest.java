@@ -0,0 +1,180 @@
+package org.example.bookfriendship.Graph;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SocialGraphTest {
+
+    @Test
+    void findsMutualFriendsInBothDirections() {
+        SocialGraph graph = graph("ana:luis", "ana:eva", "ana:pablo", "luis:eva", "pablo:luis", "eva:marta");
+
+        assertEquals(List.of("eva", "pablo"), sorted(graph.mutualFriends("ana", "luis")));
+        assertEquals(sorted(graph.mutualFriends("ana", "luis")), sorted(graph.mutualFriends("luis", "ana")));
+        assertEquals(List.of(), graph.mutualFriends("ana", "desconocido"));
+    }
+
+    @Test
+    void suggestsFriendsOfFriendsByMutualCount() {
+        SocialGraph graph = graph("ana:luis", "ana:eva", "luis:marta", "eva:marta", "eva:pablo", "luis:eva");
+
+        List<SocialGraph.Suggestion> suggestions = graph.suggestions("ana", 10);
+
+        assertEquals(List.of("marta", "pablo"), suggestions.stream().map(SocialGraph.Suggestion::getUserId).toList());
+        assertEquals(2, suggestions.get(0).getMutualFriends());
+        assertEquals(1, suggestions.get(1).getMutualFriends());
+        assertEquals(1, graph.suggestions("ana", 1).size());
+        assertEquals(List.of(), graph.suggestions("desconocido", 10));
+    }
+
+    @Test
+    void ignoresSelfLoopsAndDuplicateEdges() {
+        SocialGraph graph = graph("ana:ana", "ana:luis", "luis:ana", "ana:luis");
+
+        assertEquals(1, graph.degree("ana"));
+        assertEquals(1, graph.degree("luis"));
+    }
+
+    @Test
+    void appliesWritesInPlace() {
+        SocialGraph graph = graph("ana:luis");
+
+        graph.addFriendship("ana", "eva");
+        graph.addFriendship("luis", "eva");
+        assertEquals(List.of("eva"), graph.mutualFriends("ana", "luis"));
+
+        graph.removeFriendship("ana", "eva");
+        assertEquals(1, graph.degree("ana"));
+        assertEquals(List.of(), graph.mutualFriends("ana", "luis"));
+
+        graph.removeFriendship("ana", "desconocido");
+        assertEquals(1, graph.degree("ana"));
+    }
+
+    @Test
+    void growsPastTheInitialCapacity() {
+        SocialGraph graph = new SocialGraph();
+        for (int i = 0; i < 1000; i++) {
+            graph.addFriendship("hub", "user" + i);
+        }
+
+        assertEquals(1000, graph.degree("hub"));
+        assertEquals(1001, graph.vertexCount());
+        assertEquals(List.of("hub"), graph.mutualFriends("user1", "user999"));
+    }
+
+    @Test
+    void reloadReplacesTheGraph() {
+        SocialGraph graph = graph("ana:luis");
+
+        graph.load(consumer -> consumer.accept("eva", "marta"));
+
+        assertEquals(0, graph.degree("ana"));
+        assertEquals(1, graph.degree("eva"));
+        assertTrue(graph.isLoaded());
+    }
+
+    @Test
+    void writesDuringALoadSurviveIt() throws Exception {
+        SocialGraph graph = graph("ana:luis");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch written = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // La carga lee el estado de Mongo antes de los dos cambios
+            Future<?> load = executor.submit(() -> graph.load(consumer -> {
+                consumer.accept("ana", "luis");
+                consumer.accept("ana", "eva");
+                loading.countDown();
+                await(written);
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            graph.addFriendship("ana", "pablo");
+            graph.removeFriendship("ana", "eva");
+            written.countDown();
+            load.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(List.of("luis", "pablo"), sorted(friendsOf(graph, "ana")));
+    }
+
+    @Test
+    void readersNeverSeeAPartialWrite() throws Exception {
+        SocialGraph graph = graph("ana:luis");
+        AtomicBoolean running = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                readers.add(executor.submit(() -> {
+                    while (running.get()) {
+                        // ana:luis no se toca nunca, así que ninguna lectura puede ver a ana sin amigos
+                        assertTrue(graph.degree("ana") >= 1);
+                        graph.suggestions("luis", 5);
+                        graph.mutualFriends("ana", "luis");
+                    }
+                }));
+            }
+            for (int i = 0; i < 2000; i++) {
+                graph.addFriendship("ana", "user" + i);
+                graph.addFriendship("luis", "user" + i);
+                if (i % 2 == 0) {
+                    graph.removeFriendship("ana", "user" + i);
+                }
+            }
+            running.set(false);
+            for (Future<?> reader : readers) {
+                reader.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            running.set(false);
+            executor.shutdownNow();
+        }
+
+        assertEquals(1001, graph.degree("ana"));
+        assertEquals(1000, graph.mutualFriends("ana", "luis").size());
+        assertFalse(graph.suggestions("ana", 1).isEmpty());
+    }
+
+    private static SocialGraph graph(String... edges) {
+        SocialGraph graph = new SocialGraph();
+        graph.load(consumer -> {
+            for (String edge : edges) {
+                String[] users = edge.split(":");
+                consumer.accept(users[0], users[1]);
+            }
+        });
+        return graph;
+    }
+
+    // Los amigos en común de un usuario consigo mismo son todos sus amigos
+    private static List<String> friendsOf(SocialGraph graph, String userId) {
+        return graph.mutualFriends(userId, userId);
+    }
+
+    private static List<String> sorted(List<String> values) {
+        return values.stream().sorted().toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
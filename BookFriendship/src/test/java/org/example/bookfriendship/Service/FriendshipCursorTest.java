@@ -0,0 +1,43 @@
+package org.example.bookfriendship.Service;
+
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FriendshipCursorTest {
+
+  @Test
+  void roundTripsDatedPositions() {
+    FriendshipCursor cursor = new FriendshipCursor(LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_000_000),
+        "65e1a0c2f1d2c3b4a5968778");
+
+    String encoded = cursor.encode();
+
+    assertFalse(encoded.contains("=") || encoded.contains("+") || encoded.contains("/"));
+    assertEquals(cursor, FriendshipCursor.decode(encoded));
+  }
+
+  @Test
+  void roundTripsUndatedPositions() {
+    FriendshipCursor cursor = new FriendshipCursor(null, "65e1a0c2f1d2c3b4a5968778");
+
+    assertEquals(cursor, FriendshipCursor.decode(cursor.encode()));
+  }
+
+  @Test
+  void rejectsMalformedCursors() {
+    assertThrows(IllegalArgumentException.class, () -> FriendshipCursor.decode("no es base64!"));
+    assertThrows(IllegalArgumentException.class, () -> FriendshipCursor.decode(encode("sin-separador")));
+    assertThrows(IllegalArgumentException.class, () -> FriendshipCursor.decode(encode("2024-03-01T10:15|")));
+    assertThrows(IllegalArgumentException.class, () -> FriendshipCursor.decode(encode("ayer|abc")));
+  }
+
+  private static String encode(String raw) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes());
+  }
+}
@@ -0,0 +1,92 @@
+package org.example.bookfriendship.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.example.bookfriendship.Model.Friendship;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Query;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Forma de las consultas de paginación: cada una debe poder resolverse como un único rango del índice
+ * {@code <campo>_status_created} en su propio orden, sin {@code $or} ni SORT en memoria.
+ */
+class FriendshipPageQueryTest {
+
+  private static final Document INDEX_ORDER = new Document("createdAt", -1).append("_id", -1);
+  private static final LocalDateTime SINCE = LocalDateTime.of(2024, 3, 1, 10, 15);
+
+  @Test
+  void firstPageIsOneEqualityPrefixPerBranch() {
+    List<Query> queries = FriendshipService.branchQueries("requesterId", "u1", "accepted", null);
+
+    assertEquals(1, queries.size());
+    Query query = queries.get(0);
+    assertEquals(new Document("requesterId", "u1").append("status", "accepted"), query.getQueryObject());
+    assertEquals(INDEX_ORDER, query.getSortObject());
+  }
+
+  @Test
+  void datedCursorBoundsCreatedAtAndThenReadsUndatedRows() {
+    FriendshipCursor after = new FriendshipCursor(SINCE, "65e1a0c2f1d2c3b4a5968778");
+
+    List<Query> queries = FriendshipService.branchQueries("friendId", "u1", "pending", after);
+
+    assertEquals(2, queries.size());
+    Document range = queries.get(0).getQueryObject();
+    assertEquals(List.of("friendId", "status", "createdAt", "$nor"), new ArrayList<>(range.keySet()));
+    assertEquals(new Document("$lte", SINCE), range.get("createdAt"));
+    assertNoOr(range);
+    Document undated = queries.get(1).getQueryObject();
+    assertNull(undated.get("createdAt"));
+    assertEquals(INDEX_ORDER, queries.get(0).getSortObject());
+    assertEquals(INDEX_ORDER, queries.get(1).getSortObject());
+  }
+
+  @Test
+  void undatedCursorOnlyReadsTheRemainingUndatedRows() {
+    List<Query> queries = FriendshipService.branchQueries("requesterId", "u1", "accepted",
+        new FriendshipCursor(null, "65e1a0c2f1d2c3b4a5968778"));
+
+    assertEquals(1, queries.size());
+    Document query = queries.get(0).getQueryObject();
+    assertNull(query.get("createdAt"));
+    assertEquals(new Document("$lt", "65e1a0c2f1d2c3b4a5968778"), query.get("_id"));
+  }
+
+  @Test
+  void mergesBranchesInIndexOrderWithUndatedRowsLast() {
+    List<Friendship> friendships = new ArrayList<>(List.of(
+        friendship("a", SINCE.minusDays(1)),
+        friendship("b", null),
+        friendship("c", SINCE),
+        friendship("d", SINCE),
+        friendship("e", null)));
+
+    friendships.sort(FriendshipService.PAGE_ORDER);
+
+    assertEquals(List.of("d", "c", "a", "e", "b"), friendships.stream().map(Friendship::getId).toList());
+  }
+
+  private static void assertNoOr(Object value) {
+    if (value instanceof Document document) {
+      assertFalse(document.containsKey("$or"));
+      document.values().forEach(FriendshipPageQueryTest::assertNoOr);
+    } else if (value instanceof List<?> list) {
+      list.forEach(FriendshipPageQueryTest::assertNoOr);
+    }
+  }
+
+  private static Friendship friendship(String id, LocalDateTime createdAt) {
+    Friendship friendship = new Friendship();
+    friendship.setId(id);
+    friendship.setCreatedAt(createdAt);
+    return friendship;
+  }
+}
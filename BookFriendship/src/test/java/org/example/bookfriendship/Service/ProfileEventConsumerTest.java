@@ -0,0 +1,137 @@
+package org.example.bookfriendship.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.bookfriendship.Model.ProfileChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProfileEventConsumerTest {
+
+  private StringRedisTemplate redis;
+  private ValueOperations<String, String> values;
+  private StreamOperations<String, Object, Object> streams;
+  private FriendProfileSync friendProfileSync;
+  private SimpleMeterRegistry meterRegistry;
+  private ProfileEventConsumer consumer;
+
+  @BeforeEach
+  @SuppressWarnings("unchecked")
+  void setUp() {
+    redis = mock(StringRedisTemplate.class);
+    values = mock(ValueOperations.class);
+    streams = mock(StreamOperations.class);
+    friendProfileSync = mock(FriendProfileSync.class);
+    meterRegistry = new SimpleMeterRegistry();
+    when(redis.opsForValue()).thenReturn(values);
+    when(redis.opsForStream()).thenReturn(streams);
+    consumer = new ProfileEventConsumer(redis, friendProfileSync, meterRegistry);
+  }
+
+  @Test
+  void appliesOnlyTheLatestChangeOfEachUserInABatch() {
+    when(values.multiGet(anyList())).thenReturn(Arrays.asList(null, null));
+
+    consumer.process(List.of(
+        record("1000-0", "u1", "antes"),
+        record("1000-1", "u2", "otro"),
+        record("1001-0", "u1", "después")));
+
+    List<ProfileChange> applied = appliedChanges();
+    assertEquals(2, applied.size());
+    assertEquals("u1", applied.get(0).getUserId());
+    assertEquals("después", applied.get(0).getUsername());
+    assertEquals("u2", applied.get(1).getUserId());
+    assertEquals(1.0, counter("friendships.profile_events.skipped"));
+    assertEquals(2.0, counter("friendships.profile_events.processed"));
+    verify(redis).execute(any(RedisScript.class), eq(List.of("profileEventVersion:u1")), eq("1001-0"), any());
+    verify(redis).execute(any(RedisScript.class), eq(List.of("profileEventVersion:u2")), eq("1000-1"), any());
+    verify(streams).acknowledge("user-profile-events", "bookfriendship",
+        RecordId.of("1000-0"), RecordId.of("1000-1"), RecordId.of("1001-0"));
+  }
+
+  @Test
+  void skipsRedeliveredAndOlderEventsButStillAcknowledgesThem() {
+    when(values.multiGet(anyList())).thenReturn(Arrays.asList("1000-0", "2000-0"));
+
+    consumer.process(List.of(record("1000-0", "u1", "repetido"), record("1500-3", "u2", "viejo")));
+
+    verify(friendProfileSync, never()).applyAll(anyList());
+    verify(redis, never()).execute(any(RedisScript.class), anyList(), any(), any());
+    assertEquals(2.0, counter("friendships.profile_events.skipped"));
+    assertEquals(0.0, counter("friendships.profile_events.processed"));
+    verify(streams).acknowledge("user-profile-events", "bookfriendship",
+        RecordId.of("1000-0"), RecordId.of("1500-3"));
+  }
+
+  @Test
+  void appliesEventsNewerThanTheStoredVersion() {
+    when(values.multiGet(anyList())).thenReturn(List.of("1000-5"));
+
+    consumer.process(List.of(record("1000-6", "u1", "nuevo")));
+
+    List<ProfileChange> applied = appliedChanges();
+    assertEquals(1, applied.size());
+    assertEquals("nuevo", applied.get(0).getUsername());
+    assertEquals("https://example.com/u1.png", applied.get(0).getPhotoUrl());
+  }
+
+  @Test
+  void ignoresRecordsWithoutUser() {
+    consumer.process(List.of(StreamRecords.newRecord().in("user-profile-events")
+        .ofMap(Map.<Object, Object>of("photoUrl", "x")).withId(RecordId.of("1000-0"))));
+
+    verify(values, never()).multiGet(anyList());
+    verify(friendProfileSync, never()).applyAll(anyList());
+    verify(streams).acknowledge("user-profile-events", "bookfriendship", RecordId.of("1000-0"));
+  }
+
+  @Test
+  void comparesStreamIdsByTimeThenSequence() {
+    assertTrue(ProfileEventConsumer.isNewer(RecordId.of("1001-0"), RecordId.of("1000-9")));
+    assertTrue(ProfileEventConsumer.isNewer(RecordId.of("1000-10"), RecordId.of("1000-9")));
+    assertFalse(ProfileEventConsumer.isNewer(RecordId.of("1000-9"), RecordId.of("1000-9")));
+    assertFalse(ProfileEventConsumer.isNewer(RecordId.of("999-99"), RecordId.of("1000-0")));
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<ProfileChange> appliedChanges() {
+    ArgumentCaptor<List<ProfileChange>> captor = ArgumentCaptor.forClass(List.class);
+    verify(friendProfileSync).applyAll(captor.capture());
+    return new ArrayList<>(captor.getValue());
+  }
+
+  private double counter(String name) {
+    return meterRegistry.get(name).counter().count();
+  }
+
+  private static MapRecord<String, Object, Object> record(String id, String userId, String username) {
+    return StreamRecords.newRecord().in("user-profile-events")
+        .ofMap(Map.<Object, Object>of("id", userId, "username", username,
+            "photoUrl", "https://example.com/" + userId + ".png"))
+        .withId(RecordId.of(id));
+  }
+}
@@ -0,0 +1,67 @@
+package org.example.bookgateway.Routing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy lookup through the compiled trie against the linear scan it replaced ({@code RouterValidator.isSecured},
+ * a {@code contains} per configured endpoint), as the route table grows. Run with
+ * {@code ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="RoutePolicyMatcherBenchmark -prof gc"} to also see
+ * the allocation rate of each lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutePolicyMatcherBenchmark {
+
+    @Param({"6", "100", "1000"})
+    private int routes;
+
+    @Param({"/api/friendships/friends", "/users/42", "/auth/login"})
+    private String path;
+
+    private RoutePolicyMatcher matcher;
+    private List<String> openEndpoints;
+
+    @Setup
+    public void setUp() {
+        RoutePolicyProperties properties = new RoutePolicyProperties();
+        List<RoutePolicyProperties.Policy> policies = new ArrayList<>(properties.getPolicies());
+        openEndpoints = new ArrayList<>(List.of("/auth/register", "/auth/login", "/auth/refresh-token"));
+        // Rutas de relleno delante de las reales: el peor caso para el recorrido lineal
+        for (int i = policies.size(); i < routes; i++) {
+            RoutePolicyProperties.Policy policy = new RoutePolicyProperties.Policy();
+            policy.setPattern("/service" + i + "/items/{id}");
+            policies.add(0, policy);
+            openEndpoints.add(0, "/service" + i + "/public");
+        }
+        properties.setPolicies(policies);
+        matcher = new RoutePolicyMatcher(properties);
+    }
+
+    @Benchmark
+    public RoutePolicy trie() {
+        return matcher.match(path);
+    }
+
+    @Benchmark
+    public boolean linearScan() {
+        return openEndpoints.stream().noneMatch(path::contains);
+    }
+}
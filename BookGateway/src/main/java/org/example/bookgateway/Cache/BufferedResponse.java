@@ -0,0 +1,99 @@
+package org.example.bookgateway.Cache;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A complete downstream response held in memory, which can be replayed to any number of clients.
+ */
+public final class BufferedResponse {
+
+    // Cabeceras que describen la conexión o el cuerpo concreto y no deben reenviarse desde memoria; las de CORS las
+    // añade CorsGlobalConfiguration en cada petición
+    private static final List<String> NON_REPLAYABLE_HEADERS = List.of(
+            HttpHeaders.CONNECTION, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.CONTENT_LENGTH,
+            HttpHeaders.DATE, HttpHeaders.SET_COOKIE, "Keep-Alive", "X-Cache");
+
+    private final HttpStatusCode status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final Set<String> tags;
+    private final long expiresAtNanos;
+
+    public BufferedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body, Set<String> tags,
+                            long expiresAtNanos) {
+        HttpHeaders copy = new HttpHeaders();
+        headers.forEach((name, values) -> {
+            boolean cors = name.regionMatches(true, 0, "Access-Control-", 0, 15);
+            if (!cors && NON_REPLAYABLE_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                copy.addAll(name, values);
+            }
+        });
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(copy);
+        this.body = body;
+        this.tags = Set.copyOf(tags);
+        this.expiresAtNanos = expiresAtNanos;
+    }
+
+    public HttpStatusCode getStatus() {
+        return status;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getETag() {
+        return headers.getETag();
+    }
+
+    public Set<String> getTags() {
+        return tags;
+    }
+
+    public long getExpiresAtNanos() {
+        return expiresAtNanos;
+    }
+
+    public boolean isExpired(long nowNanos) {
+        return nowNanos - expiresAtNanos >= 0;
+    }
+
+    /**
+     * Copies {@code buffers} into a single array and releases them.
+     */
+    static byte[] drain(List<? extends DataBuffer> buffers) {
+        int size = buffers.stream().mapToInt(DataBuffer::readableByteCount).sum();
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (DataBuffer buffer : buffers) {
+            int count = buffer.readableByteCount();
+            buffer.read(bytes, offset, count);
+            offset += count;
+            DataBufferUtils.release(buffer);
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes this response to {@code response}, which must not be committed yet.
+     */
+    public Mono<Void> writeTo(ServerHttpResponse response) {
+        response.setStatusCode(status);
+        response.getHeaders().putAll(headers);
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(body)));
+    }
+}
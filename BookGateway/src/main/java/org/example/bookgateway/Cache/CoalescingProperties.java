@@ -0,0 +1,45 @@
+package org.example.bookgateway.Cache;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for sharing one downstream call between concurrent identical GETs. Routes opt in through
+ * {@code gateway.routes.policies[*].coalesce}.
+ */
+@ConfigurationProperties("gateway.coalescing")
+public class CoalescingProperties {
+
+    private boolean enabled = true;
+
+    /** Responses larger than this are not shared; waiting requests then make their own call. */
+    private int maxBodyBytes = 1024 * 1024;
+
+    /** How long a waiting request waits for the leader's response before making its own call. */
+    private Duration waitTimeout = Duration.ofSeconds(2);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    public void setMaxBodyBytes(int maxBodyBytes) {
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    public Duration getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    public void setWaitTimeout(Duration waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.bookgateway.Cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookgateway.Routing.RoutePolicy;
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.example.bookgateway.Util.GatewayIdentity;
+import org.example.bookgateway.Util.JwtTokenUtil;
+import org.example.bookgateway.Util.VerifiedToken;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collapses concurrent identical GETs (same path, query and identity scope) into one downstream call. The first
+ * request becomes the leader; the others wait for its buffered response and receive a copy. Only {@code 2xx} and
+ * {@code 304} responses are shared: when the leader's response is an error, too large or has no body, or does not
+ * arrive within {@code gateway.coalescing.wait-timeout}, the waiters fall back to their own call.
+ */
+@Component
+public class RequestCoalescingFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = ResponseCacheFilter.ORDER + 100;
+
+    private final CoalescingProperties properties;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final RoutePolicyMatcher routePolicyMatcher;
+    private final ConcurrentHashMap<String, Sinks.One<BufferedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter leaders;
+    private final Counter collapsed;
+    private final Counter notShared;
+    private final Counter waitTimeouts;
+
+    public RequestCoalescingFilter(CoalescingProperties properties, JwtTokenUtil jwtTokenUtil,
+                                   RoutePolicyMatcher routePolicyMatcher, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.routePolicyMatcher = routePolicyMatcher;
+        this.leaders = Counter.builder("gateway.coalescing.leaders").register(meterRegistry);
+        this.collapsed = Counter.builder("gateway.coalescing.collapsed").register(meterRegistry);
+        this.notShared = Counter.builder("gateway.coalescing.not_shared").register(meterRegistry);
+        this.waitTimeouts = Counter.builder("gateway.coalescing.wait_timeouts").register(meterRegistry);
+        Gauge.builder("gateway.coalescing.in_flight", inFlight, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!properties.isEnabled() || request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+
+        String path = request.getURI().getPath();
+        RoutePolicy policy = routePolicyMatcher.match(path);
+        if (!policy.isCoalesce()) {
+            return chain.filter(exchange);
+        }
+
+        VerifiedToken caller = GatewayIdentity.verifiedToken(exchange, jwtTokenUtil);
+        if (caller == null) {
+            return chain.filter(exchange);
+        }
+
+        String rawQuery = request.getURI().getRawQuery();
+        // El validador forma parte de la clave: un 304 solo vale para quien envió el mismo If-None-Match
+        String ifNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        String key = path + (rawQuery == null ? "" : "?" + rawQuery)
+                + "|" + (policy.isUserScoped() ? caller.getUserId() : "*")
+                + (ifNoneMatch == null ? "" : "|" + ifNoneMatch);
+
+        Sinks.One<BufferedResponse> sink = Sinks.one();
+        Sinks.One<BufferedResponse> leader = inFlight.putIfAbsent(key, sink);
+        if (leader != null) {
+            collapsed.increment();
+            return leader.asMono()
+                    .timeout(properties.getWaitTimeout(), Mono.fromRunnable(waitTimeouts::increment))
+                    .flatMap(shared -> shared.writeTo(exchange.getResponse()))
+                    .switchIfEmpty(Mono.defer(() -> chain.filter(exchange)));
+        }
+
+        leaders.increment();
+        SharingResponse sharing = new SharingResponse(exchange.getResponse(), key, sink);
+        return chain.filter(exchange.mutate().response(sharing).build())
+                .doFinally(signal -> sharing.release());
+    }
+
+    private class SharingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final Sinks.One<BufferedResponse> sink;
+
+        SharingResponse(ServerHttpResponse delegate, String key, Sinks.One<BufferedResponse> sink) {
+            super(delegate);
+            this.key = key;
+            this.sink = sink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            if (!isShareable(getStatusCode()) || getHeaders().getContentLength() > properties.getMaxBodyBytes()) {
+                release();
+                return super.writeWith(body);
+            }
+
+            return Flux.from(body).collectList().flatMap(buffers -> {
+                int size = buffers.stream().mapToInt(DataBuffer::readableByteCount).sum();
+                if (size > properties.getMaxBodyBytes()) {
+                    release();
+                    return super.writeWith(Flux.fromIterable(buffers));
+                }
+
+                byte[] bytes = BufferedResponse.drain(buffers);
+                BufferedResponse shared = new BufferedResponse(getStatusCode(), getHeaders(), bytes, Set.of(), 0);
+                inFlight.remove(key, sink);
+                sink.tryEmitValue(shared);
+                getHeaders().setContentLength(bytes.length);
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+
+        // Un 401/403 de un usuario o un 5xx pasajero no debe llegar a todos los que esperan
+        private boolean isShareable(HttpStatusCode status) {
+            return status != null && (status.is2xxSuccessful() || status.value() == HttpStatus.NOT_MODIFIED.value());
+        }
+
+        /**
+         * Stops accepting new waiters and lets existing ones make their own call, unless the response was already
+         * shared.
+         */
+        void release() {
+            inFlight.remove(key, sink);
+            int waiting = sink.currentSubscriberCount();
+            if (sink.tryEmitEmpty().isSuccess() && waiting > 0) {
+                notShared.increment();
+            }
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example.bookgateway.Cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded store of {@link BufferedResponse}s. Every entry expires at its own deadline and carries tags
+ * ({@code user:<id>}) so that writes can evict all entries that depend on a user.
+ */
+@Component
+public class ResponseCache {
+
+    private final Cache<String, BufferedResponse> cache;
+
+    // Se incrementa con cada invalidación para descartar respuestas que estaban en vuelo cuando ocurrió
+    private final AtomicLong generation = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter notModified;
+    private final Counter invalidations;
+
+    public ResponseCache(ResponseCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfter(new Expiry<String, BufferedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, BufferedResponse value, long currentTime) {
+                        return Math.max(value.getExpiresAtNanos() - System.nanoTime(), 0);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, BufferedResponse value, long currentTime, long currentDuration) {
+                        return Math.max(value.getExpiresAtNanos() - System.nanoTime(), 0);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, BufferedResponse value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        this.hits = Counter.builder("gateway.response.cache.hits").register(meterRegistry);
+        this.misses = Counter.builder("gateway.response.cache.misses").register(meterRegistry);
+        this.notModified = Counter.builder("gateway.response.cache.not_modified").register(meterRegistry);
+        this.invalidations = Counter.builder("gateway.response.cache.invalidations").register(meterRegistry);
+        Gauge.builder("gateway.response.cache.size", cache, Cache::estimatedSize).register(meterRegistry);
+    }
+
+    public BufferedResponse get(String key) {
+        BufferedResponse response = cache.getIfPresent(key);
+        if (response == null || response.isExpired(System.nanoTime())) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return response;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Stores {@code response} unless an invalidation happened after {@code generationAtRequest} was read.
+     */
+    public void put(String key, BufferedResponse response, long generationAtRequest) {
+        cache.put(key, response);
+        if (generation.get() != generationAtRequest) {
+            cache.invalidate(key);
+        }
+    }
+
+    void recordNotModified() {
+        notModified.increment();
+    }
+
+    /**
+     * Removes every entry tagged with any of {@code tags}.
+     */
+    public void invalidateTags(Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(response -> !Collections.disjoint(response.getTags(), tags));
+        invalidations.increment();
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+        invalidations.increment();
+    }
+}
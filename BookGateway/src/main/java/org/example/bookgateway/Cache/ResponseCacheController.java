@@ -0,0 +1,54 @@
+package org.example.bookgateway.Cache;
+
+import org.example.bookgateway.Util.IdentitySignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Lets services evict gateway cache entries outside of a proxied response. {@code X-Gateway-Auth} must carry
+ * {@link IdentitySignature#signInvalidation} over the same {@code tags}, keyed with {@code gateway.identity.secret} and
+ * no older than {@code gateway.identity.max-skew}; the secret itself is never sent.
+ */
+@RestController
+@RequestMapping("/gateway/cache")
+public class ResponseCacheController {
+
+    private final ResponseCache cache;
+
+    @Value("${gateway.identity.secret:}")
+    private String identitySecret;
+
+    @Value("${gateway.identity.max-skew:PT1M}")
+    private Duration maxSkew;
+
+    private final Clock clock = Clock.systemUTC();
+
+    public ResponseCacheController(ResponseCache cache) {
+        this.cache = cache;
+    }
+
+    @PostMapping("/invalidate")
+    public ResponseEntity<Void> invalidate(@RequestHeader(value = "X-Gateway-Auth", required = false) String gatewayAuth,
+                                           @RequestParam(required = false) String tags) {
+        if (!IdentitySignature.verifyInvalidation(identitySecret, gatewayAuth, tags, clock.instant().getEpochSecond(),
+                maxSkew.toSeconds())) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        if (tags == null || tags.isBlank()) {
+            cache.invalidateAll();
+        } else {
+            cache.invalidateTags(ResponseCacheFilter.parseTags(tags));
+        }
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,210 @@
+package org.example.bookgateway.Cache;
+
+import org.example.bookgateway.RateLimit.RateLimitFilter;
+import org.example.bookgateway.Routing.RoutePolicy;
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.example.bookgateway.Util.GatewayIdentity;
+import org.example.bookgateway.Util.JwtTokenUtil;
+import org.example.bookgateway.Util.VerifiedToken;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Answers GET routes whose policy has a cache TTL from {@link ResponseCache} with strong ETags and {@code 304 Not Modified} support.
+ * Services evict entries by adding an {@value #INVALIDATE_HEADER} response header with comma-separated tags
+ * ({@code user:<id>}) to their write responses; the header never reaches the client.
+ */
+@Component
+public class ResponseCacheFilter implements GlobalFilter, Ordered {
+
+    public static final String INVALIDATE_HEADER = "X-Cache-Invalidate";
+    public static final int ORDER = RateLimitFilter.ORDER + 100;
+
+    private final ResponseCacheProperties properties;
+    private final ResponseCache cache;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final RoutePolicyMatcher routePolicyMatcher;
+
+    public ResponseCacheFilter(ResponseCacheProperties properties, ResponseCache cache, JwtTokenUtil jwtTokenUtil,
+                               RoutePolicyMatcher routePolicyMatcher) {
+        this.properties = properties;
+        this.cache = cache;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.routePolicyMatcher = routePolicyMatcher;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.beforeCommit(() -> {
+            String tags = response.getHeaders().getFirst(INVALIDATE_HEADER);
+            if (tags != null) {
+                response.getHeaders().remove(INVALIDATE_HEADER);
+                cache.invalidateTags(parseTags(tags));
+            }
+            return Mono.empty();
+        });
+
+        ServerHttpRequest request = exchange.getRequest();
+        if (request.getMethod() != HttpMethod.GET) {
+            return chain.filter(exchange);
+        }
+
+        String path = request.getURI().getPath();
+        RoutePolicy policy = routePolicyMatcher.match(path);
+        if (!policy.isCacheable()) {
+            return chain.filter(exchange);
+        }
+
+        // Solo se sirven respuestas cacheadas a llamadas autenticadas
+        VerifiedToken caller = GatewayIdentity.verifiedToken(exchange, jwtTokenUtil);
+        if (caller == null) {
+            return chain.filter(exchange);
+        }
+
+        String rawQuery = request.getURI().getRawQuery();
+        String key = path + (rawQuery == null ? "" : "?" + rawQuery)
+                + (policy.isUserScoped() ? "|" + caller.getUserId() : "");
+
+        Set<String> tags = new HashSet<>();
+        if (policy.isUserScoped()) {
+            tags.add("user:" + caller.getUserId());
+        }
+        String pathUserId = policy.variable(path, "userId");
+        if (pathUserId != null) {
+            tags.add("user:" + pathUserId);
+        }
+
+        String ifNoneMatch = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+        BufferedResponse cached = cache.get(key);
+        if (cached != null) {
+            response.getHeaders().set("X-Cache", "HIT");
+            if (matchesETag(ifNoneMatch, cached.getETag())) {
+                cache.recordNotModified();
+                response.setStatusCode(HttpStatus.NOT_MODIFIED);
+                response.getHeaders().setETag(cached.getETag());
+                return response.setComplete();
+            }
+            return cached.writeTo(response);
+        }
+
+        response.getHeaders().set("X-Cache", "MISS");
+        long expiresAt = System.nanoTime() + policy.getCacheTtl().toNanos();
+        CapturingResponse capturing = new CapturingResponse(response, key, tags, expiresAt, ifNoneMatch,
+                cache.generation());
+        return chain.filter(exchange.mutate().response(capturing).build());
+    }
+
+    private class CapturingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+        private final Set<String> tags;
+        private final long expiresAt;
+        private final String ifNoneMatch;
+        private final long generation;
+
+        CapturingResponse(ServerHttpResponse delegate, String key, Set<String> tags, long expiresAt,
+                          String ifNoneMatch, long generation) {
+            super(delegate);
+            this.key = key;
+            this.tags = tags;
+            this.expiresAt = expiresAt;
+            this.ifNoneMatch = ifNoneMatch;
+            this.generation = generation;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            HttpStatusCode status = getStatusCode();
+            HttpHeaders headers = getHeaders();
+            if (status == null || status.value() != HttpStatus.OK.value()
+                    || headers.containsKey(HttpHeaders.SET_COOKIE)
+                    || headers.getContentLength() > properties.getMaxBodyBytes()
+                    || isNoStore(headers.getCacheControl())) {
+                return super.writeWith(body);
+            }
+
+            return Flux.from(body).collectList().flatMap(buffers -> {
+                int size = buffers.stream().mapToInt(DataBuffer::readableByteCount).sum();
+                if (size > properties.getMaxBodyBytes()) {
+                    return super.writeWith(Flux.fromIterable(buffers));
+                }
+
+                byte[] bytes = BufferedResponse.drain(buffers);
+
+                if (headers.getETag() == null) {
+                    headers.setETag(strongETag(bytes));
+                }
+                cache.put(key, new BufferedResponse(status, headers, bytes, tags, expiresAt), generation);
+
+                if (matchesETag(ifNoneMatch, headers.getETag())) {
+                    cache.recordNotModified();
+                    setStatusCode(HttpStatus.NOT_MODIFIED);
+                    headers.remove(HttpHeaders.CONTENT_LENGTH);
+                    return getDelegate().setComplete();
+                }
+                headers.setContentLength(bytes.length);
+                return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+            });
+        }
+    }
+
+    private static boolean isNoStore(String cacheControl) {
+        return cacheControl != null && (cacheControl.contains("no-store") || cacheControl.contains("private"));
+    }
+
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        return ifNoneMatch.trim().equals("*")
+                || Arrays.stream(ifNoneMatch.split(",")).map(String::trim).anyMatch(etag::equals);
+    }
+
+    private static String strongETag(byte[] body) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(hash, 16)) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    static List<String> parseTags(String header) {
+        return Arrays.stream(header.split(","))
+                .map(String::trim)
+                .filter(tag -> !tag.isEmpty())
+                .toList();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.bookgateway.Concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit for one downstream service, adjusted from observed round-trip times in the manner of Netflix's
+ * Gradient2 limiter: while recent RTTs stay close to the long-term average the limit grows by about sqrt(limit),
+ * and it shrinks in proportion as they rise (queueing downstream). Failures and timeouts back the limit off
+ * multiplicatively. Requests over the limit are rejected immediately instead of queueing.
+ */
+final class AdaptiveLimiter {
+
+    private static final double LONG_RTT_WINDOW = 600;
+
+    private final ConcurrencyProperties properties;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+
+    AdaptiveLimiter(ConcurrencyProperties properties) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+    }
+
+    /**
+     * Takes a slot if fewer than the share of the limit allowed for {@code priority} are in use.
+     */
+    boolean tryAcquire(RequestPriority priority) {
+        double allowed = priority == RequestPriority.BACKGROUND ? limit * properties.getBackgroundShare() : limit;
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= Math.max(1, (int) allowed)) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * Releases a slot and feeds its outcome to the limit.
+     *
+     * @param inFlightAtStart slots in use when the request was admitted, to ignore samples taken while the
+     *                        limit was not the bottleneck
+     */
+    void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        update(rttNanos, inFlightAtStart, dropped);
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtStart, boolean dropped) {
+        double current = limit;
+        double next;
+        if (dropped) {
+            next = current * properties.getBackoffRatio();
+        } else {
+            if (rttNanos <= 0) {
+                return;
+            }
+            longRttNanos = longRttNanos == 0
+                    ? rttNanos
+                    : longRttNanos + (rttNanos - longRttNanos) / LONG_RTT_WINDOW;
+            // Si la media larga se quedó muy por encima (p. ej. tras un incidente) se deja caer más rápido
+            if (longRttNanos / rttNanos > 2) {
+                longRttNanos *= 0.95;
+            }
+            if (inFlightAtStart < current / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, properties.getRttTolerance() * longRttNanos / rttNanos));
+            next = current * gradient + Math.sqrt(current);
+        }
+        double smoothed = current * (1 - properties.getSmoothing()) + next * properties.getSmoothing();
+        limit = Math.max(properties.getMinLimit(), Math.min(properties.getMaxLimit(), smoothed));
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    double limit() {
+        return limit;
+    }
+}
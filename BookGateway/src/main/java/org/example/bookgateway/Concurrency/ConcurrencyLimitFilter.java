@@ -0,0 +1,135 @@
+package org.example.bookgateway.Concurrency;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookgateway.Cache.RequestCoalescingFilter;
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Admission control per downstream service using an {@link AdaptiveLimiter}. Runs after the response cache and
+ * request coalescing, so only calls that actually reach a service take a slot. Requests over the limit get
+ * {@code 503} with {@code Retry-After} right away; background polling and hedged requests are shed before interactive
+ * traffic.
+ */
+@Component
+public class ConcurrencyLimitFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = RequestCoalescingFilter.ORDER + 100;
+
+    private final ConcurrencyProperties properties;
+    private final RoutePolicyMatcher routePolicyMatcher;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Downstream> downstreams = new ConcurrentHashMap<>();
+
+    public ConcurrencyLimitFilter(ConcurrencyProperties properties, RoutePolicyMatcher routePolicyMatcher,
+                                  MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.routePolicyMatcher = routePolicyMatcher;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+        RequestPriority priority = RequestPriority.of(exchange.getRequest(),
+                routePolicyMatcher.match(exchange.getRequest().getURI().getPath()));
+        return admit(exchange, route, priority, () -> chain.filter(exchange), () -> {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set("Retry-After", "1");
+            return exchange.getResponse().setComplete();
+        });
+    }
+
+    /**
+     * Runs an additional call that a later filter makes on its own (a hedged request) under the same limit as the
+     * request that triggered it. Such calls are speculative, so they count as background traffic and are the first to
+     * be shed; a shed call completes empty without running.
+     */
+    public <T> Mono<T> admitExtraCall(ServerWebExchange exchange, Route route, Supplier<Mono<T>> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        return admit(exchange, route, RequestPriority.BACKGROUND, call, Mono::empty);
+    }
+
+    private <T> Mono<T> admit(ServerWebExchange exchange, Route route, RequestPriority priority,
+                              Supplier<Mono<T>> call, Supplier<Mono<T>> onShed) {
+        String name = downstreamName(route);
+        Downstream downstream = downstreams.get(name);
+        if (downstream == null) {
+            downstream = downstreams.computeIfAbsent(name, this::register);
+        }
+        int inFlightAtStart = downstream.limiter.inFlight();
+        if (!downstream.limiter.tryAcquire(priority)) {
+            downstream.shed(priority).increment();
+            return onShed.get();
+        }
+
+        Downstream admitted = downstream;
+        long start = System.nanoTime();
+        return call.get().doFinally(signal -> {
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean dropped = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            if (signal == SignalType.CANCEL) {
+                // El cliente cortó la petición: no dice nada del servicio, se libera sin muestra
+                admitted.limiter.release(0, inFlightAtStart, false);
+            } else {
+                admitted.limiter.release(System.nanoTime() - start, inFlightAtStart + 1, dropped);
+            }
+        });
+    }
+
+    /** Routes to the same service (e.g. {@code lb://book}) share one limit. */
+    private static String downstreamName(Route route) {
+        String authority = route.getUri().getAuthority();
+        return authority == null ? route.getId() : authority;
+    }
+
+    private Downstream register(String name) {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(properties);
+        Gauge.builder("gateway.concurrency.limit", limiter, AdaptiveLimiter::limit)
+                .tag("downstream", name).register(meterRegistry);
+        Gauge.builder("gateway.concurrency.in_flight", limiter, AdaptiveLimiter::inFlight)
+                .tag("downstream", name).register(meterRegistry);
+        return new Downstream(limiter,
+                shedCounter(name, RequestPriority.INTERACTIVE),
+                shedCounter(name, RequestPriority.BACKGROUND));
+    }
+
+    private Counter shedCounter(String downstream, RequestPriority priority) {
+        return Counter.builder("gateway.concurrency.shed")
+                .tag("downstream", downstream)
+                .tag("priority", priority.name().toLowerCase())
+                .register(meterRegistry);
+    }
+
+    private record Downstream(AdaptiveLimiter limiter, Counter shedInteractive, Counter shedBackground) {
+
+        Counter shed(RequestPriority priority) {
+            return priority == RequestPriority.BACKGROUND ? shedBackground : shedInteractive;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
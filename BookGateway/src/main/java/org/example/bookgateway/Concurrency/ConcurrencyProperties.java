@@ -0,0 +1,94 @@
+package org.example.bookgateway.Concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Bounds and tuning of the adaptive concurrency limit kept per downstream service.
+ */
+@ConfigurationProperties("gateway.concurrency")
+public class ConcurrencyProperties {
+
+    private boolean enabled = true;
+
+    private int initialLimit = 20;
+
+    private int minLimit = 4;
+
+    private int maxLimit = 500;
+
+    /** Weight of each new estimate when updating the limit (0-1). */
+    private double smoothing = 0.2;
+
+    /** How much slower than the long-term RTT a sample may be before the limit starts shrinking. */
+    private double rttTolerance = 1.5;
+
+    /** Factor applied to the limit when the downstream fails or times out. */
+    private double backoffRatio = 0.9;
+
+    /** Fraction of the limit that background requests may use; the rest is kept for interactive users. */
+    private double backgroundShare = 0.7;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    public void setSmoothing(double smoothing) {
+        this.smoothing = smoothing;
+    }
+
+    public double getRttTolerance() {
+        return rttTolerance;
+    }
+
+    public void setRttTolerance(double rttTolerance) {
+        this.rttTolerance = rttTolerance;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public double getBackgroundShare() {
+        return backgroundShare;
+    }
+
+    public void setBackgroundShare(double backgroundShare) {
+        this.backgroundShare = backgroundShare;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.bookgateway.Concurrency;
+
+import org.example.bookgateway.Routing.RoutePolicy;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+
+/**
+ * Priority used when shedding load. Calls from browsers are interactive; polling done by the Node services (Chat,
+ * BookExpress) on routes marked {@code background-polling} is background, as is anything sent with
+ * {@code X-Request-Priority: background}.
+ */
+public enum RequestPriority {
+
+    INTERACTIVE,
+    BACKGROUND;
+
+    public static final String HEADER = "X-Request-Priority";
+
+    static RequestPriority of(ServerHttpRequest request, RoutePolicy policy) {
+        HttpHeaders headers = request.getHeaders();
+        if ("background".equalsIgnoreCase(headers.getFirst(HEADER))) {
+            return BACKGROUND;
+        }
+        if (!policy.isBackgroundPolling()) {
+            return INTERACTIVE;
+        }
+        // Los navegadores siempre envían "Mozilla/5.0 ..."; axios y fetch de Node no
+        String userAgent = headers.getFirst(HttpHeaders.USER_AGENT);
+        return userAgent != null && userAgent.startsWith("Mozilla/") ? INTERACTIVE : BACKGROUND;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.bookgateway.Metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Runs right before the routing filters that call the downstream service and measures the time until they complete,
+ * i.e. until the downstream response headers have been received.
+ */
+@Component
+public class DownstreamTimingFilter implements GlobalFilter, Ordered {
+
+    // NettyRoutingFilter y ForwardRoutingFilter tienen el orden más bajo posible
+    public static final int ORDER = Ordered.LOWEST_PRECEDENCE - 10;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTiming timing = exchange.getAttribute(RequestTiming.ATTRIBUTE);
+        if (timing == null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            // Una llamada cancelada (p. ej. el intento que pierde un hedge) no sobrescribe la que respondió
+            if (signal != SignalType.CANCEL) {
+                timing.downstreamNanos = System.nanoTime() - start;
+            }
+        });
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.bookgateway.Metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint with the gateway's per-route latency percentiles. {@code GET /actuator/latency} returns JSON and
+ * {@code GET /actuator/latency/prometheus} the Prometheus text format, as summaries in seconds. Values are cumulative
+ * since startup. Needs {@code management.endpoints.web.exposure.include} to contain {@code latency}.
+ */
+@Component
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String METRIC = "gateway_route_latency_seconds";
+
+    private final RouteLatencyRecorder recorder;
+
+    public LatencyEndpoint(RouteLatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public List<Map<String, Object>> latencies() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        recorder.forEach((routeId, pattern, status, timings) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("route", routeId);
+            entry.put("path", pattern);
+            entry.put("status", status);
+            entry.put("total", summary(timings.total.snapshot()));
+            entry.put("downstream", summary(timings.downstream.snapshot()));
+            entry.put("overhead", summary(timings.overhead.snapshot()));
+            result.add(entry);
+        });
+        return result;
+    }
+
+    @ReadOperation(produces = PROMETHEUS_CONTENT_TYPE)
+    public String prometheus(@Selector String format) {
+        if (!"prometheus".equals(format)) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder();
+        out.append("# HELP ").append(METRIC).append(" Gateway request latency by route, status and phase\n");
+        out.append("# TYPE ").append(METRIC).append(" summary\n");
+        recorder.forEach((routeId, pattern, status, timings) -> {
+            String labels = "route=\"" + escape(routeId) + "\",path=\"" + escape(pattern) + "\",status=\"" + status + "\"";
+            appendSummary(out, labels + ",phase=\"total\"", timings.total.snapshot());
+            appendSummary(out, labels + ",phase=\"downstream\"", timings.downstream.snapshot());
+            appendSummary(out, labels + ",phase=\"overhead\"", timings.overhead.snapshot());
+        });
+        return out.toString();
+    }
+
+    private static Map<String, Object> summary(LatencyHistogram.Snapshot snapshot) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", snapshot.getCount());
+        summary.put("p50Ms", millis(snapshot.valueAtPercentile(50)));
+        summary.put("p99Ms", millis(snapshot.valueAtPercentile(99)));
+        summary.put("p999Ms", millis(snapshot.valueAtPercentile(99.9)));
+        summary.put("maxMs", millis(snapshot.getMaxMicros()));
+        summary.put("meanMs", snapshot.getCount() == 0 ? 0 : millis(snapshot.getSumMicros() / snapshot.getCount()));
+        return summary;
+    }
+
+    private static void appendSummary(StringBuilder out, String labels, LatencyHistogram.Snapshot snapshot) {
+        if (snapshot.getCount() == 0) {
+            return;
+        }
+        for (double quantile : QUANTILES) {
+            out.append(METRIC).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(snapshot.valueAtPercentile(quantile * 100))).append('\n');
+        }
+        out.append(METRIC).append("_sum{").append(labels).append("} ")
+                .append(seconds(snapshot.getSumMicros())).append('\n');
+        out.append(METRIC).append("_count{").append(labels).append("} ").append(snapshot.getCount()).append('\n');
+    }
+
+    private static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+
+    private static double seconds(long micros) {
+        return micros / 1_000_000.0;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
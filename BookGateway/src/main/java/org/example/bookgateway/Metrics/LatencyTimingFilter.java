@@ -0,0 +1,57 @@
+package org.example.bookgateway.Metrics;
+
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Times every exchange from the first global filter until the response completes and records it in
+ * {@link RouteLatencyRecorder}, together with the downstream time measured by {@link DownstreamTimingFilter}.
+ */
+@Component
+public class LatencyTimingFilter implements GlobalFilter, Ordered {
+
+    // Justo después de StripIdentityHeadersFilter, para incluir el resto de filtros del gateway
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 1;
+
+    // Petición cancelada por el cliente antes de recibir la respuesta
+    private static final int CLIENT_CLOSED_REQUEST = 499;
+
+    private final RouteLatencyRecorder recorder;
+    private final RoutePolicyMatcher routePolicyMatcher;
+
+    public LatencyTimingFilter(RouteLatencyRecorder recorder, RoutePolicyMatcher routePolicyMatcher) {
+        this.recorder = recorder;
+        this.routePolicyMatcher = routePolicyMatcher;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        exchange.getAttributes().put(RequestTiming.ATTRIBUTE, timing);
+        return chain.filter(exchange).doFinally(signal -> record(exchange, timing, signal));
+    }
+
+    private void record(ServerWebExchange exchange, RequestTiming timing, SignalType signal) {
+        long totalNanos = System.nanoTime() - timing.startNanos;
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        String pattern = routePolicyMatcher.match(exchange.getRequest().getURI().getPath()).getPattern();
+        HttpStatusCode status = exchange.getResponse().getStatusCode();
+        int statusCode = signal == SignalType.CANCEL ? CLIENT_CLOSED_REQUEST : status == null ? 0 : status.value();
+        recorder.record(route == null ? "none" : route.getId(), pattern, statusCode, totalNanos,
+                timing.downstreamNanos);
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
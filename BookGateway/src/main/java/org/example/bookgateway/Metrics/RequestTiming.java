@@ -0,0 +1,16 @@
+package org.example.bookgateway.Metrics;
+
+/**
+ * Per-exchange timestamps shared between {@link LatencyTimingFilter} and {@link DownstreamTimingFilter}.
+ */
+final class RequestTiming {
+
+    static final String ATTRIBUTE = RequestTiming.class.getName();
+
+    final long startNanos;
+    long downstreamNanos = -1;
+
+    RequestTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.bookgateway.Metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Latency histograms per gateway route, policy pattern and status code, each split into total time, time spent
+ * waiting for the downstream service and the gateway's own overhead. Route ids and patterns come from configuration
+ * and status codes are bounded, so the number of histograms stays small; after warm-up recording only reads existing
+ * entries.
+ */
+@Component
+public class RouteLatencyRecorder {
+
+    static final int MAX_STATUS = 600;
+
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, AtomicReferenceArray<Timings>>> routes =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param downstreamNanos time until the downstream response headers arrived, or a negative value if the request
+     *                        was answered by the gateway itself (cache hit, rejection)
+     */
+    public void record(String routeId, String pattern, int status, long totalNanos, long downstreamNanos) {
+        Timings timings = timings(routeId, pattern, status < 0 || status >= MAX_STATUS ? 0 : status);
+        timings.total.recordNanos(totalNanos);
+        if (downstreamNanos >= 0) {
+            timings.downstream.recordNanos(downstreamNanos);
+            timings.overhead.recordNanos(totalNanos - downstreamNanos);
+        } else {
+            timings.overhead.recordNanos(totalNanos);
+        }
+    }
+
+    private Timings timings(String routeId, String pattern, int status) {
+        ConcurrentHashMap<String, AtomicReferenceArray<Timings>> patterns = routes.get(routeId);
+        if (patterns == null) {
+            patterns = routes.computeIfAbsent(routeId, key -> new ConcurrentHashMap<>());
+        }
+        AtomicReferenceArray<Timings> statuses = patterns.get(pattern);
+        if (statuses == null) {
+            statuses = patterns.computeIfAbsent(pattern, key -> new AtomicReferenceArray<>(MAX_STATUS));
+        }
+        Timings timings = statuses.get(status);
+        if (timings == null) {
+            statuses.compareAndSet(status, null, new Timings());
+            timings = statuses.get(status);
+        }
+        return timings;
+    }
+
+    /** Visits every histogram that has recorded at least one request. */
+    void forEach(Visitor visitor) {
+        for (Map.Entry<String, ConcurrentHashMap<String, AtomicReferenceArray<Timings>>> route : routes.entrySet()) {
+            for (Map.Entry<String, AtomicReferenceArray<Timings>> pattern : route.getValue().entrySet()) {
+                AtomicReferenceArray<Timings> statuses = pattern.getValue();
+                for (int status = 0; status < MAX_STATUS; status++) {
+                    Timings timings = statuses.get(status);
+                    if (timings != null) {
+                        visitor.visit(route.getKey(), pattern.getKey(), status, timings);
+                    }
+                }
+            }
+        }
+    }
+
+    interface Visitor {
+        void visit(String routeId, String pattern, int status, Timings timings);
+    }
+
+    static final class Timings {
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram downstream = new LatencyHistogram();
+        final LatencyHistogram overhead = new LatencyHistogram();
+    }
+}
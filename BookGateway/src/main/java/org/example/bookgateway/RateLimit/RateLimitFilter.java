@@ -0,0 +1,125 @@
+package org.example.bookgateway.RateLimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.example.bookgateway.Util.GatewayIdentity;
+import org.example.bookgateway.Util.JwtAuthenticationFilter;
+import org.example.bookgateway.Util.JwtTokenUtil;
+import org.example.bookgateway.Util.VerifiedToken;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user, per-rate-limit-class admission control backed by an in-process {@link TokenBucketStore}. Authenticated requests are
+ * limited by user id, anonymous ones by client address; {@code X-Forwarded-For} is only trusted from
+ * {@code gateway.rate-limit.trusted-proxies}. Rejected requests get {@code 429} with {@code Retry-After}.
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+
+    // Después de JwtAuthenticationFilter, para limitar por usuario con el token ya verificado
+    public static final int ORDER = JwtAuthenticationFilter.ORDER + 50;
+
+    private final RateLimitProperties properties;
+    private final JwtTokenUtil jwtTokenUtil;
+    private final RoutePolicyMatcher routePolicyMatcher;
+    private final TokenBucketStore store;
+    private final Set<String> trustedProxies;
+    private final Counter rejected;
+
+    public RateLimitFilter(RateLimitProperties properties, JwtTokenUtil jwtTokenUtil,
+                           RoutePolicyMatcher routePolicyMatcher, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jwtTokenUtil = jwtTokenUtil;
+        this.routePolicyMatcher = routePolicyMatcher;
+        this.store = new TokenBucketStore(properties.getMaxBuckets());
+        this.trustedProxies = Set.copyOf(properties.getTrustedProxies());
+        this.rejected = Counter.builder("gateway.ratelimit.rejected").register(meterRegistry);
+        Gauge.builder("gateway.ratelimit.buckets", store, TokenBucketStore::size).register(meterRegistry);
+        FunctionCounter.builder("gateway.ratelimit.evictions", store, TokenBucketStore::evictions)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!properties.isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        String rateLimitClass = routePolicyMatcher.match(exchange.getRequest().getURI().getPath()).getRateLimitClass();
+        RateLimitProperties.Limit limit = properties.limitFor(rateLimitClass);
+
+        String key = identity(exchange) + '|' + rateLimitClass;
+        long waitNanos = store.tryAcquire(key, limit);
+        if (waitNanos == 0) {
+            return chain.filter(exchange);
+        }
+
+        rejected.increment();
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        exchange.getResponse().getHeaders().set("Retry-After", Long.toString(retryAfterSeconds));
+        return exchange.getResponse().setComplete();
+    }
+
+    private String identity(ServerWebExchange exchange) {
+        VerifiedToken verifiedToken = GatewayIdentity.verifiedToken(exchange, jwtTokenUtil);
+        if (verifiedToken != null) {
+            return "user:" + verifiedToken.getUserId();
+        }
+
+        ServerHttpRequest request = exchange.getRequest();
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String remote = remoteAddress == null ? "unknown" : remoteAddress.getAddress() == null
+                ? remoteAddress.getHostString() : remoteAddress.getAddress().getHostAddress();
+        return "ip:" + clientAddress(remote, request.getHeaders().get("X-Forwarded-For"),
+                trustedProxies);
+    }
+
+    /**
+     * The caller's address: the connection's own unless it comes from a trusted proxy, in which case the right-most
+     * {@code X-Forwarded-For} entry that is not a trusted proxy. Entries further left are written by the client and
+     * are ignored.
+     */
+    static String clientAddress(String remote, List<String> forwardedFor, Set<String> trustedProxies) {
+        if (!trustedProxies.contains(remote) || forwardedFor == null) {
+            return remote;
+        }
+        List<String> hops = new ArrayList<>();
+        for (String header : forwardedFor) {
+            for (String hop : header.split(",")) {
+                if (!hop.isBlank()) {
+                    hops.add(hop.trim());
+                }
+            }
+        }
+        String client = remote;
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            client = hops.get(i);
+            if (!trustedProxies.contains(client)) {
+                break;
+            }
+        }
+        return client;
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.bookgateway.RateLimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Token-bucket limits applied per user and rate-limit class. Routes pick their class through
+ * {@code gateway.routes.policies[*].rate-limit-class}; classes not listed here use {@link #getDefaultLimit()}.
+ *
+ * <pre>
+ * gateway.rate-limit.default-limit.replenish-rate=20
+ * gateway.rate-limit.default-limit.burst-capacity=40
+ * gateway.rate-limit.classes.search.replenish-rate=5
+ * gateway.rate-limit.classes.search.burst-capacity=10
+ * gateway.rate-limit.trusted-proxies=10.0.0.10,10.0.0.11
+ * </pre>
+ */
+@ConfigurationProperties("gateway.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    private int maxBuckets = 100_000;
+
+    /**
+     * Addresses of the proxies in front of the gateway. {@code X-Forwarded-For} is only read when the connection comes
+     * from one of them; otherwise anonymous callers are keyed by their remote address.
+     */
+    private List<String> trustedProxies = new ArrayList<>();
+
+    private Limit defaultLimit = new Limit(20, 40);
+
+    private Map<String, Limit> classes = new LinkedHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+
+    public void setMaxBuckets(int maxBuckets) {
+        this.maxBuckets = maxBuckets;
+    }
+
+    public List<String> getTrustedProxies() {
+        return trustedProxies;
+    }
+
+    public void setTrustedProxies(List<String> trustedProxies) {
+        this.trustedProxies = trustedProxies;
+    }
+
+    public Limit getDefaultLimit() {
+        return defaultLimit;
+    }
+
+    public void setDefaultLimit(Limit defaultLimit) {
+        this.defaultLimit = defaultLimit;
+    }
+
+    public Map<String, Limit> getClasses() {
+        return classes;
+    }
+
+    public void setClasses(Map<String, Limit> classes) {
+        this.classes = classes;
+    }
+
+    public Limit limitFor(String rateLimitClass) {
+        return classes.getOrDefault(rateLimitClass, defaultLimit);
+    }
+
+    public static class Limit {
+
+        /** Tokens added per second. */
+        private double replenishRate;
+
+        /** Maximum number of requests allowed in a single burst. */
+        private int burstCapacity;
+
+        public Limit() {
+        }
+
+        public Limit(double replenishRate, int burstCapacity) {
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+        }
+
+        public double getReplenishRate() {
+            return replenishRate;
+        }
+
+        public void setReplenishRate(double replenishRate) {
+            this.replenishRate = replenishRate;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public void setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+        }
+
+        long emissionIntervalNanos() {
+            return (long) (1_000_000_000L / replenishRate);
+        }
+
+        long burstToleranceNanos() {
+            return emissionIntervalNanos() * Math.max(burstCapacity - 1, 0);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.bookgateway.RateLimit;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory token buckets implemented with the generic cell rate algorithm: each bucket is a single
+ * "theoretical arrival time" updated by CAS, so acquiring never blocks. Buckets are spread over independent stripes,
+ * each holding at most its share of {@code maxBuckets}. A full stripe first drops buckets that have refilled; if it is
+ * still full, new keys evict the least recently charged bucket of a small sample, so the cap holds even under a flood
+ * of new keys.
+ */
+public class TokenBucketStore {
+
+    private static final int STRIPES = 16;
+    private static final long SWEEP_INTERVAL_NANOS = 1_000_000_000L;
+    private static final int EVICTION_SAMPLE = 16;
+
+    private final ConcurrentHashMap<String, AtomicLong>[] stripes;
+    private final AtomicLong[] lastSweep;
+    private final int maxBucketsPerStripe;
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public TokenBucketStore(int maxBuckets) {
+        this.stripes = new ConcurrentHashMap[STRIPES];
+        this.lastSweep = new AtomicLong[STRIPES];
+        long now = System.nanoTime();
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+            lastSweep[i] = new AtomicLong(now - SWEEP_INTERVAL_NANOS);
+        }
+        this.maxBucketsPerStripe = Math.max(maxBuckets / STRIPES, 1);
+    }
+
+    /**
+     * Takes one token from the bucket identified by {@code key}.
+     *
+     * @return {@code 0} when the request is allowed, otherwise the number of nanoseconds until a token is available
+     */
+    public long tryAcquire(String key, RateLimitProperties.Limit limit) {
+        int index = (key.hashCode() & 0x7fffffff) % STRIPES;
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes[index];
+        long now = System.nanoTime();
+
+        AtomicLong bucket = stripe.get(key);
+        if (bucket == null) {
+            bucket = admit(index, key, now);
+        }
+
+        long interval = limit.emissionIntervalNanos();
+        long tolerance = limit.burstToleranceNanos();
+        while (true) {
+            long tat = bucket.get();
+            long start = tat - now > 0 ? tat : now;
+            long allowAt = start - tolerance;
+            if (allowAt - now > 0) {
+                return allowAt - now;
+            }
+            if (bucket.compareAndSet(tat, start + interval)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (ConcurrentHashMap<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    /**
+     * Number of buckets dropped before refilling to keep a stripe under its cap.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    // Solo las claves nuevas pasan por aquí; el bloqueo por franja hace que el límite sea estricto
+    private AtomicLong admit(int index, String key, long now) {
+        ConcurrentHashMap<String, AtomicLong> stripe = stripes[index];
+        synchronized (stripe) {
+            AtomicLong bucket = stripe.get(key);
+            if (bucket != null) {
+                return bucket;
+            }
+            if (stripe.size() >= maxBucketsPerStripe) {
+                sweep(index, now);
+            }
+            while (stripe.size() >= maxBucketsPerStripe) {
+                evictOldest(stripe);
+            }
+            bucket = new AtomicLong(now);
+            stripe.put(key, bucket);
+            return bucket;
+        }
+    }
+
+    // The smallest arrival time in the sample is the bucket charged least recently
+    private void evictOldest(ConcurrentHashMap<String, AtomicLong> stripe) {
+        Map.Entry<String, AtomicLong> oldest = null;
+        Iterator<Map.Entry<String, AtomicLong>> iterator = stripe.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && iterator.hasNext(); i++) {
+            Map.Entry<String, AtomicLong> entry = iterator.next();
+            if (oldest == null || entry.getValue().get() - oldest.getValue().get() < 0) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null && stripe.remove(oldest.getKey(), oldest.getValue())) {
+            evictions.increment();
+        }
+    }
+
+    // A bucket whose arrival time is in the past is full again, so dropping it loses nothing. Sweeps are throttled
+    // per stripe so a flood of new keys cannot turn every acquire into a full scan.
+    private void sweep(int index, long now) {
+        long last = lastSweep[index].get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !lastSweep[index].compareAndSet(last, now)) {
+            return;
+        }
+        Iterator<AtomicLong> iterator = stripes[index].values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().get() - now <= 0) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.bookgateway.Resilience;
+
+/**
+ * Count-based circuit breaker. Outcomes of the last calls are kept in a ring buffer; once the failure or slow-call
+ * rate crosses its threshold the breaker opens and rejects calls, after the open duration a few trial calls are let
+ * through and their outcome decides whether it closes again.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    interface TransitionListener {
+        void onTransition(State from, State to);
+    }
+
+    private final CircuitBreakerProperties properties;
+    private final TransitionListener listener;
+
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int next;
+    private int calls;
+    private int failures;
+    private int slowCalls;
+
+    private volatile State state = State.CLOSED;
+    private long openedAtNanos;
+    private int halfOpenPermits;
+    private int halfOpenSuccesses;
+
+    CircuitBreaker(CircuitBreakerProperties properties, TransitionListener listener) {
+        this.properties = properties;
+        this.listener = listener;
+        this.failed = new boolean[properties.getWindowSize()];
+        this.slow = new boolean[properties.getWindowSize()];
+    }
+
+    synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < properties.getOpenDuration().toNanos()) {
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (halfOpenPermits >= properties.getHalfOpenCalls()) {
+                return false;
+            }
+            halfOpenPermits++;
+        }
+        return true;
+    }
+
+    synchronized void onResult(long durationNanos, boolean failure) {
+        boolean slowCall = durationNanos >= properties.getSlowCallDuration().toNanos();
+        if (state == State.HALF_OPEN) {
+            if (failure || slowCall) {
+                transition(State.OPEN);
+            } else if (++halfOpenSuccesses >= properties.getHalfOpenCalls()) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+
+        if (calls == failed.length) {
+            failures -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            calls++;
+        }
+        failed[next] = failure;
+        slow[next] = slowCall;
+        failures += failure ? 1 : 0;
+        slowCalls += slowCall ? 1 : 0;
+        next = (next + 1) % failed.length;
+
+        if (calls >= properties.getMinimumCalls()
+                && (failures * 100.0 / calls >= properties.getFailureRateThreshold()
+                || slowCalls * 100.0 / calls >= properties.getSlowCallRateThreshold())) {
+            transition(State.OPEN);
+        }
+    }
+
+    /** Gives back a half-open trial permit for a call that was cancelled before it produced an outcome. */
+    synchronized void onCancel() {
+        if (state == State.HALF_OPEN && halfOpenPermits > halfOpenSuccesses) {
+            halfOpenPermits--;
+        }
+    }
+
+    /** Nanoseconds until an open breaker lets trial calls through. */
+    synchronized long remainingOpenNanos() {
+        return state == State.OPEN
+                ? Math.max(0, properties.getOpenDuration().toNanos() - (System.nanoTime() - openedAtNanos))
+                : 0;
+    }
+
+    State state() {
+        return state;
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        if (to == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        if (to == State.HALF_OPEN) {
+            halfOpenPermits = 0;
+            halfOpenSuccesses = 0;
+        }
+        if (to == State.CLOSED) {
+            next = 0;
+            calls = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+        listener.onTransition(from, to);
+    }
+}
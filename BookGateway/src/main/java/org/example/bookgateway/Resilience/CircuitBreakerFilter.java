@@ -0,0 +1,94 @@
+package org.example.bookgateway.Resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookgateway.Concurrency.ConcurrencyLimitFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link CircuitBreaker} per gateway route and answers {@code 503} with {@code Retry-After} while it is open,
+ * instead of sending more requests to a failing or overloaded service.
+ */
+@Component
+public class CircuitBreakerFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = ConcurrencyLimitFilter.ORDER + 100;
+
+    private final CircuitBreakerProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public CircuitBreakerFilter(CircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+
+        Breaker breaker = breakers.get(route.getId());
+        if (breaker == null) {
+            breaker = breakers.computeIfAbsent(route.getId(), this::register);
+        }
+        CircuitBreaker circuitBreaker = breaker.circuitBreaker();
+        if (!circuitBreaker.tryAcquire()) {
+            breaker.rejected().increment();
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(circuitBreaker.remainingOpenNanos()));
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set("Retry-After", Long.toString(retryAfter));
+            return exchange.getResponse().setComplete();
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> {
+            if (signal == SignalType.CANCEL) {
+                circuitBreaker.onCancel();
+                return;
+            }
+            HttpStatusCode status = exchange.getResponse().getStatusCode();
+            boolean failure = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+            circuitBreaker.onResult(System.nanoTime() - start, failure);
+        });
+    }
+
+    private Breaker register(String routeId) {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(properties, (from, to) ->
+                Counter.builder("gateway.circuit.transitions")
+                        .tag("route", routeId)
+                        .tag("from", from.name().toLowerCase())
+                        .tag("to", to.name().toLowerCase())
+                        .register(meterRegistry)
+                        .increment());
+        // 0 = cerrado, 1 = semiabierto, 2 = abierto
+        Gauge.builder("gateway.circuit.state", circuitBreaker, breaker -> breaker.state().ordinal())
+                .tag("route", routeId).register(meterRegistry);
+        Counter rejected = Counter.builder("gateway.circuit.rejected").tag("route", routeId).register(meterRegistry);
+        return new Breaker(circuitBreaker, rejected);
+    }
+
+    private record Breaker(CircuitBreaker circuitBreaker, Counter rejected) {
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
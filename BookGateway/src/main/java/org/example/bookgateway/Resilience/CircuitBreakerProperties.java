@@ -0,0 +1,100 @@
+package org.example.bookgateway.Resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Thresholds of the circuit breaker kept per gateway route. The breaker opens when, over the last
+ * {@link #getWindowSize()} calls, either the failure rate or the slow-call rate reaches its threshold.
+ */
+@ConfigurationProperties("gateway.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    /** Number of most recent calls the rates are computed over. */
+    private int windowSize = 50;
+
+    /** Calls needed in the window before the breaker can open. */
+    private int minimumCalls = 20;
+
+    /** Percentage of failed calls (errors and 5xx) that opens the breaker. */
+    private double failureRateThreshold = 50;
+
+    /** Calls slower than this count as slow. */
+    private Duration slowCallDuration = Duration.ofSeconds(2);
+
+    /** Percentage of slow calls that opens the breaker. */
+    private double slowCallRateThreshold = 80;
+
+    /** How long the breaker rejects calls before letting trial calls through. */
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    /** Trial calls allowed while half-open; all must succeed to close the breaker. */
+    private int halfOpenCalls = 5;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public void setWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public Duration getSlowCallDuration() {
+        return slowCallDuration;
+    }
+
+    public void setSlowCallDuration(Duration slowCallDuration) {
+        this.slowCallDuration = slowCallDuration;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
+
+    public Duration getOpenDuration() {
+        return openDuration;
+    }
+
+    public void setOpenDuration(Duration openDuration) {
+        this.openDuration = openDuration;
+    }
+
+    public int getHalfOpenCalls() {
+        return halfOpenCalls;
+    }
+
+    public void setHalfOpenCalls(int halfOpenCalls) {
+        this.halfOpenCalls = halfOpenCalls;
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.bookgateway.Resilience;
+
+import org.example.bookgateway.Metrics.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hedge delay and hedge budget of one route. Latencies are recorded into a histogram that is swapped every window;
+ * the delay for the next window is the configured percentile of the previous one.
+ */
+final class HedgeDelay {
+
+    private final HedgingProperties properties;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+
+    private volatile LatencyHistogram current = new LatencyHistogram();
+    private volatile long delayNanos;
+    private volatile long windowStartNanos = System.nanoTime();
+
+    HedgeDelay(HedgingProperties properties) {
+        this.properties = properties;
+        this.delayNanos = properties.getMaxDelay().toNanos();
+    }
+
+    void record(long nanos) {
+        current.recordNanos(nanos);
+    }
+
+    long delayNanos() {
+        long now = System.nanoTime();
+        if (now - windowStartNanos > properties.getWindow().toNanos()) {
+            roll(now);
+        }
+        requests.increment();
+        return delayNanos;
+    }
+
+    /** Counts a hedge against the budget, or returns {@code false} if the window's budget is spent. */
+    boolean tryHedge() {
+        if (hedges.sum() >= properties.getMaxHedgeRatio() * requests.sum()) {
+            return false;
+        }
+        hedges.increment();
+        return true;
+    }
+
+    private synchronized void roll(long now) {
+        if (now - windowStartNanos <= properties.getWindow().toNanos()) {
+            return;
+        }
+        LatencyHistogram.Snapshot snapshot = current.snapshot();
+        if (snapshot.getCount() >= properties.getMinSamples()) {
+            long nanos = snapshot.valueAtPercentile(properties.getPercentile()) * 1_000;
+            delayNanos = Math.max(properties.getMinDelay().toNanos(), Math.min(properties.getMaxDelay().toNanos(), nanos));
+        }
+        current = new LatencyHistogram();
+        requests.reset();
+        hedges.reset();
+        windowStartNanos = now;
+    }
+}
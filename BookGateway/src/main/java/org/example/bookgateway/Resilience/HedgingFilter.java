@@ -0,0 +1,210 @@
+package org.example.bookgateway.Resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.bookgateway.Concurrency.ConcurrencyLimitFilter;
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebExchangeDecorator;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.netty.Connection;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hedges GETs on routes whose policy allows it: if the downstream has not answered after the route's hedge delay, a
+ * second request is sent (to another instance when the route is load balanced) and whichever returns headers first
+ * is streamed to the client; the other call is cancelled. Each attempt runs the rest of the filter chain on its own
+ * copy of the exchange attributes and response headers, and only the winner's are copied back.
+ * <p>
+ * Hedges are limited twice: by {@link HedgingProperties#getMaxHedgeRatio()} per route, and by taking a background slot
+ * from the downstream's {@link ConcurrencyLimitFilter} limit, so an overloaded service is not hedged at all.
+ */
+@Component
+public class HedgingFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = CircuitBreakerFilter.ORDER + 100;
+
+    private final HedgingProperties properties;
+    private final RoutePolicyMatcher routePolicyMatcher;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentHashMap<String, HedgedRoute> routes = new ConcurrentHashMap<>();
+
+    public HedgingFilter(HedgingProperties properties, RoutePolicyMatcher routePolicyMatcher,
+                         ConcurrencyLimitFilter concurrencyLimitFilter, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.routePolicyMatcher = routePolicyMatcher;
+        this.concurrencyLimitFilter = concurrencyLimitFilter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null || exchange.getRequest().getMethod() != HttpMethod.GET
+                || !routePolicyMatcher.match(exchange.getRequest().getURI().getPath()).isHedge()) {
+            return chain.filter(exchange);
+        }
+
+        HedgedRoute hedgedRoute = routes.get(route.getId());
+        if (hedgedRoute == null) {
+            hedgedRoute = routes.computeIfAbsent(route.getId(), this::register);
+        }
+        HedgedRoute target = hedgedRoute;
+        Duration delay = Duration.ofNanos(target.delay().delayNanos());
+
+        Attempt primary = new Attempt(exchange, false);
+        Attempt hedge = new Attempt(exchange, true);
+        Mono<Attempt> hedged = Mono.delay(delay).then(Mono.defer(() -> {
+            if (!target.delay().tryHedge()) {
+                return Mono.empty();
+            }
+            // El hedge ocupa su propio hueco en el límite del servicio y es lo primero que se descarta
+            return concurrencyLimitFilter.admitExtraCall(hedge, route, () -> {
+                target.hedges().increment();
+                return hedge.run(chain, target);
+            });
+        }));
+
+        return Mono.firstWithValue(primary.run(chain, target), hedged)
+                .onErrorMap(NoSuchElementException.class, HedgingFilter::firstFailure)
+                .doOnNext(winner -> {
+                    if (winner.hedge) {
+                        target.wins().increment();
+                    }
+                    winner.commitTo(exchange);
+                    (winner == primary ? hedge : primary).dispose();
+                })
+                .doFinally(signal -> {
+                    if (signal != SignalType.ON_COMPLETE) {
+                        primary.dispose();
+                        hedge.dispose();
+                    }
+                })
+                .then();
+    }
+
+    /** Unwraps the error of the attempt that actually failed when no attempt produced a response. */
+    private static Throwable firstFailure(NoSuchElementException e) {
+        if (e.getCause() == null) {
+            return e;
+        }
+        return Exceptions.unwrapMultiple(e.getCause()).stream()
+                .filter(cause -> !(cause instanceof NoSuchElementException))
+                .findFirst()
+                .orElse(e);
+    }
+
+    private HedgedRoute register(String routeId) {
+        return new HedgedRoute(new HedgeDelay(properties),
+                Counter.builder("gateway.hedging.hedges").tag("route", routeId).register(meterRegistry),
+                Counter.builder("gateway.hedging.wins").tag("route", routeId).register(meterRegistry));
+    }
+
+    private record HedgedRoute(HedgeDelay delay, Counter hedges, Counter wins) {
+    }
+
+    /**
+     * One downstream call with its own attributes and response status/headers, so that two calls can race without
+     * seeing each other's routing state.
+     */
+    private static final class Attempt extends ServerWebExchangeDecorator {
+
+        private final boolean hedge;
+        private final Map<String, Object> attributes;
+        private final DetachedResponse response;
+
+        Attempt(ServerWebExchange exchange, boolean hedge) {
+            super(exchange);
+            this.hedge = hedge;
+            this.attributes = new ConcurrentHashMap<>(exchange.getAttributes());
+            this.response = new DetachedResponse(exchange.getResponse());
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public ServerHttpResponse getResponse() {
+            return response;
+        }
+
+        Mono<Attempt> run(GatewayFilterChain chain, HedgedRoute route) {
+            long start = System.nanoTime();
+            return chain.filter(this)
+                    .doOnSuccess(ignored -> route.delay().record(System.nanoTime() - start))
+                    .thenReturn(this);
+        }
+
+        void commitTo(ServerWebExchange exchange) {
+            exchange.getAttributes().putAll(attributes);
+            ServerHttpResponse target = exchange.getResponse();
+            if (response.status != null) {
+                target.setStatusCode(response.status);
+            }
+            if (!response.headers.containsKey(HttpHeaders.TRANSFER_ENCODING)
+                    && response.headers.containsKey(HttpHeaders.CONTENT_LENGTH)) {
+                target.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+            }
+            target.getHeaders().addAll(response.headers);
+        }
+
+        /** Closes the downstream connection if this attempt got response headers but lost the race. */
+        void dispose() {
+            Object connection = attributes.get(ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR);
+            if (connection instanceof Connection conn && !conn.isDisposed()) {
+                conn.dispose();
+            }
+        }
+    }
+
+    private static final class DetachedResponse extends ServerHttpResponseDecorator {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private HttpStatusCode status;
+
+        DetachedResponse(ServerHttpResponse delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.status = status;
+            return true;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.bookgateway.Resilience;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * When a hedged GET sends its second request: after the route's recent {@link #getPercentile()} latency, clamped to
+ * [{@link #getMinDelay()}, {@link #getMaxDelay()}] and recomputed every {@link #getWindow()}.
+ */
+@ConfigurationProperties("gateway.hedging")
+public class HedgingProperties {
+
+    private boolean enabled = true;
+
+    private double percentile = 95;
+
+    private Duration minDelay = Duration.ofMillis(20);
+
+    /** Upper bound of the delay, also used until a route has enough samples. */
+    private Duration maxDelay = Duration.ofMillis(500);
+
+    private Duration window = Duration.ofSeconds(30);
+
+    private int minSamples = 50;
+
+    /** Maximum fraction of requests per window that may be hedged, so hedging cannot double load on a slow service. */
+    private double maxHedgeRatio = 0.1;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getPercentile() {
+        return percentile;
+    }
+
+    public void setPercentile(double percentile) {
+        this.percentile = percentile;
+    }
+
+    public Duration getMinDelay() {
+        return minDelay;
+    }
+
+    public void setMinDelay(Duration minDelay) {
+        this.minDelay = minDelay;
+    }
+
+    public Duration getMaxDelay() {
+        return maxDelay;
+    }
+
+    public void setMaxDelay(Duration maxDelay) {
+        this.maxDelay = maxDelay;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public double getMaxHedgeRatio() {
+        return maxHedgeRatio;
+    }
+
+    public void setMaxHedgeRatio(double maxHedgeRatio) {
+        this.maxHedgeRatio = maxHedgeRatio;
+    }
+}
@@ -1,21 +0,0 @@
-package org.example.bookgateway;
-
-import org.springframework.http.server.reactive.ServerHttpRequest;
-import org.springframework.stereotype.Component;
-
-import java.util.List;
-import java.util.function.Predicate;
-
-@Component
-public class RouterValidator {
-
-    public static final List<String> openApiEndpoints = List.of(
-		    "/auth/register", "/auth/login", "/auth/refresh-token"
-    );
-
-    public Predicate<ServerHttpRequest> isSecured =
-            request -> openApiEndpoints
-                    .stream()
-                    .noneMatch(uri -> request.getURI().getPath().contains(uri));
-
-}
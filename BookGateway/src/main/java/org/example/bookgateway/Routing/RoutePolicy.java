@@ -0,0 +1,96 @@
+package org.example.bookgateway.Routing;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Compiled, immutable policy of one route pattern. Instances are shared by every request that matches the pattern.
+ */
+public final class RoutePolicy {
+
+    public static final String DEFAULT_RATE_LIMIT_CLASS = "default";
+
+    /** Applied to paths no pattern matches: authenticated, default rate limit, never cached. */
+    static final RoutePolicy FALLBACK = new RoutePolicy("/**", true, DEFAULT_RATE_LIMIT_CLASS, null, true, false,
+            false, false, Map.of());
+
+    private final String pattern;
+    private final boolean secured;
+    private final String rateLimitClass;
+    private final Duration cacheTtl;
+    private final boolean userScoped;
+    private final boolean coalesce;
+    private final boolean hedge;
+    private final boolean backgroundPolling;
+    private final Map<String, Integer> variableSegments;
+
+    RoutePolicy(String pattern, boolean secured, String rateLimitClass, Duration cacheTtl, boolean userScoped,
+                boolean coalesce, boolean hedge, boolean backgroundPolling, Map<String, Integer> variableSegments) {
+        this.pattern = pattern;
+        this.secured = secured;
+        this.rateLimitClass = rateLimitClass;
+        this.cacheTtl = cacheTtl;
+        this.userScoped = userScoped;
+        this.coalesce = coalesce;
+        this.hedge = hedge;
+        this.backgroundPolling = backgroundPolling;
+        this.variableSegments = variableSegments;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public boolean isSecured() {
+        return secured;
+    }
+
+    public String getRateLimitClass() {
+        return rateLimitClass;
+    }
+
+    public boolean isCacheable() {
+        return cacheTtl != null && !cacheTtl.isZero() && !cacheTtl.isNegative();
+    }
+
+    public Duration getCacheTtl() {
+        return cacheTtl;
+    }
+
+    public boolean isUserScoped() {
+        return userScoped;
+    }
+
+    public boolean isCoalesce() {
+        return coalesce;
+    }
+
+    public boolean isHedge() {
+        return hedge;
+    }
+
+    public boolean isBackgroundPolling() {
+        return backgroundPolling;
+    }
+
+    /**
+     * Value of the {@code {name}} variable in a path this policy matched, or {@code null} if the pattern has no such
+     * variable. Only allocates the returned string.
+     */
+    public String variable(String path, String name) {
+        Integer index = variableSegments.get(name);
+        if (index == null) {
+            return null;
+        }
+        int segment = 0;
+        int start = RoutePolicyMatcher.skipSlashes(path, 0);
+        while (start < path.length()) {
+            int end = RoutePolicyMatcher.segmentEnd(path, start);
+            if (segment++ == index) {
+                return path.substring(start, end);
+            }
+            start = RoutePolicyMatcher.skipSlashes(path, end);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.bookgateway.Routing;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Segment trie compiled once from {@link RoutePolicyProperties}. Lookups walk the request path in place, without
+ * splitting or copying it, so resolving the policy of a request costs O(path segments) and allocates nothing
+ * regardless of how many routes are configured.
+ */
+@Component
+public class RoutePolicyMatcher {
+
+    private final Node root = new Node();
+
+    public RoutePolicyMatcher(RoutePolicyProperties properties) {
+        for (RoutePolicyProperties.Policy policy : properties.getPolicies()) {
+            add(policy);
+        }
+        root.compile();
+    }
+
+    /**
+     * Returns the most specific policy for {@code path}, or the authenticated default when nothing matches.
+     */
+    public RoutePolicy match(String path) {
+        RoutePolicy policy = match(root, path, 0);
+        return policy == null ? RoutePolicy.FALLBACK : policy;
+    }
+
+    private static RoutePolicy match(Node node, String path, int from) {
+        int start = skipSlashes(path, from);
+        if (start == path.length()) {
+            return node.policy != null ? node.policy : node.catchAll;
+        }
+
+        int end = segmentEnd(path, start);
+        Node literal = node.literal(path, start, end);
+        if (literal != null) {
+            RoutePolicy policy = match(literal, path, end);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        if (node.variable != null) {
+            RoutePolicy policy = match(node.variable, path, end);
+            if (policy != null) {
+                return policy;
+            }
+        }
+        return node.catchAll;
+    }
+
+    private void add(RoutePolicyProperties.Policy config) {
+        String pattern = config.getPattern();
+        if (pattern == null || !pattern.startsWith("/")) {
+            throw new IllegalArgumentException("Route pattern must start with '/': " + pattern);
+        }
+
+        String[] segments = Arrays.stream(pattern.split("/")).filter(segment -> !segment.isEmpty())
+                .toArray(String[]::new);
+        Map<String, Integer> variables = new HashMap<>();
+        Node node = root;
+        boolean catchAll = false;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment.equals("**")) {
+                if (i != segments.length - 1) {
+                    throw new IllegalArgumentException("'**' is only allowed at the end of a pattern: " + pattern);
+                }
+                catchAll = true;
+            } else if (segment.equals("*") || (segment.startsWith("{") && segment.endsWith("}"))) {
+                if (segment.length() > 2) {
+                    variables.put(segment.substring(1, segment.length() - 1), i);
+                }
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.pending.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+
+        RoutePolicy policy = new RoutePolicy(pattern, config.isSecured(),
+                config.getRateLimitClass() == null ? RoutePolicy.DEFAULT_RATE_LIMIT_CLASS : config.getRateLimitClass(),
+                config.getCacheTtl(), config.isUserScoped(), config.isCoalesce(), config.isHedge(),
+                config.isBackgroundPolling(), Map.copyOf(variables));
+        // Si un patrón se repite gana el primero declarado
+        if (catchAll) {
+            if (node.catchAll == null) {
+                node.catchAll = policy;
+            }
+        } else if (node.policy == null) {
+            node.policy = policy;
+        }
+    }
+
+    static int skipSlashes(String path, int from) {
+        int i = from;
+        while (i < path.length() && path.charAt(i) == '/') {
+            i++;
+        }
+        return i;
+    }
+
+    static int segmentEnd(String path, int start) {
+        int end = path.indexOf('/', start);
+        return end < 0 ? path.length() : end;
+    }
+
+    private static final class Node {
+
+        private TreeMap<String, Node> pending = new TreeMap<>();
+        private String[] literals;
+        private Node[] children;
+        private Node variable;
+        private RoutePolicy policy;
+        private RoutePolicy catchAll;
+
+        void compile() {
+            literals = pending.keySet().toArray(String[]::new);
+            children = pending.values().toArray(Node[]::new);
+            pending = null;
+            for (Node child : children) {
+                child.compile();
+            }
+            if (variable != null) {
+                variable.compile();
+            }
+        }
+
+        /** Binary search over the sorted literal segments, comparing in place against {@code path[start, end)}. */
+        Node literal(String path, int start, int end) {
+            int low = 0;
+            int high = literals.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compare(literals[mid], path, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return children[mid];
+                }
+            }
+            return null;
+        }
+
+        private static int compare(String literal, String path, int start, int end) {
+            int length = end - start;
+            int common = Math.min(literal.length(), length);
+            for (int i = 0; i < common; i++) {
+                int diff = literal.charAt(i) - path.charAt(start + i);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return literal.length() - length;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package org.example.bookgateway.Routing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Single table of per-route policies: whether a JWT is required, which rate-limit class applies, whether GET
+ * responses may be cached, coalesced or hedged and whether background services poll the route. Compiled at startup by {@link RoutePolicyMatcher}; the most specific pattern
+ * wins (literal segments over {@code {variables}} over a trailing {@code /**}).
+ *
+ * <pre>
+ * gateway.routes.policies[0].pattern=/users/search/**
+ * gateway.routes.policies[0].rate-limit-class=search
+ * </pre>
+ */
+@ConfigurationProperties("gateway.routes")
+public class RoutePolicyProperties {
+
+    // Abiertas: lo que Book deja pasar sin autenticar (SecurityConfig) y BookExpress, que valida el token por su cuenta
+    // y también acepta su cookie refreshToken
+    private List<Policy> policies = new ArrayList<>(List.of(
+            Policy.open("/auth/**"),
+            Policy.open("/error"),
+            Policy.open("/oauth2/**"),
+            Policy.open("/login/oauth2/**"),
+            Policy.open("/uploads/**"),
+            Policy.open("/books/**"),
+            // Sin esta entrada /users/search caería en /users/{userId}, cacheado para todos: la búsqueda excluye a
+            // quien la hace, así que su respuesta no se puede compartir entre usuarios
+            Policy.uncached("/users/search", "search"),
+            Policy.cached("/users/{userId}", Duration.ofSeconds(60), false),
+            Policy.cached("/api/friendships/friends", Duration.ofSeconds(30), true).polledInBackground(),
+            Policy.cached("/api/friendships/pending", Duration.ofSeconds(30), true)));
+
+    public List<Policy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(List<Policy> policies) {
+        this.policies = policies;
+    }
+
+    public static class Policy {
+
+        /** Path pattern, e.g. {@code /users/{userId}} or {@code /auth/login/**}. */
+        private String pattern;
+
+        private boolean secured = true;
+
+        /** Key into {@code gateway.rate-limit.classes}; unknown classes use the default limit. */
+        private String rateLimitClass = RoutePolicy.DEFAULT_RATE_LIMIT_CLASS;
+
+        /** How long GET responses are kept in the gateway cache; unset means not cached. */
+        private Duration cacheTtl;
+
+        /** Whether the response depends on the caller, so cache entries and coalesced calls are kept per user. */
+        private boolean userScoped = true;
+
+        /** Whether concurrent identical GETs share a single downstream call. */
+        private boolean coalesce;
+
+        /** Whether slow GETs are retried in parallel against another instance, keeping the first response. */
+        private boolean hedge;
+
+        /** Whether services (Chat, BookExpress) poll this route; their calls are shed first under load. */
+        private boolean backgroundPolling;
+
+        public Policy() {
+        }
+
+        static Policy open(String pattern) {
+            Policy policy = new Policy();
+            policy.setPattern(pattern);
+            policy.setSecured(false);
+            return policy;
+        }
+
+        static Policy uncached(String pattern, String rateLimitClass) {
+            Policy policy = new Policy();
+            policy.setPattern(pattern);
+            policy.setRateLimitClass(rateLimitClass);
+            return policy;
+        }
+
+        static Policy cached(String pattern, Duration cacheTtl, boolean userScoped) {
+            Policy policy = new Policy();
+            policy.setPattern(pattern);
+            policy.setCacheTtl(cacheTtl);
+            policy.setUserScoped(userScoped);
+            policy.setCoalesce(true);
+            policy.setHedge(true);
+            return policy;
+        }
+
+        Policy polledInBackground() {
+            this.backgroundPolling = true;
+            return this;
+        }
+
+        public String getPattern() {
+            return pattern;
+        }
+
+        public void setPattern(String pattern) {
+            this.pattern = pattern;
+        }
+
+        public boolean isSecured() {
+            return secured;
+        }
+
+        public void setSecured(boolean secured) {
+            this.secured = secured;
+        }
+
+        public String getRateLimitClass() {
+            return rateLimitClass;
+        }
+
+        public void setRateLimitClass(String rateLimitClass) {
+            this.rateLimitClass = rateLimitClass;
+        }
+
+        public Duration getCacheTtl() {
+            return cacheTtl;
+        }
+
+        public void setCacheTtl(Duration cacheTtl) {
+            this.cacheTtl = cacheTtl;
+        }
+
+        public boolean isUserScoped() {
+            return userScoped;
+        }
+
+        public void setUserScoped(boolean userScoped) {
+            this.userScoped = userScoped;
+        }
+
+        public boolean isCoalesce() {
+            return coalesce;
+        }
+
+        public void setCoalesce(boolean coalesce) {
+            this.coalesce = coalesce;
+        }
+
+        public boolean isHedge() {
+            return hedge;
+        }
+
+        public void setHedge(boolean hedge) {
+            this.hedge = hedge;
+        }
+
+        public boolean isBackgroundPolling() {
+            return backgroundPolling;
+        }
+
+        public void setBackgroundPolling(boolean backgroundPolling) {
+            this.backgroundPolling = backgroundPolling;
+        }
+    }
+}
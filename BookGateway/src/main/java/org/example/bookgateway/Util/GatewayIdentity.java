@@ -0,0 +1,37 @@
+package org.example.bookgateway.Util;
+
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Resolves the verified caller of an exchange, also on open routes where {@link JwtAuthenticationFilter} does not
+ * verify the token.
+ */
+public final class GatewayIdentity {
+
+    private GatewayIdentity() {
+    }
+
+    /**
+     * Returns the verified token of the exchange, verifying the {@code Authorization} header through the shared cache
+     * when {@link JwtAuthenticationFilter} did not run, or {@code null} if the caller is anonymous or the token is
+     * invalid.
+     */
+    public static VerifiedToken verifiedToken(ServerWebExchange exchange, JwtTokenUtil jwtTokenUtil) {
+        VerifiedToken verifiedToken = exchange.getAttribute(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTR);
+        if (verifiedToken != null) {
+            return verifiedToken;
+        }
+
+        String authorization = exchange.getRequest().getHeaders().getFirst("Authorization");
+        if (authorization == null || !authorization.startsWith("Bearer ")) {
+            return null;
+        }
+        try {
+            verifiedToken = jwtTokenUtil.verify(authorization.substring(7));
+        } catch (RuntimeException e) {
+            return null;
+        }
+        exchange.getAttributes().put(JwtAuthenticationFilter.VERIFIED_TOKEN_ATTR, verifiedToken);
+        return verifiedToken;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.bookgateway.Util;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+/**
+ * Headers the gateway uses to hand a verified identity to the services behind it.
+ */
+public final class IdentityHeaders {
+
+    public static final String USER_ID = "X-User-Id";
+    public static final String USERNAME = "X-Username";
+    public static final String ROLES = "X-User-Roles";
+    public static final String GATEWAY_AUTH = "X-Gateway-Auth";
+
+    public static final List<String> ALL = List.of(USER_ID, USERNAME, ROLES, GATEWAY_AUTH);
+
+    private IdentityHeaders() {
+    }
+
+    public static boolean present(HttpHeaders headers) {
+        for (String name : ALL) {
+            if (headers.containsKey(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.bookgateway.Util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * HMAC-SHA256 over the identity headers the gateway forwards, sent as {@value IdentityHeaders#GATEWAY_AUTH}
+ * ({@code v1.<epochSeconds>.<base64url mac>}). The shared secret itself never leaves the gateway, and a captured value
+ * is only good for the same user, roles and a short time window.
+ * <p>
+ * Calls to {@code POST /gateway/cache/invalidate} are signed the same way over the requested tags, with a payload
+ * that an identity signature can never produce.
+ */
+public final class IdentitySignature {
+
+    static final String VERSION = "v1";
+    private static final String INVALIDATION_PURPOSE = "cache-invalidate";
+
+    private IdentitySignature() {
+    }
+
+    public static String sign(String secret, String userId, String username, String roles, long epochSeconds) {
+        return VERSION + "." + epochSeconds + "." + mac(secret, payload(userId, username, roles, epochSeconds));
+    }
+
+    public static String signInvalidation(String secret, String tags, long epochSeconds) {
+        return VERSION + "." + epochSeconds + "." + mac(secret, invalidationPayload(tags, epochSeconds));
+    }
+
+    /**
+     * Whether {@code signature} was made by {@link #signInvalidation} with {@code secret} for exactly {@code tags}
+     * (blank for "everything") within {@code maxSkewSeconds} of now.
+     */
+    public static boolean verifyInvalidation(String secret, String signature, String tags, long nowEpochSeconds,
+                                             long maxSkewSeconds) {
+        if (secret == null || secret.isEmpty() || signature == null) {
+            return false;
+        }
+        String[] parts = signature.split("\\.", 3);
+        if (parts.length != 3 || !VERSION.equals(parts[0])) {
+            return false;
+        }
+        long epochSeconds;
+        try {
+            epochSeconds = Long.parseLong(parts[1]);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        if (Math.abs(nowEpochSeconds - epochSeconds) > maxSkewSeconds) {
+            return false;
+        }
+        String expected = mac(secret, invalidationPayload(tags, epochSeconds));
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                parts[2].getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Tres líneas empezando por el propósito; las de identidad tienen cuatro
+    static String invalidationPayload(String tags, long epochSeconds) {
+        return String.join("\n", INVALIDATION_PURPOSE, tags == null ? "" : tags, Long.toString(epochSeconds));
+    }
+
+    static String payload(String userId, String username, String roles, long epochSeconds) {
+        return String.join("\n", userId, username == null ? "" : username, roles == null ? "" : roles,
+                Long.toString(epochSeconds));
+    }
+
+    static String mac(String secret, String payload) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
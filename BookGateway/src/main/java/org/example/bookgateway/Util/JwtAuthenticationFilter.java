@@ -1,43 +1,118 @@
 package org.example.bookgateway.Util;
 
+import io.jsonwebtoken.JwtException;
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.time.Clock;
+
+/**
+ * Rejects requests to secured routes ({@link RoutePolicyMatcher}) without a valid token and forwards the verified
+ * identity as {@link IdentityHeaders}, signed with {@link IdentitySignature}. The token is taken from the same places
+ * the services read it: the {@code Authorization: Bearer} header, Book's {@value #JWT_COOKIE} cookie, or the
+ * {@code Sec-WebSocket-Protocol} header of a WebSocket handshake (Chat). Open routes pass through, with the identity
+ * attached when they carry a valid token. Runs as a global filter on every route, right after
+ * {@link StripIdentityHeadersFilter} and before rate limiting and caching.
+ */
 @Component
-public class JwtAuthenticationFilter implements GatewayFilter {
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+
+    public static final String VERIFIED_TOKEN_ATTR = JwtAuthenticationFilter.class.getName() + ".verifiedToken";
+    public static final int ORDER = 50;
+    static final String JWT_COOKIE = "JWT";
+    private static final String SEC_WEBSOCKET_PROTOCOL = "Sec-WebSocket-Protocol";
 
     @Autowired
     private JwtTokenUtil jwtTokenUtil;
 
+    @Autowired
+    private RoutePolicyMatcher routePolicyMatcher;
+
+    // Secreto compartido con Book y BookFriendship para que confíen en las cabeceras de identidad
+    @Value("${gateway.identity.secret:}")
+    private String identitySecret;
+
+    private final Clock clock = Clock.systemUTC();
+
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
         ServerHttpRequest request = exchange.getRequest();
         String path = request.getURI().getPath();
 
-        // Excluir las rutas de login y registro de la autenticación
-	    if (path.startsWith("/auth/login") || path.startsWith("/auth/register") || path.startsWith("/auth/refresh-token")) {
-            return chain.filter(exchange);
-        }
-
         String token = extractJwtToken(request);
-        if (token == null || !jwtTokenUtil.validateToken(token)) {
+        VerifiedToken verifiedToken = token == null ? null : verify(token);
+        if (verifiedToken == null) {
+            // Las rutas abiertas (auth, OAuth, uploads...) se declaran en gateway.routes.policies
+            if (!routePolicyMatcher.match(path).isSecured()) {
+                return chain.filter(exchange);
+            }
             exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
             return exchange.getResponse().setComplete();
         }
-        return chain.filter(exchange);
+
+        exchange.getAttributes().put(VERIFIED_TOKEN_ATTR, verifiedToken);
+        if (identitySecret.isEmpty()) {
+            return chain.filter(exchange);
+        }
+        String roles = verifiedToken.getRoles() == null ? null : String.join(",", verifiedToken.getRoles());
+        // Firma en lugar del secreto: quien registre cabeceras no se lleva nada reutilizable
+        String signature = IdentitySignature.sign(identitySecret, verifiedToken.getUserId(),
+                verifiedToken.getUsername(), roles, clock.instant().getEpochSecond());
+        return chain.filter(exchange.mutate()
+                .request(builder -> builder.headers(headers -> {
+                    headers.set(IdentityHeaders.USER_ID, verifiedToken.getUserId());
+                    if (verifiedToken.getUsername() != null) {
+                        headers.set(IdentityHeaders.USERNAME, verifiedToken.getUsername());
+                    }
+                    if (roles != null) {
+                        headers.set(IdentityHeaders.ROLES, roles);
+                    }
+                    headers.set(IdentityHeaders.GATEWAY_AUTH, signature);
+                }))
+                .build());
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    private VerifiedToken verify(String token) {
+        try {
+            return jwtTokenUtil.verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
     }
 
-    private String extractJwtToken(ServerHttpRequest request) {
-        String authorizationHeader = request.getHeaders().getOrEmpty("Authorization").get(0);
+    static String extractJwtToken(ServerHttpRequest request) {
+        HttpHeaders headers = request.getHeaders();
+        String authorizationHeader = headers.getFirst(HttpHeaders.AUTHORIZATION);
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             return authorizationHeader.substring(7);
         }
+        HttpCookie cookie = request.getCookies().getFirst(JWT_COOKIE);
+        if (cookie != null && !cookie.getValue().isEmpty()) {
+            return cookie.getValue();
+        }
+        // Chat manda el token como subprotocolo del handshake, el único sitio que deja el WebSocket del navegador
+        if ("websocket".equalsIgnoreCase(headers.getUpgrade())) {
+            String protocol = headers.getFirst(SEC_WEBSOCKET_PROTOCOL);
+            if (protocol != null && !protocol.isBlank()) {
+                return protocol.trim();
+            }
+        }
         return null;
     }
-}
\ No newline at end of file
+}
@@ -1,11 +1,18 @@
 package org.example.bookgateway.Util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.util.Date;
 
 @Component
@@ -17,6 +24,22 @@ public class JwtTokenUtil {
     @Value("${jwt.expiration}")
     private Long expiration;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private Key key;
+
+    private JwtParser parser;
+
+    @PostConstruct
+    public void init() {
+        // Misma clave que Book y BookFriendship: los bytes UTF-8 del secreto, no su decodificación Base64
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+    }
+
     public String generateToken(String username) {
         Date now = new Date();
         Date expirationDate = new Date(now.getTime() + expiration);
@@ -24,13 +47,27 @@ public class JwtTokenUtil {
                 .setSubject(username)
                 .setIssuedAt(now)
                 .setExpiration(expirationDate)
-                .signWith(SignatureAlgorithm.HS512, secret)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
+    /**
+     * Verifies {@code token} once and caches the verdict for the rest of the token's lifetime.
+     *
+     * @throws JwtException if the token is malformed, tampered with or expired
+     */
+    public VerifiedToken verify(String token) throws JwtException {
+        return verifiedTokenCache.get(token, this::parse);
+    }
+
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        return VerifiedToken.fromClaims(claims);
+    }
+
     public boolean validateToken(String token) {
         try {
-            Jwts.parser().setSigningKey(secret).parseClaimsJws(token);
+            verify(token);
             return true;
         } catch (Exception e) {
             return false;
@@ -38,7 +75,6 @@ public class JwtTokenUtil {
     }
 
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parser().setSigningKey(secret).parseClaimsJws(token).getBody();
-        return claims.getSubject();
+        return verify(token).getUserId();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package org.example.bookgateway.Util;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable result of a successful signature and expiration check, shared between requests carrying the same token.
+ */
+public final class VerifiedToken {
+
+    private final String userId;
+    private final String username;
+    private final List<String> roles;
+    private final long expirationMillis;
+
+    private VerifiedToken(String userId, String username, List<String> roles, long expirationMillis) {
+        this.userId = userId;
+        this.username = username;
+        this.roles = roles;
+        this.expirationMillis = expirationMillis;
+    }
+
+    static VerifiedToken fromClaims(Claims claims) {
+        Object rolesClaim = claims.get("roles");
+        List<String> roles = rolesClaim instanceof Collection<?> values
+                ? values.stream().map(String::valueOf).toList()
+                : null;
+        long expirationMillis = claims.getExpiration() == null ? Long.MAX_VALUE : claims.getExpiration().getTime();
+        return new VerifiedToken(claims.getSubject(), claims.get("username", String.class), roles, expirationMillis);
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Role names from the token, or {@code null} when the token was issued without a roles claim.
+     */
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public long getExpirationMillis() {
+        return expirationMillis;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expirationMillis <= nowMillis;
+    }
+}
@@ -0,0 +1,98 @@
+package org.example.bookgateway.Concurrency;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveLimiterTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    public void rejectsOverTheLimitAndReservesHeadroomForInteractiveTraffic() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new ConcurrencyProperties());
+
+        for (int i = 0; i < 14; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.BACKGROUND));
+        }
+        assertFalse(limiter.tryAcquire(RequestPriority.BACKGROUND));
+        for (int i = 14; i < 20; i++) {
+            assertTrue(limiter.tryAcquire(RequestPriority.INTERACTIVE));
+        }
+        assertFalse(limiter.tryAcquire(RequestPriority.INTERACTIVE));
+        assertEquals(20, limiter.inFlight());
+    }
+
+    @Test
+    public void growsWhileSaturatedWithStableLatency() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new ConcurrencyProperties());
+
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, MILLI, (int) limiter.limit(), false);
+        }
+
+        assertTrue(limiter.limit() > 20);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    public void ignoresSamplesWhenTheLimitIsNotTheBottleneck() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new ConcurrencyProperties());
+
+        for (int i = 0; i < 50; i++) {
+            sample(limiter, MILLI, 1, false);
+        }
+
+        assertEquals(20, limiter.limit(), 0.0);
+    }
+
+    @Test
+    public void shrinksWhenLatencyRises() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(new ConcurrencyProperties());
+        for (int i = 0; i < 20; i++) {
+            sample(limiter, MILLI, 20, false);
+        }
+        double before = limiter.limit();
+
+        for (int i = 0; i < 5; i++) {
+            sample(limiter, 20 * MILLI, (int) limiter.limit(), false);
+        }
+
+        assertTrue(limiter.limit() < before);
+    }
+
+    @Test
+    public void backsOffOnDropsButNotBelowTheMinimum() {
+        ConcurrencyProperties properties = new ConcurrencyProperties();
+        AdaptiveLimiter limiter = new AdaptiveLimiter(properties);
+
+        sample(limiter, 0, 0, true);
+        assertEquals(20 * 0.8 + 20 * 0.9 * 0.2, limiter.limit(), 1e-9);
+
+        for (int i = 0; i < 500; i++) {
+            sample(limiter, 0, 0, true);
+        }
+        assertEquals(properties.getMinLimit(), limiter.limit(), 0.0);
+    }
+
+    @Test
+    public void neverExceedsTheMaximum() {
+        ConcurrencyProperties properties = new ConcurrencyProperties();
+        properties.setMaxLimit(30);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(properties);
+
+        for (int i = 0; i < 500; i++) {
+            sample(limiter, MILLI, (int) limiter.limit(), false);
+        }
+
+        assertEquals(30, limiter.limit(), 0.0);
+    }
+
+    /** Un ciclo completo de admisión y liberación, como lo hace el filtro. */
+    private static void sample(AdaptiveLimiter limiter, long rttNanos, int inFlightAtStart, boolean dropped) {
+        assertTrue(limiter.tryAcquire(RequestPriority.INTERACTIVE));
+        limiter.release(rttNanos, inFlightAtStart, dropped);
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.bookgateway.Metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    private static final long MAX_MICROS = (1L << 33) - 1;
+
+    @Test
+    public void valuesBelowTheLinearRangeAreExact() {
+        for (int micros = 0; micros < 128; micros++) {
+            assertEquals(micros, LatencyHistogram.bucketIndex(micros));
+            assertEquals(micros, LatencyHistogram.highestEquivalentValue(micros));
+        }
+    }
+
+    @Test
+    public void bucketsAreContiguousAndWithinRelativePrecision() {
+        int previous = -1;
+        for (long micros = 0; micros < (1 << 20); micros++) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            assertTrue("index went backwards at " + micros, index == previous || index == previous + 1);
+            long highest = LatencyHistogram.highestEquivalentValue(index);
+            assertTrue(highest >= micros);
+            assertTrue("bucket too wide at " + micros, highest - micros <= micros / 64);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void largestValueFallsInTheLastBucket() {
+        int last = LatencyHistogram.bucketIndex(MAX_MICROS);
+
+        assertEquals(MAX_MICROS, LatencyHistogram.highestEquivalentValue(last));
+        assertEquals(128 + 26 * 64 - 1, last);
+        // La última potencia de dos ocupa los 64 sub-buckets finales
+        assertEquals(last - 63, LatencyHistogram.bucketIndex(1L << 32));
+    }
+
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 10_000; micros++) {
+            histogram.recordNanos(micros * 1_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(10_000, snapshot.getMaxMicros());
+        assertEquals(50_005_000L, snapshot.getSumMicros());
+        assertWithin(5_000, snapshot.valueAtPercentile(50));
+        assertWithin(9_900, snapshot.valueAtPercentile(99));
+        assertEquals(10_000, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5);
+        histogram.recordNanos(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.getCount());
+        assertEquals(MAX_MICROS, snapshot.getMaxMicros());
+        assertEquals(0, snapshot.valueAtPercentile(50));
+        assertEquals(MAX_MICROS, snapshot.valueAtPercentile(100));
+    }
+
+    @Test
+    public void emptySnapshotReportsZero() {
+        assertEquals(0, new LatencyHistogram().snapshot().valueAtPercentile(99));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual + " not within 1/64 of " + expected, actual >= expected && actual - expected <= expected / 64);
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.bookgateway.RateLimit;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+
+public class RateLimitFilterTest {
+
+    private static final Set<String> PROXIES = Set.of("10.0.0.10", "10.0.0.11");
+
+    @Test
+    public void ignoresForwardedForFromUntrustedConnections() {
+        assertEquals("203.0.113.7",
+                RateLimitFilter.clientAddress("203.0.113.7", List.of("198.51.100.1"), PROXIES));
+    }
+
+    @Test
+    public void usesRightMostUntrustedHopBehindTrustedProxies() {
+        // El cliente puede escribir lo que quiera a la izquierda; solo cuenta lo que añadió el proxy
+        assertEquals("198.51.100.2", RateLimitFilter.clientAddress("10.0.0.10",
+                List.of("1.2.3.4, 198.51.100.2, 10.0.0.11"), PROXIES));
+    }
+
+    @Test
+    public void fallsBackToRemoteWithoutForwardedFor() {
+        assertEquals("10.0.0.10", RateLimitFilter.clientAddress("10.0.0.10", null, PROXIES));
+    }
+}
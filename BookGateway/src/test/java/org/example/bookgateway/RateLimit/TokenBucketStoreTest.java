@@ -0,0 +1,54 @@
+package org.example.bookgateway.RateLimit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketStoreTest {
+
+    @Test
+    public void allowsBurstThenRejectsWithWait() {
+        TokenBucketStore store = new TokenBucketStore(1000);
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(1, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.tryAcquire("user:1", limit));
+        }
+        long wait = store.tryAcquire("user:1", limit);
+        assertTrue(wait > 0 && wait <= 1_000_000_000L);
+    }
+
+    @Test
+    public void keysHaveIndependentBuckets() {
+        TokenBucketStore store = new TokenBucketStore(1000);
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(1, 1);
+
+        assertEquals(0, store.tryAcquire("user:1", limit));
+        assertTrue(store.tryAcquire("user:1", limit) > 0);
+        assertEquals(0, store.tryAcquire("user:2", limit));
+    }
+
+    @Test
+    public void refillsOverTime() throws InterruptedException {
+        TokenBucketStore store = new TokenBucketStore(1000);
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(1000, 1);
+
+        assertEquals(0, store.tryAcquire("user:1", limit));
+        Thread.sleep(5);
+        assertEquals(0, store.tryAcquire("user:1", limit));
+    }
+
+    @Test
+    public void neverHoldsMoreThanMaxBuckets() {
+        TokenBucketStore store = new TokenBucketStore(160);
+        // Buckets that do not refill within the test, so the sweep cannot free them
+        RateLimitProperties.Limit limit = new RateLimitProperties.Limit(0.001, 1);
+
+        for (int i = 0; i < 10_000; i++) {
+            store.tryAcquire("ip:" + i, limit);
+            assertTrue(store.size() <= 160);
+        }
+        assertTrue(store.evictions() >= 10_000 - 160);
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.bookgateway.Resilience;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+
+    private final List<String> transitions = new ArrayList<>();
+
+    @Test
+    public void staysClosedBelowTheMinimumNumberOfCalls() {
+        CircuitBreaker breaker = breaker(properties());
+
+        for (int i = 0; i < 9; i++) {
+            call(breaker, true);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void opensWhenTheFailureRateCrossesTheThreshold() {
+        CircuitBreaker breaker = breaker(properties());
+
+        for (int i = 0; i < 5; i++) {
+            call(breaker, false);
+        }
+        for (int i = 0; i < 5; i++) {
+            call(breaker, true);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.remainingOpenNanos() > 0);
+        assertEquals(List.of("CLOSED->OPEN"), transitions);
+    }
+
+    @Test
+    public void opensOnSlowCalls() {
+        CircuitBreakerProperties properties = properties();
+        CircuitBreaker breaker = breaker(properties);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onResult(properties.getSlowCallDuration().toNanos(), false);
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    public void oldOutcomesLeaveTheWindow() {
+        CircuitBreaker breaker = breaker(properties());
+
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true);
+        }
+        for (int i = 0; i < 20; i++) {
+            call(breaker, false);
+        }
+        for (int i = 0; i < 4; i++) {
+            call(breaker, true);
+        }
+
+        // Los 4 primeros fallos ya salieron de la ventana de 10: 4/10 no llega al 50 %
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void closesAfterSuccessfulTrialCalls() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(30);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+        }
+        assertFalse("only halfOpenCalls trial calls are let through", breaker.tryAcquire());
+        for (int i = 0; i < 3; i++) {
+            breaker.onResult(FAST, false);
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+    }
+
+    @Test
+    public void reopensWhenATrialCallFails() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(30);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(FAST, true);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void cancelledTrialCallsGiveTheirPermitBack() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        Thread.sleep(30);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.tryAcquire());
+        }
+        breaker.onCancel();
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+    }
+
+    private CircuitBreaker opened() {
+        CircuitBreaker breaker = breaker(properties());
+        for (int i = 0; i < 10; i++) {
+            call(breaker, true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        return breaker;
+    }
+
+    private static void call(CircuitBreaker breaker, boolean failure) {
+        assertTrue(breaker.tryAcquire());
+        breaker.onResult(FAST, failure);
+    }
+
+    private CircuitBreaker breaker(CircuitBreakerProperties properties) {
+        return new CircuitBreaker(properties, (from, to) -> transitions.add(from + "->" + to));
+    }
+
+    private static CircuitBreakerProperties properties() {
+        CircuitBreakerProperties properties = new CircuitBreakerProperties();
+        properties.setWindowSize(10);
+        properties.setMinimumCalls(10);
+        properties.setOpenDuration(Duration.ofMillis(20));
+        properties.setHalfOpenCalls(3);
+        return properties;
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.bookgateway.Resilience;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.bookgateway.Concurrency.ConcurrencyLimitFilter;
+import org.example.bookgateway.Concurrency.ConcurrencyProperties;
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.example.bookgateway.Routing.RoutePolicyProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the hedging filter against a stub backend whose first call is slow and whose later calls answer at once.
+ */
+public class HedgingFilterTest {
+
+    private static final Duration SLOW = Duration.ofMillis(400);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HedgingProperties hedgingProperties = new HedgingProperties();
+    private final ConcurrencyProperties concurrencyProperties = new ConcurrencyProperties();
+    private final AtomicInteger backendCalls = new AtomicInteger();
+
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
+    private HedgingFilter hedgingFilter;
+
+    @Before
+    public void setUp() {
+        hedgingProperties.setMaxDelay(Duration.ofMillis(20));
+        RoutePolicyMatcher matcher = new RoutePolicyMatcher(new RoutePolicyProperties());
+        concurrencyLimitFilter = new ConcurrencyLimitFilter(concurrencyProperties, matcher, meterRegistry);
+        hedgingFilter = new HedgingFilter(hedgingProperties, matcher, concurrencyLimitFilter, meterRegistry);
+    }
+
+    @Test
+    public void hedgeAnswersWhenThePrimaryIsSlow() {
+        ServerWebExchange exchange = exchange("/users/42");
+
+        long start = System.nanoTime();
+        run(exchange);
+
+        assertEquals(2, backendCalls.get());
+        assertEquals("2", exchange.getResponse().getHeaders().getFirst("X-Backend-Call"));
+        assertEquals(HttpStatus.OK, exchange.getResponse().getStatusCode());
+        assertEquals(1, meterRegistry.get("gateway.hedging.wins").counter().count(), 0.0);
+        assertTrue(System.nanoTime() - start < SLOW.toNanos());
+    }
+
+    @Test
+    public void hedgeIsShedWhenTheDownstreamLimitIsFull() {
+        concurrencyProperties.setInitialLimit(1);
+        concurrencyProperties.setMinLimit(1);
+        ServerWebExchange exchange = exchange("/users/42");
+
+        run(exchange);
+
+        assertEquals(1, backendCalls.get());
+        assertEquals("1", exchange.getResponse().getHeaders().getFirst("X-Backend-Call"));
+        assertEquals(1, meterRegistry.get("gateway.concurrency.shed").tag("priority", "background").counter().count(),
+                0.0);
+        assertEquals(0, meterRegistry.get("gateway.hedging.hedges").counter().count(), 0.0);
+    }
+
+    @Test
+    public void hedgeIsNotSentOnceTheBudgetIsSpent() {
+        hedgingProperties.setMaxHedgeRatio(0);
+        ServerWebExchange exchange = exchange("/users/42");
+
+        run(exchange);
+
+        assertEquals(1, backendCalls.get());
+    }
+
+    @Test
+    public void routesWithoutHedgingAreCalledOnce() {
+        ServerWebExchange exchange = exchange("/api/books");
+
+        run(exchange);
+
+        assertEquals(1, backendCalls.get());
+    }
+
+    /** The request goes through the concurrency limit first, as in the gateway's filter order. */
+    private void run(ServerWebExchange exchange) {
+        concurrencyLimitFilter.filter(exchange, primary -> hedgingFilter.filter(primary, stubBackend()))
+                .block(Duration.ofSeconds(5));
+    }
+
+    private GatewayFilterChain stubBackend() {
+        return exchange -> {
+            int call = backendCalls.incrementAndGet();
+            Mono<Void> latency = call == 1 ? Mono.delay(SLOW).then() : Mono.empty();
+            return latency.then(Mono.fromRunnable(() -> {
+                exchange.getResponse().setStatusCode(HttpStatus.OK);
+                exchange.getResponse().getHeaders().set("X-Backend-Call", Integer.toString(call));
+            }));
+        };
+    }
+
+    private static ServerWebExchange exchange(String path) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+        Route route = Route.async().id("book").uri("lb://book").predicate(ignored -> true).build();
+        exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR, route);
+        return exchange;
+    }
+}
@@ -0,0 +1,122 @@
+package org.example.bookgateway.Routing;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RoutePolicyMatcherTest {
+
+    @Test
+    public void literalSegmentsWinOverVariablesAndVariablesOverCatchAll() {
+        RoutePolicyMatcher matcher = matcher("/users/**", "/users/{userId}", "/users/search");
+
+        assertEquals("/users/search", matcher.match("/users/search").getPattern());
+        assertEquals("/users/{userId}", matcher.match("/users/42").getPattern());
+        assertEquals("/users/**", matcher.match("/users/42/books").getPattern());
+        assertEquals("/users/**", matcher.match("/users").getPattern());
+    }
+
+    @Test
+    public void backtracksToVariableWhenLiteralBranchDoesNotMatch() {
+        RoutePolicyMatcher matcher = matcher("/a/b/c", "/a/{x}/d");
+
+        assertEquals("/a/b/c", matcher.match("/a/b/c").getPattern());
+        assertEquals("/a/{x}/d", matcher.match("/a/b/d").getPattern());
+    }
+
+    @Test
+    public void unmatchedPathsGetTheSecuredFallback() {
+        RoutePolicyMatcher matcher = new RoutePolicyMatcher(new RoutePolicyProperties());
+
+        RoutePolicy policy = matcher.match("/nothing/here");
+
+        assertSame(RoutePolicy.FALLBACK, policy);
+        assertTrue(policy.isSecured());
+        assertFalse(policy.isCacheable());
+    }
+
+    @Test
+    public void defaultTableOpensWhatBookPermits() {
+        RoutePolicyMatcher matcher = new RoutePolicyMatcher(new RoutePolicyProperties());
+
+        assertFalse(matcher.match("/auth/login").isSecured());
+        assertFalse(matcher.match("//auth//refresh-token/").isSecured());
+        assertFalse(matcher.match("/auth/logout").isSecured());
+        assertFalse(matcher.match("/oauth2/authorization/google").isSecured());
+        assertFalse(matcher.match("/login/oauth2/code/google").isSecured());
+        assertFalse(matcher.match("/uploads/a.png").isSecured());
+        assertTrue(matcher.match("/users/42").isSecured());
+        assertTrue(matcher.match("/login").isSecured());
+        assertTrue(matcher.match("/api/friendships/friends").isBackgroundPolling());
+    }
+
+    @Test
+    public void userSearchIsNotSharedThroughTheUserProfileCache() {
+        RoutePolicyMatcher matcher = new RoutePolicyMatcher(new RoutePolicyProperties());
+
+        RoutePolicy search = matcher.match("/users/search");
+        assertEquals("/users/search", search.getPattern());
+        assertTrue(search.isSecured());
+        assertFalse(search.isCacheable());
+        assertFalse(search.isCoalesce());
+        assertFalse(search.isHedge());
+        assertEquals("search", search.getRateLimitClass());
+
+        RoutePolicy profile = matcher.match("/users/42");
+        assertEquals("/users/{userId}", profile.getPattern());
+        assertTrue(profile.isCacheable());
+    }
+
+    @Test
+    public void firstDeclaredPolicyWinsForDuplicatePatterns() {
+        RoutePolicyProperties properties = properties("/users/{userId}", "/users/{id}");
+        properties.getPolicies().get(1).setRateLimitClass("other");
+
+        RoutePolicy policy = new RoutePolicyMatcher(properties).match("/users/42");
+
+        assertEquals("/users/{userId}", policy.getPattern());
+        assertEquals(RoutePolicy.DEFAULT_RATE_LIMIT_CLASS, policy.getRateLimitClass());
+    }
+
+    @Test
+    public void extractsVariablesFromTheMatchedPath() {
+        RoutePolicy policy = matcher("/users/{userId}/books/{bookId}").match("/users/42/books/7");
+
+        assertEquals("42", policy.variable("/users/42/books/7", "userId"));
+        assertEquals("7", policy.variable("/users/42/books/7", "bookId"));
+        assertNull(policy.variable("/users/42/books/7", "missing"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCatchAllBeforeTheLastSegment() {
+        matcher("/users/**/books");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRelativePatterns() {
+        matcher("users/{userId}");
+    }
+
+    private static RoutePolicyMatcher matcher(String... patterns) {
+        return new RoutePolicyMatcher(properties(patterns));
+    }
+
+    private static RoutePolicyProperties properties(String... patterns) {
+        List<RoutePolicyProperties.Policy> policies = new ArrayList<>();
+        for (String pattern : patterns) {
+            RoutePolicyProperties.Policy policy = new RoutePolicyProperties.Policy();
+            policy.setPattern(pattern);
+            policies.add(policy);
+        }
+        RoutePolicyProperties properties = new RoutePolicyProperties();
+        properties.setPolicies(policies);
+        return properties;
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.bookgateway.Util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IdentitySignatureTest {
+
+    private static final String SECRET = "identidad";
+    private static final long NOW = 1_700_000_000L;
+
+    @Test
+    public void acceptsARecentInvalidationSignatureForTheSameTags() {
+        String signature = IdentitySignature.signInvalidation(SECRET, "user:42,user:7", NOW - 30);
+
+        assertTrue(IdentitySignature.verifyInvalidation(SECRET, signature, "user:42,user:7", NOW, 60));
+    }
+
+    @Test
+    public void coversInvalidatingEverything() {
+        String signature = IdentitySignature.signInvalidation(SECRET, null, NOW);
+
+        assertTrue(IdentitySignature.verifyInvalidation(SECRET, signature, null, NOW, 60));
+        assertFalse(IdentitySignature.verifyInvalidation(SECRET, signature, "user:42", NOW, 60));
+    }
+
+    @Test
+    public void rejectsOtherTagsStaleSignaturesAndOtherSecrets() {
+        String signature = IdentitySignature.signInvalidation(SECRET, "user:42", NOW);
+
+        assertFalse(IdentitySignature.verifyInvalidation(SECRET, signature, "user:7", NOW, 60));
+        assertFalse(IdentitySignature.verifyInvalidation(SECRET, signature, "user:42", NOW + 61, 60));
+        assertFalse(IdentitySignature.verifyInvalidation("otro", signature, "user:42", NOW, 60));
+    }
+
+    @Test
+    public void rejectsTheRawSecretAndIdentitySignatures() {
+        assertFalse(IdentitySignature.verifyInvalidation(SECRET, SECRET, null, NOW, 60));
+        assertFalse(IdentitySignature.verifyInvalidation(SECRET, null, null, NOW, 60));
+        // Sin secreto configurado no se acepta nada
+        assertFalse(IdentitySignature.verifyInvalidation("", "v1." + NOW + ".x", null, NOW, 60));
+
+        String identity = IdentitySignature.sign(SECRET, "cache-invalidate", "", null, NOW);
+        assertFalse(IdentitySignature.verifyInvalidation(SECRET, identity, "", NOW, 60));
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.bookgateway.Util;
+
+import org.example.bookgateway.Routing.RoutePolicyMatcher;
+import org.example.bookgateway.Routing.RoutePolicyProperties;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpCookie;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class JwtAuthenticationFilterTest {
+
+    private static final String SECRET = "un-secreto-compartido-de-al-menos-32-bytes";
+
+    private JwtAuthenticationFilter filter;
+    private final AtomicReference<ServerWebExchange> forwarded = new AtomicReference<>();
+
+    @Before
+    public void setUp() {
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "jwtTokenUtil", JwtTokenUtilTest.jwtTokenUtil(SECRET));
+        ReflectionTestUtils.setField(filter, "routePolicyMatcher", new RoutePolicyMatcher(new RoutePolicyProperties()));
+        ReflectionTestUtils.setField(filter, "identitySecret", "identidad");
+    }
+
+    @Test
+    public void letsAnonymousCallsThroughThePathsBookLeavesOpen() {
+        for (String path : new String[]{"/auth/login", "/auth/set-cookie?token=t", "/auth/userinfo", "/auth/logout",
+                "/oauth2/authorization/google", "/login/oauth2/code/google", "/uploads/foto.png", "/error",
+                "/books/all"}) {
+            forwarded.set(null);
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path));
+
+            filter.filter(exchange, this::forward).block();
+
+            assertNotNull(path, forwarded.get());
+            assertNull(path, exchange.getResponse().getStatusCode());
+            assertNull(path, forwarded.get().getRequest().getHeaders().getFirst(IdentityHeaders.USER_ID));
+        }
+    }
+
+    @Test
+    public void rejectsProtectedPathsWithoutAValidToken() {
+        for (String path : new String[]{"/users/42", "/api/friendships/friends", "/unknown"}) {
+            forwarded.set(null);
+            MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(path)
+                    .header(HttpHeaders.AUTHORIZATION, "Bearer no-es-un-jwt"));
+
+            filter.filter(exchange, this::forward).block();
+
+            assertNull(path, forwarded.get());
+            assertEquals(path, HttpStatus.UNAUTHORIZED, exchange.getResponse().getStatusCode());
+        }
+    }
+
+    @Test
+    public void acceptsBearerTokens() {
+        assertForwardsIdentity(MockServerHttpRequest.get("/users/42")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + JwtTokenUtilTest.bookToken(SECRET, "42", "ana")));
+    }
+
+    @Test
+    public void acceptsTheJwtCookieLikeBook() {
+        assertForwardsIdentity(MockServerHttpRequest.get("/api/friendships/friends")
+                .cookie(new HttpCookie("JWT", JwtTokenUtilTest.bookToken(SECRET, "42", "ana"))));
+    }
+
+    @Test
+    public void acceptsTheTokenOfAWebSocketHandshake() {
+        assertForwardsIdentity(MockServerHttpRequest.get("/chat")
+                .header(HttpHeaders.UPGRADE, "websocket")
+                .header("Sec-WebSocket-Protocol", JwtTokenUtilTest.bookToken(SECRET, "42", "ana")));
+    }
+
+    @Test
+    public void forwardsTheIdentityOnOpenPathsWhenATokenIsPresent() {
+        assertForwardsIdentity(MockServerHttpRequest.get("/auth/userinfo")
+                .cookie(new HttpCookie("JWT", JwtTokenUtilTest.bookToken(SECRET, "42", "ana"))));
+    }
+
+    private void assertForwardsIdentity(MockServerHttpRequest.BaseBuilder<?> request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+
+        filter.filter(exchange, this::forward).block();
+
+        assertNotNull(forwarded.get());
+        HttpHeaders headers = forwarded.get().getRequest().getHeaders();
+        assertEquals("42", headers.getFirst(IdentityHeaders.USER_ID));
+        assertEquals("ana", headers.getFirst(IdentityHeaders.USERNAME));
+        assertTrue(headers.getFirst(IdentityHeaders.GATEWAY_AUTH).startsWith(IdentitySignature.VERSION + "."));
+    }
+
+    private Mono<Void> forward(ServerWebExchange exchange) {
+        forwarded.set(exchange);
+        return Mono.empty();
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.bookgateway.Util;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JwtTokenUtilTest {
+
+    private static final String SECRET = "un-secreto-compartido-de-al-menos-32-bytes";
+
+    private JwtTokenUtil jwtTokenUtil;
+
+    @Before
+    public void setUp() {
+        jwtTokenUtil = jwtTokenUtil(SECRET);
+    }
+
+    @Test
+    public void acceptsTokensSignedTheWayBookSignsThem() {
+        VerifiedToken verified = jwtTokenUtil.verify(bookToken(SECRET, "42", "ana"));
+
+        assertEquals("42", verified.getUserId());
+        assertEquals("ana", verified.getUsername());
+        assertEquals(List.of("ROLE_USER"), verified.getRoles());
+    }
+
+    @Test
+    public void rejectsTokensSignedWithAnotherSecret() {
+        assertFalse(jwtTokenUtil.validateToken(bookToken("otro-secreto-distinto-de-al-menos-32-bytes", "42", "ana")));
+    }
+
+    @Test(expected = JwtException.class)
+    public void rejectsTamperedTokens() {
+        String token = bookToken(SECRET, "42", "ana");
+        jwtTokenUtil.verify(token.substring(0, token.length() - 2) + "xx");
+    }
+
+    @Test
+    public void verifiesItsOwnTokens() {
+        assertTrue(jwtTokenUtil.validateToken(jwtTokenUtil.generateToken("42")));
+    }
+
+    static JwtTokenUtil jwtTokenUtil(String secret) {
+        JwtTokenUtil util = new JwtTokenUtil();
+        ReflectionTestUtils.setField(util, "secret", secret);
+        ReflectionTestUtils.setField(util, "expiration", 3_600_000L);
+        ReflectionTestUtils.setField(util, "verifiedTokenCache", new VerifiedTokenCache(100, new SimpleMeterRegistry()));
+        util.init();
+        return util;
+    }
+
+    // Igual que com.example.book.Util.JwtTokenUtil#createToken
+    static String bookToken(String secret, String userId, String username) {
+        Claims claims = Jwts.claims().setSubject(userId);
+        claims.put("userId", userId);
+        claims.put("username", username);
+        claims.put("roles", List.of("ROLE_USER"));
+        Date now = new Date();
+        return Jwts.builder()
+                .setClaims(claims)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + 3_600_000L))
+                .signWith(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8),
+                        SignatureAlgorithm.HS256.getJcaName()), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}